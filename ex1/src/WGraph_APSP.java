@@ -0,0 +1,223 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the all pairs shortest paths of a small/medium graph as a flat
+ * n*n distance matrix (row src, column dest, by the graph's dense indexes), in double or,
+ * to halve the memory, in float precision. Unreachable pairs hold -1.
+ * Two strategies are offered:
+ * 0. floydWarshall - cache blocked Floyd-Warshall, the blocks of every phase run in parallel
+ * 1. dijkstra - a Dijkstra from every source, the sources run in parallel
+ * compute() chooses between them by the graph's density.
+ */
+
+public class WGraph_APSP {
+
+    private static final int BLOCK = 64;
+    // Dijkstra is preferred while |E| * log|V| * DIJKSTRA_FACTOR < |V|^2
+    // (the crossover measured in AlgoRunTimeTest.allPairsCrossover)
+    private static final double DIJKSTRA_FACTOR = 1.5;
+
+    private final int[] keys;
+    private final int n;
+    private final double[] d;
+    private final float[] f;
+
+    // Constructor:
+    private WGraph_APSP(WGraph_CSR g, double[] d, float[] f) {
+        this.keys = g.keys;
+        this.n = g.n;
+        this.d = d;
+        this.f = f;
+    }
+
+    /**
+     * Computes the matrix with the strategy which fits the graph's density.
+     *
+     * @param g              - the graph
+     * @param floatPrecision - whether to keep the distances as floats
+     * @param threads        - the number of threads
+     * @return WGraph_APSP
+     */
+    public static WGraph_APSP compute(WGraph_CSR g, boolean floatPrecision, int threads) {
+        double log = Math.log(Math.max(2, g.n)) / Math.log(2);
+        if (g.edgeSize() * log * DIJKSTRA_FACTOR < (double) g.n * g.n) return dijkstra(g, floatPrecision, threads);
+        return floydWarshall(g, floatPrecision, threads);
+    }
+
+    /**
+     * Computes the matrix with blocked Floyd-Warshall: for every diagonal block k,
+     * first the block (k,k), then the blocks of row k and column k, then all the others.
+     *
+     * @param g              - the graph
+     * @param floatPrecision - whether to keep the distances as floats
+     * @param threads        - the number of threads
+     * @return WGraph_APSP
+     */
+    public static WGraph_APSP floydWarshall(WGraph_CSR g, boolean floatPrecision, int threads) {
+        final int n = g.n;
+        checkSize(n);
+        final double[] d = floatPrecision ? null : new double[n * n];
+        final float[] f = floatPrecision ? new float[n * n] : null;
+        if (d != null) Arrays.fill(d, Double.POSITIVE_INFINITY);
+        else Arrays.fill(f, Float.POSITIVE_INFINITY);
+        for (int v = 0; v < n; v++) {
+            set(d, f, v * n + v, 0);
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) set(d, f, v * n + g.ni[e], g.w[e]);
+        }
+        final int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int k = 0; k < blocks; k++) {
+            final int kb = k;
+            block(d, f, n, kb, kb, kb);
+            WGraph_Parallel.forEach(2 * blocks, threads, 1, x -> {
+                int b = x >> 1;
+                if (b == kb) return;
+                if ((x & 1) == 0) block(d, f, n, kb, kb, b);
+                else block(d, f, n, kb, b, kb);
+            });
+            WGraph_Parallel.forEach(blocks * blocks, threads, 1, x -> {
+                int ib = x / blocks, jb = x % blocks;
+                if (ib != kb && jb != kb) block(d, f, n, kb, ib, jb);
+            });
+        }
+        finish(d, f);
+        return new WGraph_APSP(g, d, f);
+    }
+
+    /**
+     * Computes the matrix with a Dijkstra from every source (rows are independent,
+     * every chunk of sources has its own heap).
+     *
+     * @param g              - the graph
+     * @param floatPrecision - whether to keep the distances as floats
+     * @param threads        - the number of threads
+     * @return WGraph_APSP
+     */
+    public static WGraph_APSP dijkstra(WGraph_CSR g, boolean floatPrecision, int threads) {
+        final int n = g.n;
+        checkSize(n);
+        final double[] d = floatPrecision ? null : new double[n * n];
+        final float[] f = floatPrecision ? new float[n * n] : null;
+        WGraph_Parallel.forChunks(n, threads, 1, (from, to) -> {
+            WGraph_Heap heap = new WGraph_Heap();
+            double[] row = new double[n];
+            for (int s = from; s < to; s++) {
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+                row[s] = 0;
+                heap.push(0, s);
+                while (!heap.isEmpty()) {
+                    double du = heap.topPriority();
+                    int u = heap.pop();
+                    if (du > row[u]) continue;
+                    for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                        int v = g.ni[e];
+                        if (du + g.w[e] < row[v]) {
+                            row[v] = du + g.w[e];
+                            heap.push(row[v], v);
+                        }
+                    }
+                }
+                for (int v = 0; v < n; v++) set(d, f, s * n + v, row[v] == Double.POSITIVE_INFINITY ? -1 : row[v]);
+            }
+        });
+        return new WGraph_APSP(g, d, f);
+    }
+
+    /**
+     * Help function: relaxes block (ib,jb) through the vertices of block kb.
+     */
+    private static void block(double[] d, float[] f, int n, int kb, int ib, int jb) {
+        int k0 = kb * BLOCK, k1 = Math.min(n, k0 + BLOCK);
+        int i0 = ib * BLOCK, i1 = Math.min(n, i0 + BLOCK);
+        int j0 = jb * BLOCK, j1 = Math.min(n, j0 + BLOCK);
+        if (d != null) {
+            for (int k = k0; k < k1; k++) {
+                int kr = k * n;
+                for (int i = i0; i < i1; i++) {
+                    int ir = i * n;
+                    double ik = d[ir + k];
+                    if (ik == Double.POSITIVE_INFINITY) continue;
+                    for (int j = j0; j < j1; j++) {
+                        double x = ik + d[kr + j];
+                        if (x < d[ir + j]) d[ir + j] = x;
+                    }
+                }
+            }
+        } else {
+            for (int k = k0; k < k1; k++) {
+                int kr = k * n;
+                for (int i = i0; i < i1; i++) {
+                    int ir = i * n;
+                    float ik = f[ir + k];
+                    if (ik == Float.POSITIVE_INFINITY) continue;
+                    for (int j = j0; j < j1; j++) {
+                        float x = ik + f[kr + j];
+                        if (x < f[ir + j]) f[ir + j] = x;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void set(double[] d, float[] f, int i, double x) {
+        if (d != null) d[i] = x;
+        else f[i] = (float) x;
+    }
+
+    /**
+     * Help function: replaces the infinite distances with -1.
+     */
+    private static void finish(double[] d, float[] f) {
+        if (d != null) {
+            for (int i = 0; i < d.length; i++) if (d[i] == Double.POSITIVE_INFINITY) d[i] = -1;
+        } else {
+            for (int i = 0; i < f.length; i++) if (f[i] == Float.POSITIVE_INFINITY) f[i] = -1;
+        }
+    }
+
+    private static void checkSize(int n) {
+        if ((long) n * n > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Graph too big for a distance matrix: " + n);
+    }
+
+    /**
+     * Returns the distance between two vertices by their keys.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return double || -1 (if no such path or vertex)
+     */
+    public double dist(int src, int dest) {
+        int s = Arrays.binarySearch(keys, src), t = Arrays.binarySearch(keys, dest);
+        if (s < 0 || t < 0) return -1;
+        return d != null ? d[s * n + t] : f[s * n + t];
+    }
+
+    /**
+     * @return the number of vertices (the matrix is n*n)
+     */
+    public int nodeSize() {
+        return n;
+    }
+
+    /**
+     * @return the sorted keys of the vertices (row/column i is the vertex keys[i])
+     */
+    public int[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the double matrix || null (if computed in float precision)
+     */
+    public double[] getMatrix() {
+        return d;
+    }
+
+    /**
+     * @return the float matrix || null (if computed in double precision)
+     */
+    public float[] getFloatMatrix() {
+        return f;
+    }
+}
@@ -2,6 +2,7 @@ package ex1.src;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class represents an Undirected (positive) Weighted "Graph Theory" algorithms including methods:
@@ -13,6 +14,27 @@ import java.util.*;
  * path route as an ordered LinkedList
  * 5. Save(file)
  * 6. Load(file)
+ * 7. saveDelta(file) - Appends the graph's journal to the file's write-ahead log
+ * 8. saveCompressed(file, quantize) - Saves the graph in the compressed format (see WGraph_Compressed)
+ * 9. minimumSpanningForest() - The minimum spanning tree of every connected component (see WGraph_MST)
+ * 10. shortestPathDists(src) - The distances from src to all the vertices (see WGraph_DeltaStepping)
+ * 11. kNearest(src, k, targets) / withinRadius(src, r) - Bounded searches around src (see WGraph_Nearest)
+ * 12. kShortestPaths(src, dest, k) - The k shortest loopless paths (see WGraph_KPaths)
+ * 13. allPairsShortestPaths(floatPrecision) - The full distance matrix (see WGraph_APSP)
+ * 14. betweennessCentrality() / closenessCentrality() - (see WGraph_Centrality)
+ * 15. dynamicShortestPaths(src) - A shortest paths tree kept up to date with the graph (see WGraph_DynamicSSSP)
+ * 16. partition(k) - Splits the vertices into k balanced parts with few cut edges (see WGraph_Partition)
+ * 17. reordered(order) - A snapshot relabeled for memory locality, queried by the original keys (see WGraph_Reordered)
+ * 18. shortestPathArray(src, dest) - The shortest path as primitive arrays of keys & distances (see WGraph_Path)
+ * 19. hubLabels() - An exact distance oracle answering shortestPathDist in microseconds (see WGraph_HubLabels)
+ * 20. approximateDistances(k) - A compact distance oracle with stretch 2k - 1 (see WGraph_ThorupZwick)
+ * 21. nearestSources(sources) - The nearest source of every vertex & its distance, in one pass (see WGraph_Voronoi)
+ * 22. biconnected() - The bridges, articulation points & biconnected components (see WGraph_Biconnected)
+ * 23. triangles() - The triangles of every vertex & the clustering coefficients, in parallel (see WGraph_Triangles)
+ * 24. communities() - Community detection by the edge weights with parallel Louvain (see WGraph_Louvain)
+ * 25. serve() - A localhost query service over a snapshot of the graph, on virtual threads on Java 21+
+ * (a cached thread pool otherwise, see WGraph_QueryService)
+ * 26. saveAsync(file) - Saves a point-in-time image of the graph on a background thread (see WGraph_Image)
  *
  * @author Rotem Halbreich
  */
@@ -20,7 +42,14 @@ import java.util.*;
 public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
 
     private static final String UNVISITED = "white", VISITED = "gray", END_ROUND = "black";
+    public static final String WAL_SUFFIX = ".wal";
+    // The log is compacted into a new snapshot once it holds more records than this ratio of |V|+|E|
+    private static final double COMPACT_RATIO = 0.5;
     public weighted_graph g;
+    // The last snapshot of g taken by snapshot() and the mode count (MC) it was taken at
+    private transient WGraph_CSR snapshot;
+    private transient weighted_graph snapshotOf;
+    private transient int snapshotMC;
 
     public WGraph_Algo(weighted_graph g) {
         init(g);
@@ -33,6 +62,8 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
 
     /**
      * Initialize the graph on which this set of algorithms operates on.
+     * A read-only graph (see WGraph_Mapped) is supported by the queries only: its mutators throw
+     * UnsupportedOperationException and its mode count never changes.
      *
      * @param g
      */
@@ -146,7 +177,7 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
     public double shortestPathDist(int src, int dest) {
 
         if (g.getNode(src) == null || g.getNode(dest) == null) return -1;
-        Dijkstra((WGraph_DS) g, g.getNode(src), dest);
+        Dijkstra(g, g.getNode(src), dest, false);
         double a = g.getNode(dest).getTag();
         if (g.getNode(dest).getTag() == Double.MAX_VALUE) g.getNode(dest).setTag(-1);
         return g.getNode(dest).getTag();
@@ -165,7 +196,7 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
      */
     @Override
     public List<node_info> shortestPath(int src, int dest) {
-        HashMap<Integer, node_info> hash = Dijkstra((WGraph_DS) g, g.getNode(src), dest);
+        HashMap<Integer, node_info> hash = Dijkstra(g, g.getNode(src), dest, true);
         if (g.getNode(src) == null || g.getNode(dest) == null) return null;
         if (g.getNode(dest).getTag() == Double.MAX_VALUE) return null;
         boolean flag = true;
@@ -183,21 +214,49 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
         return l;
     }
 
+    /**
+     * Returns the shortest path between src and dest as primitive arrays: the keys of its vertices and
+     * their distances from src (asList(g) of the result adapts it to a List<node_info>).
+     * The snapshot of the graph it runs on is reused while the graph doesn't change.
+     * If no such path or vertex --> returns null
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return WGraph_Path
+     */
+    public WGraph_Path shortestPathArray(int src, int dest) {
+        return WGraph_Path.shortest(snapshot(), src, dest);
+    }
+
+    /**
+     * Help function: a WGraph_CSR snapshot of the graph, taken again only if the graph changed.
+     */
+    private WGraph_CSR snapshot() {
+        if (snapshot == null || snapshotOf != g || snapshotMC != g.getMC()) {
+            snapshot = WGraph_CSR.of(g);
+            snapshotOf = g;
+            snapshotMC = g.getMC();
+        }
+        return snapshot;
+    }
+
     /**
      * Help function, Dijkstra algorithm:
      * Goes through all the vertices and checks the shortest path there is
      * to any neighbor, if there is such path --> changes the tag to the shortest (weight)
      * then pushes it to the queue.
-     * At last returns a HashMap representing shortestPath.
+     * At last returns a HashMap representing shortestPath
+     * (empty if the path isn't needed, so only the tags are kept).
      *
      * If one of the vertices (src/dest) doesn't exist --> Throw RuntimeException
      *
      * @param g
      * @param src
      * @param dest
+     * @param path - whether to record the previous vertex of every vertex
      * @return HashMap
      */
-    private HashMap<Integer, node_info> Dijkstra(WGraph_DS g, node_info src, int dest) {
+    private HashMap<Integer, node_info> Dijkstra(weighted_graph g, node_info src, int dest, boolean path) {
         HashMap<Integer, node_info> prevNodes = new HashMap<>();
         PriorityQueue<node_info> PQ = new PriorityQueue<>();
         if (g.getNode(dest) == null || src == null) throw new RuntimeException("Invalid value");
@@ -207,7 +266,7 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
         PQ.add(src);
 
         for (node_info vertex : g.getV()) {
-            if (vertex != src) {
+            if (!vertex.equals(src)) {
                 vertex.setTag(Double.MAX_VALUE);
                 vertex.setInfo(UNVISITED);
             }
@@ -222,7 +281,7 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
                     PQ.remove(neighbor);
                     neighbor.setTag(currWeight);
                     PQ.add(neighbor);
-                    prevNodes.put(neighbor.getKey(), curr);
+                    if (path) prevNodes.put(neighbor.getKey(), curr);
                 }
             }
             curr.setInfo(VISITED);
@@ -230,15 +289,247 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
         return prevNodes;
     }
 
+    /**
+     * Returns the shortest path distances from src to every reachable vertex,
+     * computed by parallel delta-stepping on all the available cores.
+     * If src doesn't exist --> returns null
+     *
+     * @param src - start node
+     * @return HashMap - vertex's key --> distance (same values as shortestPathDist)
+     */
+    public HashMap<Integer, Double> shortestPathDists(int src) {
+        if (g.getNode(src) == null) return null;
+        WGraph_CSR csr = snapshot();
+        double[] dist = WGraph_DeltaStepping.distances(csr, csr.indexOf(src), WGraph_Parallel.threads());
+        HashMap<Integer, Double> ans = new HashMap<>();
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] >= 0) ans.put(csr.key(v), dist[v]);
+        }
+        return ans;
+    }
+
+    /**
+     * Returns the k shortest loopless paths between src to dest, by increasing length -
+     * each as an ordered List of nodes like shortestPath(src, dest), which is the first one.
+     * If one of the vertices (src/dest) doesn't exist --> returns null
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @param k    - the number of paths
+     * @return List of paths (fewer than k if there are no more paths)
+     */
+    public List<List<node_info>> kShortestPaths(int src, int dest, int k) {
+        if (g.getNode(src) == null || g.getNode(dest) == null) return null;
+        WGraph_CSR csr = snapshot();
+        List<List<node_info>> ans = new LinkedList<>();
+        for (int[] path : new WGraph_KPaths(csr, csr.indexOf(dest)).find(csr.indexOf(src), k)) {
+            LinkedList<node_info> l = new LinkedList<>();
+            for (int v : path) l.add(g.getNode(csr.key(v)));
+            ans.add(l);
+        }
+        return ans;
+    }
+
+    /**
+     * Computes the distances between all the pairs of vertices as a flat matrix,
+     * with parallel blocked Floyd-Warshall or parallel repeated Dijkstra
+     * (chosen by the graph's density). Meant for graphs up to ~10k vertices.
+     *
+     * @param floatPrecision - whether to keep the distances as floats (half the memory)
+     * @return WGraph_APSP - dist(src, dest) || the matrix itself
+     */
+    public WGraph_APSP allPairsShortestPaths(boolean floatPrecision) {
+        return WGraph_APSP.compute(snapshot(), floatPrecision, WGraph_Parallel.threads());
+    }
+
+    /**
+     * Computes the betweenness centrality of every vertex (parallel Brandes).
+     *
+     * @return HashMap - vertex's key --> betweenness
+     */
+    public HashMap<Integer, Double> betweennessCentrality() {
+        WGraph_CSR csr = snapshot();
+        return byKey(csr, WGraph_Centrality.betweenness(csr, WGraph_Parallel.threads()));
+    }
+
+    /**
+     * Computes the closeness centrality of every vertex.
+     *
+     * @return HashMap - vertex's key --> closeness
+     */
+    public HashMap<Integer, Double> closenessCentrality() {
+        WGraph_CSR csr = snapshot();
+        return byKey(csr, WGraph_Centrality.closeness(csr, WGraph_Parallel.threads()));
+    }
+
+    /**
+     * Help function: maps values by the snapshot's indexes to the vertices' keys.
+     */
+    private static HashMap<Integer, Double> byKey(WGraph_CSR csr, double[] values) {
+        HashMap<Integer, Double> ans = new HashMap<>();
+        for (int v = 0; v < values.length; v++) ans.put(csr.key(v), values[v]);
+        return ans;
+    }
+
+    /**
+     * Returns the k closest vertices to src among the given targets, sorted by distance.
+     * The search stops as soon as the k-th target is reached.
+     * If src doesn't exist --> returns null
+     *
+     * @param src     - start node
+     * @param k       - the number of vertices to find
+     * @param targets - the keys of the candidate vertices
+     * @return WGraph_Nearest - the keys (getKeys()) and the distances (getDists())
+     */
+    public WGraph_Nearest kNearest(int src, int k, int[] targets) {
+        return WGraph_Nearest.kNearest(g, src, k, targets);
+    }
+
+    /**
+     * Returns all the vertices within distance r from src, sorted by distance.
+     * The search stops as soon as the next vertex is farther than r.
+     * If src doesn't exist --> returns null
+     *
+     * @param src - start node
+     * @param r   - the radius
+     * @return WGraph_Nearest - the keys (getKeys()) and the distances (getDists())
+     */
+    public WGraph_Nearest withinRadius(int src, double r) {
+        return WGraph_Nearest.withinRadius(g, src, r);
+    }
+
+    /**
+     * Computes the minimum spanning forest of the graph (a minimum spanning tree
+     * of every connected component) with parallel Boruvka on all the available cores.
+     *
+     * @return WGraph_MST - the forest as a new graph (getTree()) and its total weight (getWeight())
+     */
+    public WGraph_MST minimumSpanningForest() {
+        return WGraph_MST.boruvka(snapshot(), WGraph_Parallel.threads());
+    }
+
+    /**
+     * Returns the shortest paths tree from src, which repairs itself after every change of the graph
+     * (instead of recomputing). Call close() on it once it isn't needed anymore.
+     * If src doesn't exist or the graph isn't a WGraph_DS (can't be listened to) --> returns null
+     *
+     * @param src - start node
+     * @return WGraph_DynamicSSSP - the distances (getDist()) and the paths (getPath())
+     */
+    public WGraph_DynamicSSSP dynamicShortestPaths(int src) {
+        if (!(g instanceof WGraph_DS) || g.getNode(src) == null) return null;
+        return new WGraph_DynamicSSSP((WGraph_DS) g, src);
+    }
+
+    /**
+     * Splits the vertices into k balanced parts with few edges between them (multilevel partitioning).
+     *
+     * @param k - the number of parts
+     * @return HashMap<Integer, Integer> - the part (0..k-1) of every vertex by key
+     */
+    public HashMap<Integer, Integer> partition(int k) {
+        WGraph_CSR csr = snapshot();
+        int[] parts = WGraph_Partition.compute(csr, k, 0).getParts();
+        HashMap<Integer, Integer> ans = new HashMap<>();
+        for (int v = 0; v < parts.length; v++) ans.put(csr.key(v), parts[v]);
+        return ans;
+    }
+
+    /**
+     * Takes a snapshot of the graph with its vertices relabeled for memory locality
+     * (the queries on it still take and return the original keys / dense indexes).
+     *
+     * @param order - one of WGraph_Reordered.NONE, BFS, RCM, DEGREE
+     * @return WGraph_Reordered
+     */
+    public WGraph_Reordered reordered(int order) {
+        return WGraph_Reordered.of(snapshot(), order);
+    }
+
+    /**
+     * Builds a hub labeling index of the graph by pruned landmark labeling, which answers
+     * exact shortest path distances by intersecting two labels (it doesn't follow later changes).
+     *
+     * @return WGraph_HubLabels
+     */
+    public WGraph_HubLabels hubLabels() {
+        return WGraph_HubLabels.build(snapshot());
+    }
+
+    /**
+     * Builds an approximate distance oracle of the graph (Thorup-Zwick), in parallel: its estimates
+     * are between the exact distance and 2k - 1 times it (it doesn't follow later changes).
+     *
+     * @param k - the number of levels (k = 1 is exact, higher k - smaller & less accurate)
+     * @return WGraph_ThorupZwick
+     */
+    public WGraph_ThorupZwick approximateDistances(int k) {
+        return WGraph_ThorupZwick.build(snapshot(), k, 0, WGraph_Parallel.threads());
+    }
+
+    /**
+     * Assigns every vertex to its nearest source by one multi-source Dijkstra
+     * (instead of a search from every source to every vertex).
+     *
+     * @param sources - the sources' keys (missing keys are ignored)
+     * @return WGraph_Voronoi - the nearest source (nearestSource(key)) & its distance (shortestPathDist(key))
+     */
+    public WGraph_Voronoi nearestSources(int[] sources) {
+        return WGraph_Voronoi.of(snapshot(), sources);
+    }
+
+    /**
+     * Finds the single points of failure of the graph in one (iterative) DFS: the edges (bridges) and
+     * vertices (articulation points) whose removal disconnects it, and its biconnected components.
+     *
+     * @return WGraph_Biconnected
+     */
+    public WGraph_Biconnected biconnected() {
+        return WGraph_Biconnected.compute(snapshot());
+    }
+
+    /**
+     * Counts the triangles of every vertex on all the available cores,
+     * with the local and global clustering coefficients.
+     *
+     * @return WGraph_Triangles - the results by the dense indexes of the graph's sorted keys
+     */
+    public WGraph_Triangles triangles() {
+        return WGraph_Triangles.count(snapshot(), WGraph_Parallel.threads());
+    }
+
+    /**
+     * Splits the vertices into communities of densely (by weight) connected vertices,
+     * by the Louvain method on all the available cores.
+     *
+     * @return WGraph_Louvain - the community of every vertex (community(key)) & the modularity
+     */
+    public WGraph_Louvain communities() {
+        return WGraph_Louvain.detect(snapshot(), WGraph_Parallel.threads());
+    }
+
+    /**
+     * Starts a query service over the current snapshot of the graph: shortest path and connectivity
+     * requests over a localhost socket, served on virtual threads on Java 21+ (a cached thread pool otherwise),
+     * with the identical requests in flight coalesced and the requests from the same source batched into one search.
+     *
+     * @return WGraph_QueryService - its port is getPort(), close() stops it
+     * @throws IOException - if the socket can't be opened
+     */
+    public WGraph_QueryService serve() throws IOException {
+        return new WGraph_QueryService(snapshot(), true, true);
+    }
+
     /**
      * Saves this weighted (undirected) graph to the given
-     * file name
+     * file name (after the pending saveAsync() writes, so an older image can't replace it)
      *
      * @param file - the file name (may include a relative path).
      * @return true - iff the file was successfully saved
      */
     @Override
     public boolean save(String file) {
+        WGraph_Image.drain();
         try {
             FileOutputStream fileOutputStream = new FileOutputStream(file);
             ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
@@ -250,24 +541,110 @@ public class WGraph_Algo implements weighted_graph_algorithms, Serializable {
             e.printStackTrace();
             return false;
         }
+        // The new snapshot already contains every logged change
+        new File(file + WAL_SUFFIX).delete();
+        if (g instanceof WGraph_DS && ((WGraph_DS) g).getJournal() != null) {
+            ((WGraph_DS) g).getJournal().clear();
+        }
+        return true;
+    }
+
+    /**
+     * Saves this weighted (undirected) graph to the given file name in the background:
+     * the graph is captured into primitive arrays before returning (see WGraph_Image),
+     * so it may be changed right away - the file holds the graph as it was at the call.
+     * The file is written in the format of save() next to the target and renamed over it on completion.
+     * The write-ahead log and the journal are kept: the changes made during the save are newer
+     * than the saved mode count, so load() replays exactly them. The saves made meanwhile by save(),
+     * saveCompressed() or a compacting saveDelta() wait for it, so it never replaces a newer file.
+     *
+     * @param file - the file name (may include a relative path).
+     * @return a future of true - iff the file was successfully saved
+     */
+    public CompletableFuture<Boolean> saveAsync(String file) {
+        return WGraph_Image.capture(this.g).writeAsync(file);
+    }
+
+    /**
+     * Saves this weighted (undirected) graph to the given file name
+     * in the compressed format (sorted, delta + varint encoded neighbor lists,
+     * dictionary encoded weights, deflated blocks with a block index).
+     * load(file) recognizes both formats. Like save(), it waits for the pending saveAsync() writes first.
+     *
+     * @param file     - the file name (may include a relative path).
+     * @param quantize - if true, weights which can't be dictionary encoded are stored as floats (lossy)
+     * @return true - iff the file was successfully saved
+     */
+    public boolean saveCompressed(String file, boolean quantize) {
+        WGraph_Image.drain();
+        try {
+            WGraph_Compressed.write(this.g, file, quantize);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        new File(file + WAL_SUFFIX).delete();
+        if (g instanceof WGraph_DS && ((WGraph_DS) g).getJournal() != null) {
+            ((WGraph_DS) g).getJournal().clear();
+        }
         return true;
     }
 
+    /**
+     * Saves only the changes made to the graph since the last save:
+     * the pending records of the graph's journal are appended to the
+     * write-ahead log (file + ".wal") with one batched fsync.
+     * If there is no snapshot yet, or the log grew too big compared to the graph,
+     * a full snapshot is written instead (compaction) and the log is emptied.
+     * If the graph doesn't keep a journal, journaling is turned on after a full save.
+     *
+     * @param file - the snapshot file name (may include a relative path).
+     * @return true - iff the changes were successfully saved
+     */
+    public boolean saveDelta(String file) {
+        if (!(g instanceof WGraph_DS)) return save(file);
+        WGraph_DS ds = (WGraph_DS) g;
+        WGraph_Journal journal = ds.getJournal();
+        if (journal == null || !new File(file).exists()) {
+            if (journal == null) ds.setJournal(new WGraph_Journal());
+            return save(file);
+        }
+        if (journal.flushedSize() + journal.size() > COMPACT_RATIO * (g.nodeSize() + g.edgeSize())) {
+            return save(file);
+        }
+        return journal.flush(file + WAL_SUFFIX);
+    }
+
     /**
      * This method load a graph to this graph algorithm.
      * if the file was successfully loaded - the underlying graph
      * of this class will be changed (to the loaded one), in case the
      * graph was not loaded the original graph should remain "as is".
+     * If the file has a write-ahead log (see saveDelta) it is replayed on top of the snapshot.
      *
      * @param file - file name
      * @return true - iff the graph was successfully loaded.
      */
     @Override
     public boolean load(String file) {
+        if (WGraph_Compressed.isCompressed(file)) {
+            try (WGraph_Compressed c = new WGraph_Compressed(file)) {
+                weighted_graph loaded = c.toGraph();
+                if (WGraph_Journal.replay(loaded, file + WAL_SUFFIX) < 0) return false;
+                this.g = loaded;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+            return true;
+        }
         try {
             FileInputStream fileInputStream = new FileInputStream(file);
             ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
-            this.g = (weighted_graph) objectInputStream.readObject();
+            weighted_graph loaded = (weighted_graph) objectInputStream.readObject();
+            objectInputStream.close();
+            if (WGraph_Journal.replay(loaded, file + WAL_SUFFIX) < 0) return false;
+            this.g = loaded;
 
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
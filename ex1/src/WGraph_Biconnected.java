@@ -0,0 +1,176 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the biconnectivity structure of an undirectional graph (the weights are ignored):
+ * 0. bridges - the edges whose removal disconnects their endpoints
+ * 1. articulation points - the vertices whose removal disconnects the rest of their component
+ * 2. biconnected components - the maximal sets of edges where every two edges lie on a common simple cycle
+ * (a bridge is a component of its own, an articulation point belongs to more than one).
+ * Computed by Hopcroft-Tarjan's DFS with the low-link values, iteratively: the DFS stack,
+ * the next edge of every vertex and the stack of visited edges are primitive arrays,
+ * so long paths (the 1M vertices chain) don't overflow the call stack.
+ * The results are by the graph's dense indexes (see WGraph_CSR.key) and edge positions (in ni).
+ */
+
+public class WGraph_Biconnected {
+
+    private final WGraph_CSR g;
+    private final boolean[] articulation;
+    // The bridges as pairs of indexes (the parent in the DFS tree first)
+    private final int[] bridges;
+    // The biconnected component of every edge position (both directions alike), and the number of edges of every component
+    private final int[] edgeComp, compSize;
+
+    // Constructor:
+    private WGraph_Biconnected(WGraph_CSR g, boolean[] articulation, int[] bridges, int[] edgeComp, int[] compSize) {
+        this.g = g;
+        this.articulation = articulation;
+        this.bridges = bridges;
+        this.edgeComp = edgeComp;
+        this.compSize = compSize;
+    }
+
+    /**
+     * Computes the bridges, articulation points and biconnected components of the graph.
+     *
+     * @param g - the graph
+     * @return WGraph_Biconnected
+     */
+    public static WGraph_Biconnected compute(WGraph_CSR g) {
+        int n = g.n;
+        int[] disc = new int[n], low = new int[n], parent = new int[n], parentEdge = new int[n], next = new int[n];
+        // Every edge is pushed once: as a tree edge or from the lower end of a back edge
+        int[] stack = new int[n], edgeStack = new int[g.off[n] / 2], edgeTail = new int[g.off[n] / 2];
+        int[] edgeComp = new int[g.off[n]], compSize = new int[16];
+        Arrays.fill(edgeComp, -1);
+        boolean[] articulation = new boolean[n];
+        int[] bridges = new int[16];
+        int bridgeSize = 0, time = 0, comps = 0;
+        for (int r = 0; r < n; r++) {
+            if (disc[r] != 0) continue;
+            int top = 0, edges = 0, rootChildren = 0;
+            stack[top++] = r;
+            disc[r] = low[r] = ++time;
+            parent[r] = -1;
+            parentEdge[r] = -1;
+            next[r] = g.off[r];
+            while (top > 0) {
+                int u = stack[top - 1];
+                if (next[u] < g.off[u + 1]) {
+                    int e = next[u]++, v = g.ni[e];
+                    if (disc[v] == 0) {
+                        // A tree edge
+                        disc[v] = low[v] = ++time;
+                        parent[v] = u;
+                        parentEdge[v] = e;
+                        next[v] = g.off[v];
+                        stack[top++] = v;
+                        edgeTail[edges] = u;
+                        edgeStack[edges++] = e;
+                        if (u == r) rootChildren++;
+                    } else if (disc[v] < disc[u] && v != parent[u]) {
+                        // A back edge to an ancestor (the tree edge to the parent excluded, there are no parallel edges)
+                        low[u] = Math.min(low[u], disc[v]);
+                        edgeTail[edges] = u;
+                        edgeStack[edges++] = e;
+                    }
+                    continue;
+                }
+                top--;
+                if (top == 0) break;
+                int p = parent[u];
+                low[p] = Math.min(low[p], low[u]);
+                if (low[u] > disc[p]) {
+                    if (bridgeSize == bridges.length) bridges = Arrays.copyOf(bridges, bridgeSize * 2);
+                    bridges[bridgeSize++] = p;
+                    bridges[bridgeSize++] = u;
+                }
+                if (low[u] >= disc[p]) {
+                    // p separates u's subtree: its edges (from the top of the edge stack down to the tree edge) are a component
+                    if (p != r) articulation[p] = true;
+                    if (comps == compSize.length) compSize = Arrays.copyOf(compSize, comps * 2);
+                    int e;
+                    do {
+                        e = edgeStack[--edges];
+                        int v = g.ni[e];
+                        edgeComp[e] = comps;
+                        edgeComp[Arrays.binarySearch(g.ni, g.off[v], g.off[v + 1], edgeTail[edges])] = comps;
+                        compSize[comps]++;
+                    } while (e != parentEdge[u]);
+                    comps++;
+                }
+            }
+            if (rootChildren > 1) articulation[r] = true;
+        }
+        return new WGraph_Biconnected(g, articulation, Arrays.copyOf(bridges, bridgeSize), edgeComp, Arrays.copyOf(compSize, comps));
+    }
+
+    /**
+     * @return the bridges as pairs of indexes: (getBridges()[2i], getBridges()[2i + 1])
+     */
+    public int[] getBridges() {
+        return bridges;
+    }
+
+    /**
+     * @return the number of bridges
+     */
+    public int bridgeCount() {
+        return bridges.length / 2;
+    }
+
+    /**
+     * @return whether every vertex (by index) is an articulation point
+     */
+    public boolean[] getArticulationPoints() {
+        return articulation;
+    }
+
+    /**
+     * @return the biconnected component of every edge position in the graph's neighbor array
+     */
+    public int[] getEdgeComponents() {
+        return edgeComp;
+    }
+
+    /**
+     * @return the number of biconnected components
+     */
+    public int components() {
+        return compSize.length;
+    }
+
+    /**
+     * @param node1 - the first endpoint's key
+     * @param node2 - the second endpoint's key
+     * @return true iff there is such an edge and it is a bridge
+     */
+    public boolean isBridge(int node1, int node2) {
+        // A bridge is the only edge of its component
+        int c = component(node1, node2);
+        return c >= 0 && compSize[c] == 1;
+    }
+
+    /**
+     * @param key - vertex's ID
+     * @return true iff there is such a vertex and it is an articulation point
+     */
+    public boolean isArticulationPoint(int key) {
+        int v = g.indexOf(key);
+        return v >= 0 && articulation[v];
+    }
+
+    /**
+     * @param node1 - the first endpoint's key
+     * @param node2 - the second endpoint's key
+     * @return the biconnected component of the edge || -1 (if there is no such edge)
+     */
+    public int component(int node1, int node2) {
+        int a = g.indexOf(node1), b = g.indexOf(node2);
+        if (a < 0 || b < 0) return -1;
+        int e = Arrays.binarySearch(g.ni, g.off[a], g.off[a + 1], b);
+        return e < 0 ? -1 : edgeComp[e];
+    }
+}
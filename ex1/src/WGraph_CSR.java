@@ -0,0 +1,198 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class represents an immutable compact snapshot of an undirectional weighted graph,
+ * in compressed sparse row (CSR) layout, used by the heavier algorithms:
+ * the vertices are densely indexed 0..n-1 by their sorted keys, the neighbors of vertex v
+ * are ni[off[v]]..ni[off[v + 1] - 1] (sorted by index) and w holds the matching weights.
+ * Every edge appears twice, once in each direction.
+ */
+
+public class WGraph_CSR {
+
+    final int n;
+    final int[] keys;
+    final int[] off;
+    final int[] ni;
+    final double[] w;
+
+    /**
+     * Constructor: builds the snapshot from an edge list.
+     * Edges with a missing endpoint, a negative weight or a loop are ignored,
+     * and for a repeated edge the last weight wins (as in connect()).
+     *
+     * @param nodes   - the vertex keys
+     * @param from    - the first endpoint (key) of every edge
+     * @param to      - the second endpoint (key) of every edge
+     * @param weights - the weight of every edge
+     * @param m       - the number of edges in the arrays
+     */
+    public WGraph_CSR(int[] nodes, int[] from, int[] to, double[] weights, int m) {
+        int[] sorted = nodes.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[size++] = sorted[i];
+        }
+        this.n = size;
+        this.keys = Arrays.copyOf(sorted, size);
+        int[] a = new int[m], b = new int[m];
+        int[] deg = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            a[e] = indexOf(from[e]);
+            b[e] = indexOf(to[e]);
+            if (a[e] < 0 || b[e] < 0 || a[e] == b[e] || weights[e] < 0) {
+                a[e] = -1;
+                continue;
+            }
+            deg[a[e] + 1]++;
+            deg[b[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) deg[v + 1] += deg[v];
+        int[] pos = Arrays.copyOf(deg, n);
+        int[] nbr = new int[deg[n]];
+        double[] wgt = new double[deg[n]];
+        for (int e = 0; e < m; e++) {
+            if (a[e] < 0) continue;
+            nbr[pos[a[e]]] = b[e];
+            wgt[pos[a[e]]++] = weights[e];
+            nbr[pos[b[e]]] = a[e];
+            wgt[pos[b[e]]++] = weights[e];
+        }
+        // Sorts every neighbor list, keeping only the last weight of a repeated edge:
+        int[] offsets = new int[n + 1];
+        int write = 0;
+        long[] order = new long[16];
+        int[] nb = new int[16];
+        double[] wb = new double[16];
+        for (int v = 0; v < n; v++) {
+            int start = deg[v], d = deg[v + 1] - start;
+            if (order.length < d) {
+                order = new long[d];
+                nb = new int[d];
+                wb = new double[d];
+            }
+            for (int j = 0; j < d; j++) order[j] = ((long) nbr[start + j] << 32) | j;
+            Arrays.sort(order, 0, d);
+            System.arraycopy(nbr, start, nb, 0, d);
+            System.arraycopy(wgt, start, wb, 0, d);
+            offsets[v] = write;
+            for (int j = 0; j < d; j++) {
+                if (j + 1 < d && (order[j + 1] >>> 32) == (order[j] >>> 32)) continue;
+                int p = (int) order[j];
+                nbr[write] = nb[p];
+                wgt[write++] = wb[p];
+            }
+        }
+        offsets[n] = write;
+        this.off = offsets;
+        this.ni = write == nbr.length ? nbr : Arrays.copyOf(nbr, write);
+        this.w = write == wgt.length ? wgt : Arrays.copyOf(wgt, write);
+    }
+
+    /**
+     * Constructor: wraps already built CSR arrays (neighbor lists must be sorted).
+     */
+    WGraph_CSR(int[] keys, int[] off, int[] ni, double[] w) {
+        this.n = keys.length;
+        this.keys = keys;
+        this.off = off;
+        this.ni = ni;
+        this.w = w;
+    }
+
+    /**
+     * Takes a snapshot of the given graph.
+     *
+     * @param g - the graph
+     * @return WGraph_CSR
+     */
+    public static WGraph_CSR of(weighted_graph g) {
+        int n = g.nodeSize(), m = g.edgeSize();
+        int[] nodes = new int[n], from = new int[m], to = new int[m];
+        double[] weights = new double[m];
+        int i = 0, e = 0;
+        for (node_info v : g.getV()) {
+            nodes[i++] = v.getKey();
+            for (node_info u : g.getV(v.getKey())) {
+                if (v.getKey() < u.getKey() && e < m) {
+                    from[e] = v.getKey();
+                    to[e] = u.getKey();
+                    weights[e++] = g.getEdge(v.getKey(), u.getKey());
+                }
+            }
+        }
+        return new WGraph_CSR(nodes, from, to, weights, e);
+    }
+
+    /**
+     * Builds a new WGraph_DS holding the same vertices and edges.
+     *
+     * @return weighted_graph
+     */
+    public weighted_graph toGraph() {
+        weighted_graph g = new WGraph_DS();
+        for (int key : keys) g.addNode(key);
+        for (int v = 0; v < n; v++) {
+            for (int e = off[v]; e < off[v + 1]; e++) {
+                if (v < ni[e]) g.connect(keys[v], keys[ni[e]], w[e]);
+            }
+        }
+        return g;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int nodeSize() {
+        return n;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int edgeSize() {
+        return off[n] / 2;
+    }
+
+    /**
+     * Returns the dense index of a vertex by its key.
+     *
+     * @param key - vertex's ID
+     * @return int || -1 (if none)
+     */
+    public int indexOf(int key) {
+        int i = Arrays.binarySearch(keys, key);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Returns the key of the vertex with the given dense index.
+     *
+     * @param v - vertex's index
+     * @return int
+     */
+    public int key(int v) {
+        return keys[v];
+    }
+
+    /**
+     * @param v - vertex's index
+     * @return the degree of the vertex
+     */
+    public int degree(int v) {
+        return off[v + 1] - off[v];
+    }
+
+    /**
+     * Returns the weight of the edge between two vertices (by index), O(log(degree)).
+     *
+     * @return double || -1 (if none)
+     */
+    public double weight(int a, int b) {
+        int e = Arrays.binarySearch(ni, off[a], off[a + 1], b);
+        return e < 0 ? -1 : w[e];
+    }
+}
@@ -0,0 +1,153 @@
+package ex1.src;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class represents centrality measures of the vertices of an undirectional weighted graph,
+ * returned as arrays by the graph's dense indexes (see WGraph_CSR.key):
+ * 0. betweenness - Brandes' algorithm: a Dijkstra from every source followed by the
+ * dependency accumulation in reverse order. The sources run in parallel and every chunk of
+ * sources accumulates into its own array. The approximate version runs from sampled sources only
+ * and scales the result by n / samples.
+ * 1. closeness - (r - 1) / (sum of distances) * (r - 1) / (n - 1), where r is the number of
+ * vertices reachable from the vertex (itself included), 0 for an isolated vertex.
+ */
+
+public class WGraph_Centrality {
+
+    /**
+     * Computes the exact betweenness centrality of every vertex.
+     *
+     * @param g       - the graph
+     * @param threads - the number of threads
+     * @return double[] - by vertex index
+     */
+    public static double[] betweenness(WGraph_CSR g, int threads) {
+        int[] sources = new int[g.n];
+        for (int i = 0; i < g.n; i++) sources[i] = i;
+        return betweenness(g, sources, 1, threads);
+    }
+
+    /**
+     * Approximates the betweenness centrality from the given number of random sources.
+     *
+     * @param g       - the graph
+     * @param samples - the number of sources
+     * @param seed    - the random seed
+     * @param threads - the number of threads
+     * @return double[] - by vertex index
+     */
+    public static double[] betweenness(WGraph_CSR g, int samples, long seed, int threads) {
+        if (samples >= g.n) return betweenness(g, threads);
+        int[] all = new int[g.n];
+        for (int i = 0; i < g.n; i++) all[i] = i;
+        Random rand = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + rand.nextInt(g.n - i);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        return betweenness(g, Arrays.copyOf(all, samples), (double) g.n / samples, threads);
+    }
+
+    /**
+     * Help function: Brandes from the given sources, scaled by the given factor.
+     */
+    private static double[] betweenness(WGraph_CSR g, int[] sources, double scale, int threads) {
+        final int n = g.n;
+        final double[] ans = new double[n];
+        WGraph_Parallel.forChunks(sources.length, threads, 1, (from, to) -> {
+            double[] bc = new double[n], dist = new double[n], sigma = new double[n], delta = new double[n];
+            int[] order = new int[n], pos = new int[n];
+            WGraph_Heap heap = new WGraph_Heap();
+            for (int i = from; i < to; i++) {
+                int s = sources[i];
+                int count = sssp(g, s, heap, dist, sigma, order);
+                for (int j = 0; j < count; j++) {
+                    delta[order[j]] = 0;
+                    pos[order[j]] = j;
+                }
+                for (int j = count - 1; j > 0; j--) {
+                    int w = order[j];
+                    double coeff = (1 + delta[w]) / sigma[w];
+                    // the predecessors of w: tight edges from vertices settled before it
+                    for (int e = g.off[w]; e < g.off[w + 1]; e++) {
+                        int v = g.ni[e];
+                        if (dist[v] + g.w[e] == dist[w] && pos[v] < j) delta[v] += sigma[v] * coeff;
+                    }
+                    bc[w] += delta[w];
+                }
+            }
+            synchronized (ans) {
+                for (int v = 0; v < n; v++) ans[v] += bc[v];
+            }
+        });
+        // Every (s,t) pair was counted from both ends
+        for (int v = 0; v < n; v++) ans[v] *= scale / 2;
+        return ans;
+    }
+
+    /**
+     * Computes the closeness centrality of every vertex.
+     *
+     * @param g       - the graph
+     * @param threads - the number of threads
+     * @return double[] - by vertex index
+     */
+    public static double[] closeness(WGraph_CSR g, int threads) {
+        final int n = g.n;
+        final double[] ans = new double[n];
+        WGraph_Parallel.forChunks(n, threads, 1, (from, to) -> {
+            double[] dist = new double[n], sigma = new double[n];
+            int[] order = new int[n];
+            WGraph_Heap heap = new WGraph_Heap();
+            for (int s = from; s < to; s++) {
+                int count = sssp(g, s, heap, dist, sigma, order);
+                double sum = 0;
+                for (int j = 0; j < count; j++) sum += dist[order[j]];
+                ans[s] = sum > 0 ? (count - 1) / sum * (count - 1) / (n - 1) : 0;
+            }
+        });
+        return ans;
+    }
+
+    /**
+     * Help function: Dijkstra from s which counts the shortest paths (sigma)
+     * and records the vertices by the order they were settled.
+     *
+     * @return the number of settled (reachable) vertices
+     */
+    private static int sssp(WGraph_CSR g, int s, WGraph_Heap heap, double[] dist, double[] sigma, int[] order) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(sigma, 0);
+        dist[s] = 0;
+        sigma[s] = 1;
+        heap.clear();
+        heap.push(0, s);
+        int count = 0;
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            if (du > dist[u] || sigma[u] < 0) continue;
+            order[count++] = u;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                double nd = du + g.w[e];
+                if (sigma[v] < 0) continue;
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    sigma[v] = sigma[u];
+                    heap.push(nd, v);
+                } else if (nd == dist[v]) {
+                    sigma[v] += sigma[u];
+                }
+            }
+            // Marks u as settled (its count is final), the real count is restored below
+            sigma[u] = -sigma[u];
+        }
+        for (int j = 0; j < count; j++) sigma[order[j]] = -sigma[order[j]];
+        return count;
+    }
+}
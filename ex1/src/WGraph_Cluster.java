@@ -0,0 +1,290 @@
+package ex1.src;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents the coordinator of a graph sharded across local workers (see WGraph_Shard):
+ * the graph is split with WGraph_Partition, every part is shipped to its own worker - a separate JVM
+ * process, or a thread for tests - and the queries run in rounds over localhost sockets:
+ * 0. every worker gets the batch of values found for its vertices in the last round,
+ * 1. propagates them inside its part and answers with the batch for other parts' vertices,
+ * 2. the coordinator routes the answers by part, until a round produces no messages.
+ * Offered queries: bfs(src), components(), distances(src) & shortestPathDist(src, dest) - the vertices are
+ * given by their keys, the arrays of results are by the graph's dense index (vertex v's key is g.key(v)).
+ * getRoundMessages() reports the number of (vertex, value) messages of every round of the last query.
+ */
+
+public class WGraph_Cluster implements Closeable {
+
+    private static final int CONNECT_ATTEMPTS = 50;
+
+    private final WGraph_CSR g;
+    private final int k;
+    private final int[] part;
+    private final Process[] processes;
+    private final Socket[] sockets;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private long[] roundMessages = new long[0];
+
+    /**
+     * Constructor: partitions the graph, starts the workers and loads their parts.
+     *
+     * @param g         - the graph
+     * @param k         - the number of workers
+     * @param processes - true for worker JVM processes, false for worker threads
+     * @throws IOException - if a worker can't be started or reached
+     */
+    public WGraph_Cluster(WGraph_CSR g, int k, boolean processes) throws IOException {
+        this.g = g;
+        this.k = k;
+        this.part = WGraph_Partition.compute(g, k, 0).getParts();
+        this.processes = new Process[k];
+        this.sockets = new Socket[k];
+        this.in = new DataInputStream[k];
+        this.out = new DataOutputStream[k];
+        try {
+            for (int p = 0; p < k; p++) {
+                int port = processes ? spawn(p) : serveThread();
+                Socket s = connect(port);
+                s.setTcpNoDelay(true);
+                sockets[p] = s;
+                in[p] = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+                out[p] = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 1 << 16));
+            }
+            for (int p = 0; p < k; p++) load(p);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Help function: starts a worker JVM with this class path, returns the port it printed.
+     */
+    private int spawn(int p) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), WGraph_Shard.class.getName());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        processes[p] = pb.start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(processes[p].getInputStream()));
+        String line = reader.readLine();
+        if (line == null) throw new IOException("Worker " + p + " exited before listening");
+        return Integer.parseInt(line.trim());
+    }
+
+    /**
+     * Help function: starts a worker on a daemon thread, returns its port.
+     */
+    private static int serveThread() throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread t = new Thread(() -> {
+            try {
+                WGraph_Shard.serve(server);
+            } catch (IOException ignored) {
+                // the coordinator sees the broken connection
+            }
+        }, "WGraph_Shard-" + server.getLocalPort());
+        t.setDaemon(true);
+        t.start();
+        return server.getLocalPort();
+    }
+
+    private static Socket connect(int port) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket(InetAddress.getLoopbackAddress(), port);
+            } catch (IOException e) {
+                if (attempt == CONNECT_ATTEMPTS) throw e;
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Help function: ships the vertices of part p with their edges (by global index).
+     */
+    private void load(int p) throws IOException {
+        DataOutputStream o = out[p];
+        int size = 0;
+        for (int v = 0; v < g.n; v++) if (part[v] == p) size++;
+        o.writeByte(WGraph_Shard.LOAD);
+        o.writeInt(size);
+        for (int v = 0; v < g.n; v++) {
+            if (part[v] != p) continue;
+            o.writeInt(v);
+            o.writeInt(g.degree(v));
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) {
+                o.writeInt(g.ni[e]);
+                o.writeDouble(g.w[e]);
+            }
+        }
+        o.flush();
+    }
+
+    /**
+     * Computes the number of edges on the shortest path from src to every vertex.
+     *
+     * @param src - the source's key
+     * @return int[] - by the graph's dense index (-1 if unreachable) || null (if no such vertex)
+     */
+    public int[] bfs(int src) throws IOException {
+        int s = g.indexOf(src);
+        return s < 0 ? null : toInt(run(WGraph_Shard.HOPS, s));
+    }
+
+    /**
+     * Computes the connected components.
+     *
+     * @return int[] - the component of every vertex by the graph's dense index (the smallest dense index in it)
+     */
+    public int[] components() throws IOException {
+        return toInt(run(WGraph_Shard.LABEL, -1));
+    }
+
+    /**
+     * Computes the weighted distances from src to every vertex.
+     *
+     * @param src - the source's key
+     * @return double[] - by the graph's dense index (-1 if unreachable) || null (if no such vertex)
+     */
+    public double[] distances(int src) throws IOException {
+        int s = g.indexOf(src);
+        return s < 0 ? null : run(WGraph_Shard.DIST, s);
+    }
+
+    /**
+     * Returns the length of the shortest path between two vertices.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return double || -1 (if no such path or vertex)
+     */
+    public double shortestPathDist(int src, int dest) throws IOException {
+        int s = g.indexOf(src), t = g.indexOf(dest);
+        if (s < 0 || t < 0) return -1;
+        return run(WGraph_Shard.DIST, s)[t];
+    }
+
+    /**
+     * Help function: runs a query in rounds until no worker has anything to send.
+     */
+    private double[] run(byte mode, int src) throws IOException {
+        for (int p = 0; p < k; p++) {
+            out[p].writeByte(WGraph_Shard.START);
+            out[p].writeByte(mode);
+        }
+        int[][] ids = new int[k][16];
+        double[][] vals = new double[k][16];
+        int[] sizes = new int[k];
+        if (src >= 0) {
+            ids[part[src]][0] = src;
+            sizes[part[src]] = 1;
+        }
+        long[] messages = new long[16];
+        int rounds = 0;
+        while (true) {
+            // All the workers get their batch before any answer is read, so they work in parallel
+            for (int p = 0; p < k; p++) {
+                DataOutputStream o = out[p];
+                o.writeByte(WGraph_Shard.ROUND);
+                o.writeInt(sizes[p]);
+                for (int i = 0; i < sizes[p]; i++) {
+                    o.writeInt(ids[p][i]);
+                    o.writeDouble(vals[p][i]);
+                }
+                o.flush();
+                sizes[p] = 0;
+            }
+            long total = 0;
+            for (int p = 0; p < k; p++) {
+                int count = in[p].readInt();
+                total += count;
+                for (int i = 0; i < count; i++) {
+                    int v = in[p].readInt(), q = part[v];
+                    if (sizes[q] == ids[q].length) {
+                        ids[q] = Arrays.copyOf(ids[q], sizes[q] * 2);
+                        vals[q] = Arrays.copyOf(vals[q], sizes[q] * 2);
+                    }
+                    ids[q][sizes[q]] = v;
+                    vals[q][sizes[q]++] = in[p].readDouble();
+                }
+            }
+            if (rounds == messages.length) messages = Arrays.copyOf(messages, rounds * 2);
+            messages[rounds++] = total;
+            if (total == 0) break;
+        }
+        roundMessages = Arrays.copyOf(messages, rounds);
+
+        double[] ans = new double[g.n];
+        Arrays.fill(ans, -1);
+        for (int p = 0; p < k; p++) {
+            out[p].writeByte(WGraph_Shard.COLLECT);
+            out[p].flush();
+        }
+        for (int p = 0; p < k; p++) {
+            int count = in[p].readInt();
+            for (int i = 0; i < count; i++) {
+                int v = in[p].readInt();
+                ans[v] = in[p].readDouble();
+            }
+        }
+        return ans;
+    }
+
+    private static int[] toInt(double[] values) {
+        int[] ans = new int[values.length];
+        for (int v = 0; v < values.length; v++) ans[v] = (int) values[v];
+        return ans;
+    }
+
+    /**
+     * @return the number of messages routed in every round of the last query
+     */
+    public long[] getRoundMessages() {
+        return roundMessages;
+    }
+
+    /**
+     * @return the part (worker) of every vertex by index
+     */
+    public int[] getParts() {
+        return part;
+    }
+
+    /**
+     * Stops the workers.
+     */
+    @Override
+    public void close() {
+        for (int p = 0; p < k; p++) {
+            try {
+                if (out[p] != null) {
+                    out[p].writeByte(WGraph_Shard.QUIT);
+                    out[p].flush();
+                }
+                if (sockets[p] != null) sockets[p].close();
+            } catch (IOException ignored) {
+                // the worker is gone already
+            }
+            if (processes[p] != null) {
+                try {
+                    if (!processes[p].waitFor(5, TimeUnit.SECONDS)) processes[p].destroy();
+                } catch (InterruptedException e) {
+                    processes[p].destroy();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package ex1.src;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * This class represents an undirectional weighted graph which stores its vertices by columns
+ * instead of an object per vertex:
+ * 0. keys - int[], tags - double[], infos - int[] codes of a dictionary of the distinct info strings
+ * (the algorithms only use a handful of them), all indexed by a dense slot.
+ * 1. A primitive open addressing table maps a key to its slot, a removed vertex's slot is
+ * filled with the last vertex.
+ * 2. The neighbors of every slot are kept as a primitive array of keys and an array of weights
+ * (O(degree) edge lookups).
+ * The node_info instances are flyweights made on demand: they read and write the columns,
+ * two instances of the same vertex are equal, and a removed vertex's instance can't be used anymore.
+ */
+
+public class WGraph_Columnar implements weighted_graph, Serializable {
+
+    private int v_size = 0;
+    private int e_size = 0;
+    private int mc = 0;
+    private int[] keys = new int[16], infos = new int[16], degree = new int[16];
+    private double[] tags = new double[16];
+    private int[][] nbr = new int[16][];
+    private double[][] weight = new double[16][];
+    // slot + 1 of the vertex by the key's hash (0 = empty), linear probing
+    private int[] table = new int[32];
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private final HashMap<String, Integer> codes = new HashMap<>();
+
+    // Default constructor:
+    public WGraph_Columnar() {
+        intern("");
+    }
+
+    /**
+     * This inner class represents a vertex: a view of its slot in the columns.
+     */
+    private class Node implements node_info, Comparable<node_info> {
+
+        private final int key;
+        private int slot;
+
+        // Constructor:
+        public Node(int key, int slot) {
+            this.key = key;
+            this.slot = slot;
+        }
+
+        /**
+         * Help function: the vertex's current slot (slots move when vertices are removed).
+         */
+        private int slot() {
+            if (slot >= v_size || keys[slot] != key) {
+                slot = slotOf(key);
+                if (slot < 0) throw new IllegalStateException("Vertex " + key + " was removed");
+            }
+            return slot;
+        }
+
+        @Override
+        public int getKey() {
+            return key;
+        }
+
+        @Override
+        public String getInfo() {
+            return dictionary.get(infos[slot()]);
+        }
+
+        @Override
+        public void setInfo(String s) {
+            infos[slot()] = intern(s);
+        }
+
+        @Override
+        public double getTag() {
+            return tags[slot()];
+        }
+
+        @Override
+        public void setTag(double t) {
+            tags[slot()] = t;
+        }
+
+        @Override
+        public int compareTo(node_info o) {
+            return Double.compare(getTag(), o.getTag());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node && ((Node) o).key == key && ((Node) o).graph() == graph();
+        }
+
+        @Override
+        public int hashCode() {
+            return key;
+        }
+
+        private WGraph_Columnar graph() {
+            return WGraph_Columnar.this;
+        }
+
+        @Override
+        public String toString() {
+            return "NodeInfo{" + "key = " + key + ", info = '" + getInfo() + '\'' + ", tag = " + getTag() + '}';
+        }
+    }
+
+    /**
+     * This inner class represents a removed vertex (its values when it was removed).
+     */
+    private static class Removed implements node_info, Comparable<node_info> {
+
+        private final int key;
+        private String info;
+        private double tag;
+
+        // Constructor:
+        public Removed(int key, String info, double tag) {
+            this.key = key;
+            this.info = info;
+            this.tag = tag;
+        }
+
+        @Override
+        public int getKey() {
+            return key;
+        }
+
+        @Override
+        public String getInfo() {
+            return info;
+        }
+
+        @Override
+        public void setInfo(String s) {
+            info = s;
+        }
+
+        @Override
+        public double getTag() {
+            return tag;
+        }
+
+        @Override
+        public void setTag(double t) {
+            tag = t;
+        }
+
+        @Override
+        public int compareTo(node_info o) {
+            return Double.compare(tag, o.getTag());
+        }
+
+        @Override
+        public String toString() {
+            return "NodeInfo{" + "key = " + key + ", info = '" + info + '\'' + ", tag = " + tag + '}';
+        }
+    }
+
+    /**
+     * Help function: the dictionary code of an info string.
+     */
+    private int intern(String s) {
+        Integer code = codes.get(s);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(s);
+            codes.put(s, code);
+        }
+        return code;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Help function: the slot of a key || -1 (if none).
+     */
+    private int slotOf(int key) {
+        int mask = table.length - 1;
+        for (int i = hash(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (keys[table[i] - 1] == key) return table[i] - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Help function: the table position of a key (which must exist).
+     */
+    private int positionOf(int key) {
+        int mask = table.length - 1, i = hash(key) & mask;
+        while (keys[table[i] - 1] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void index(int key, int slot) {
+        int mask = table.length - 1, i = hash(key) & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = slot + 1;
+    }
+
+    /**
+     * Help function: removes a key from the table, shifting back the entries after it.
+     */
+    private void unindex(int key) {
+        int mask = table.length - 1, i = positionOf(key);
+        table[i] = 0;
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[table[j] - 1]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    /**
+     * Returns the vertex by its unique key (ID).
+     *
+     * @param key - vertex's ID
+     * @return node_info || null (if none)
+     */
+    @Override
+    public node_info getNode(int key) {
+        int s = slotOf(key);
+        return s < 0 ? null : new Node(key, s);
+    }
+
+    /**
+     * Help function: the position of key among the neighbors of slot || -1 (if none).
+     */
+    private int find(int slot, int key) {
+        int[] a = nbr[slot];
+        for (int i = 0; i < degree[slot]; i++) if (a[i] == key) return i;
+        return -1;
+    }
+
+    /**
+     * Checks if there's an edge connecting two vertices, O(degree).
+     *
+     * @param node1 - first vertex
+     * @param node2 - second vertex
+     * @return boolean (true/false)
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        if (node1 == node2) return false;
+        int a = slotOf(node1);
+        return a >= 0 && slotOf(node2) >= 0 && find(a, node2) >= 0;
+    }
+
+    /**
+     * Return the weight of the edge between two vertices.
+     * If no such edge --> return -1
+     *
+     * @param node1
+     * @param node2
+     * @return double
+     */
+    @Override
+    public double getEdge(int node1, int node2) {
+        if (node1 == node2) return -1;
+        int a = slotOf(node1);
+        if (a < 0 || slotOf(node2) < 0) return -1;
+        int i = find(a, node2);
+        return i < 0 ? -1 : weight[a][i];
+    }
+
+    /**
+     * Adds a new vertex to the graph with the given key.
+     *
+     * @param key
+     */
+    @Override
+    public void addNode(int key) {
+        if (slotOf(key) >= 0) return;
+        if (v_size == keys.length) {
+            int cap = keys.length * 2;
+            keys = Arrays.copyOf(keys, cap);
+            infos = Arrays.copyOf(infos, cap);
+            degree = Arrays.copyOf(degree, cap);
+            tags = Arrays.copyOf(tags, cap);
+            nbr = Arrays.copyOf(nbr, cap);
+            weight = Arrays.copyOf(weight, cap);
+        }
+        if (2 * (v_size + 1) > table.length) {
+            table = new int[table.length * 2];
+            for (int s = 0; s < v_size; s++) index(keys[s], s);
+        }
+        int s = v_size++;
+        keys[s] = key;
+        infos[s] = 0;
+        tags[s] = 0;
+        degree[s] = 0;
+        nbr[s] = null;
+        weight[s] = null;
+        index(key, s);
+        mc++;
+    }
+
+    /**
+     * Connects between two vertices (with an edge with weight >= 0).
+     *
+     * @param node1 - first vertex
+     * @param node2 - second vertex
+     */
+    @Override
+    public void connect(int node1, int node2, double w) {
+        if (w < 0 || node1 == node2) return;
+        int a = slotOf(node1), b = slotOf(node2);
+        if (a < 0 || b < 0) return;
+        int i = find(a, node2);
+        if (i < 0) {
+            append(a, node2, w);
+            append(b, node1, w);
+            e_size++;
+            mc++;
+        } else if (weight[a][i] != w) {
+            weight[a][i] = w;
+            weight[b][find(b, node1)] = w;
+            mc++;
+        }
+    }
+
+    private void append(int slot, int key, double w) {
+        int d = degree[slot];
+        if (nbr[slot] == null) {
+            nbr[slot] = new int[4];
+            weight[slot] = new double[4];
+        } else if (d == nbr[slot].length) {
+            nbr[slot] = Arrays.copyOf(nbr[slot], d * 2);
+            weight[slot] = Arrays.copyOf(weight[slot], d * 2);
+        }
+        nbr[slot][d] = key;
+        weight[slot][d] = w;
+        degree[slot]++;
+    }
+
+    /**
+     * Help function: removes the i-th neighbor of slot (the last one takes its place).
+     */
+    private void unlink(int slot, int i) {
+        int last = --degree[slot];
+        nbr[slot][i] = nbr[slot][last];
+        weight[slot][i] = weight[slot][last];
+    }
+
+    /**
+     * Returns the vertices of the graph (a view, the vertices are made while iterating).
+     *
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV() {
+        return new AbstractCollection<node_info>() {
+            @Override
+            public Iterator<node_info> iterator() {
+                return new Iterator<node_info>() {
+                    private int s = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return s < v_size;
+                    }
+
+                    @Override
+                    public node_info next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return new Node(keys[s], s++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return v_size;
+            }
+        };
+    }
+
+    /**
+     * Returns the neighbors of the vertex (a copy).
+     *
+     * @param node_id - vertex's ID
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV(int node_id) {
+        int s = slotOf(node_id);
+        if (s < 0) return new ArrayList<>();
+        final int[] ni = Arrays.copyOf(nbr[s] == null ? new int[0] : nbr[s], degree[s]);
+        return new AbstractCollection<node_info>() {
+            @Override
+            public Iterator<node_info> iterator() {
+                return new Iterator<node_info>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < ni.length;
+                    }
+
+                    @Override
+                    public node_info next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return new Node(ni[i++], 0);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ni.length;
+            }
+        };
+    }
+
+    /**
+     * Delete the node (with the given ID) from the graph -
+     * and removes all edges connected to this node.
+     *
+     * @param key
+     * @return node_info || null (if none) - a detached copy of the vertex
+     */
+    @Override
+    public node_info removeNode(int key) {
+        int s = slotOf(key);
+        if (s < 0) return null;
+        for (int i = 0; i < degree[s]; i++) {
+            int b = slotOf(nbr[s][i]);
+            unlink(b, find(b, key));
+            e_size--;
+            mc++;
+        }
+        node_info removed = new Removed(key, dictionary.get(infos[s]), tags[s]);
+        unindex(key);
+        int last = --v_size;
+        if (s != last) {
+            table[positionOf(keys[last])] = s + 1;
+            keys[s] = keys[last];
+            infos[s] = infos[last];
+            tags[s] = tags[last];
+            degree[s] = degree[last];
+            nbr[s] = nbr[last];
+            weight[s] = weight[last];
+        }
+        nbr[last] = null;
+        weight[last] = null;
+        mc++;
+        return removed;
+    }
+
+    /**
+     * Deletes the edge between two vertices.
+     *
+     * @param node1 - first vertex
+     * @param node2 - second vertex
+     */
+    @Override
+    public void removeEdge(int node1, int node2) {
+        if (node1 == node2) return;
+        int a = slotOf(node1), b = slotOf(node2);
+        if (a < 0 || b < 0) return;
+        int i = find(a, node2);
+        if (i < 0) return;
+        unlink(a, i);
+        unlink(b, find(b, node1));
+        e_size--;
+        mc++;
+    }
+
+    /**
+     * @return the number of vertices in the graph
+     */
+    @Override
+    public int nodeSize() {
+        return v_size;
+    }
+
+    /**
+     * @return the number of edges in the graph
+     */
+    @Override
+    public int edgeSize() {
+        return e_size;
+    }
+
+    /**
+     * @return the number of changes made to the graph
+     */
+    @Override
+    public int getMC() {
+        return mc;
+    }
+
+    /**
+     * Checks if two graphs are equal (same sizes and edges, as WGraph_DS.equals).
+     *
+     * @param o
+     * @return boolean
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        weighted_graph g;
+        if (o instanceof weighted_graph) g = (weighted_graph) o;
+        else if (o instanceof weighted_graph_algorithms) g = ((weighted_graph_algorithms) o).getGraph();
+        else return false;
+        if (e_size != g.edgeSize() || v_size != g.nodeSize()) return false;
+        for (int s = 0; s < v_size; s++) {
+            for (int i = 0; i < degree[s]; i++) {
+                if (g.getEdge(keys[s], nbr[s][i]) != weight[s][i]) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(v_size, e_size, mc);
+    }
+
+    /**
+     * Represents the graph as a string.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        int[] sorted = Arrays.copyOf(keys, v_size);
+        Arrays.sort(sorted);
+        LinkedList<String> edges = new LinkedList<>();
+        for (int key : sorted) {
+            int s = slotOf(key);
+            for (int i = 0; i < degree[s]; i++) edges.add("{" + key + "," + nbr[s][i] + ";" + weight[s][i] + "}");
+        }
+        return "Ver: " + Arrays.toString(sorted) + "\n" + edges.toString();
+    }
+}
@@ -0,0 +1,425 @@
+package ex1.src;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class represents a compressed on-disk format of an undirectional weighted graph.
+ * File layout:
+ * 0. Header - magic, version, |V|, |E|, mode count (MC), weight encoding, block size
+ * (version 1 files have no mode count)
+ * 1. Weights dictionary (only for the DICT encoding)
+ * 2. Sorted vertex keys - delta + varint encoded, deflated
+ * 3. Blocks of BLOCK_SIZE vertices - for every vertex: degree, sorted neighbor keys
+ * (delta + varint encoded) and the edge weights, each block deflated on its own
+ * 4. Block index - the offset and sizes of every block, followed by the index position
+ *
+ * Weights are stored as raw doubles, as dictionary indexes (when there are few distinct weights)
+ * or quantized to floats (optional, lossy).
+ * An instance of this class opens a saved file and decodes neighbor lists lazily,
+ * one block at a time.
+ */
+
+public class WGraph_Compressed implements Closeable {
+
+    public static final int MAGIC = 0x57474331; // "WGC1"
+    public static final byte RAW = 0, DICT = 1, FLOAT = 2;
+    private static final byte VERSION = 2;
+    private static final int BLOCK_SIZE = 256;
+    private static final int MAX_DICT = 1 << 16;
+
+    private final FileChannel channel;
+    private final int vSize, eSize, mc, blockSize;
+    private final byte encoding;
+    private final double[] dict;
+    private final int[] keys;
+    private final long[] blockOffset;
+    private final int[] blockLength, blockRawLength;
+
+    // The last decoded block:
+    private int cachedBlock = -1;
+    private int[] cachedStart, cachedNi;
+    private double[] cachedW;
+
+    /**
+     * Opens a compressed graph file, reads its header, keys and block index
+     * (the blocks themselves are decoded on demand).
+     *
+     * @param file - file name
+     * @throws IOException - if the file can't be read or isn't a compressed graph
+     */
+    public WGraph_Compressed(String file) throws IOException {
+        channel = FileChannel.open(new File(file).toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, 22);
+            byte version = header.getInt() == MAGIC ? header.get() : 0;
+            if (version != 1 && version != VERSION) throw new IOException("Not a compressed graph: " + file);
+            vSize = header.getInt();
+            eSize = header.getInt();
+            mc = version == 1 ? -1 : header.getInt();
+            encoding = header.get();
+            blockSize = header.getInt();
+            long pos = version == 1 ? 18 : 22;
+            if (encoding == DICT) {
+                int count = read(pos, 4).getInt();
+                ByteBuffer b = read(pos + 4, count * 8L);
+                dict = new double[count];
+                for (int i = 0; i < count; i++) dict[i] = b.getDouble();
+                pos += 4 + count * 8L;
+            } else dict = null;
+            ByteBuffer k = read(pos, 8);
+            int rawLen = k.getInt(), compLen = k.getInt();
+            ByteBuffer keyBytes = ByteBuffer.wrap(inflate(read(pos + 8, compLen), rawLen));
+            keys = new int[vSize];
+            long prev = 0;
+            for (int i = 0; i < vSize; i++) {
+                prev += unZigZag(readVarLong(keyBytes));
+                keys[i] = (int) prev;
+            }
+            long indexPos = read(channel.size() - 8, 8).getLong();
+            ByteBuffer index = read(indexPos, channel.size() - 8 - indexPos);
+            int blocks = index.getInt();
+            blockOffset = new long[blocks];
+            blockLength = new int[blocks];
+            blockRawLength = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                blockOffset[i] = index.getLong();
+                blockLength[i] = index.getInt();
+                blockRawLength[i] = index.getInt();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    /**
+     * Checks whether the given file starts with the compressed graph's magic number.
+     *
+     * @param file - file name
+     * @return boolean (true/false)
+     */
+    public static boolean isCompressed(String file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Saves the given graph to the given file in the compressed format.
+     *
+     * @param g        - the graph
+     * @param file     - the file name (may include a relative path).
+     * @param quantize - if true and the weights can't be dictionary encoded, they are stored as floats
+     * @throws IOException
+     */
+    public static void write(weighted_graph g, String file, boolean quantize) throws IOException {
+        int n = g.nodeSize();
+        int[] sorted = new int[n];
+        int i = 0;
+        for (node_info v : g.getV()) sorted[i++] = v.getKey();
+        Arrays.sort(sorted);
+
+        // Chooses the weights encoding:
+        HashMap<Double, Integer> dictIndex = new HashMap<>();
+        for (node_info v : g.getV()) {
+            for (node_info ni : g.getV(v.getKey())) {
+                if (dictIndex.size() > MAX_DICT) break;
+                dictIndex.putIfAbsent(g.getEdge(v.getKey(), ni.getKey()), dictIndex.size());
+            }
+        }
+        byte encoding = dictIndex.size() <= MAX_DICT ? DICT : quantize ? FLOAT : RAW;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            long pos = 0;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(n);
+            out.writeInt(g.edgeSize());
+            out.writeInt(g.getMC());
+            out.writeByte(encoding);
+            out.writeInt(BLOCK_SIZE);
+            pos += 22;
+            if (encoding == DICT) {
+                double[] values = new double[dictIndex.size()];
+                for (Map.Entry<Double, Integer> e : dictIndex.entrySet()) values[e.getValue()] = e.getKey();
+                out.writeInt(values.length);
+                for (double w : values) out.writeDouble(w);
+                pos += 4 + values.length * 8L;
+            }
+
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            long prev = 0;
+            for (int key : sorted) {
+                writeVarLong(raw, zigZag(key - prev));
+                prev = key;
+            }
+            byte[] comp = deflate(raw.toByteArray());
+            out.writeInt(raw.size());
+            out.writeInt(comp.length);
+            out.write(comp);
+            pos += 8 + comp.length;
+
+            int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            long[] offsets = new long[blocks];
+            int[] lengths = new int[blocks], rawLengths = new int[blocks];
+            int[] ni = new int[16];
+            for (int b = 0; b < blocks; b++) {
+                raw.reset();
+                for (int v = b * BLOCK_SIZE; v < Math.min(n, (b + 1) * BLOCK_SIZE); v++) {
+                    int key = sorted[v];
+                    Collection<node_info> neighbors = g.getV(key);
+                    if (ni.length < neighbors.size()) ni = new int[neighbors.size()];
+                    int deg = 0;
+                    for (node_info u : neighbors) ni[deg++] = u.getKey();
+                    Arrays.sort(ni, 0, deg);
+                    writeVarLong(raw, deg);
+                    prev = key;
+                    for (int j = 0; j < deg; j++) {
+                        writeVarLong(raw, zigZag(ni[j] - prev));
+                        prev = ni[j];
+                    }
+                    for (int j = 0; j < deg; j++) {
+                        double w = g.getEdge(key, ni[j]);
+                        if (encoding == DICT) writeVarLong(raw, dictIndex.get(w));
+                        else if (encoding == FLOAT) writeInt(raw, Float.floatToIntBits((float) w));
+                        else writeLong(raw, Double.doubleToLongBits(w));
+                    }
+                }
+                comp = deflate(raw.toByteArray());
+                offsets[b] = pos;
+                lengths[b] = comp.length;
+                rawLengths[b] = raw.size();
+                out.write(comp);
+                pos += comp.length;
+            }
+
+            out.writeInt(blocks);
+            for (int b = 0; b < blocks; b++) {
+                out.writeLong(offsets[b]);
+                out.writeInt(lengths[b]);
+                out.writeInt(rawLengths[b]);
+            }
+            out.writeLong(pos);
+        }
+    }
+
+    /**
+     * @return the number of vertices in the saved graph
+     */
+    public int nodeSize() {
+        return vSize;
+    }
+
+    /**
+     * @return the number of edges in the saved graph
+     */
+    public int edgeSize() {
+        return eSize;
+    }
+
+    /**
+     * @return the mode count of the saved graph || -1 (if the file doesn't keep it)
+     */
+    public int getMC() {
+        return mc;
+    }
+
+    /**
+     * @return the weights encoding (RAW, DICT or FLOAT)
+     */
+    public byte getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the sorted neighbor keys of the given vertex (decodes only its block).
+     *
+     * @param key - vertex's ID
+     * @return int[] || null (if the vertex doesn't exist)
+     */
+    public int[] neighbors(int key) throws IOException {
+        int v = Arrays.binarySearch(keys, key);
+        if (v < 0) return null;
+        decodeBlock(v / blockSize);
+        int i = v % blockSize;
+        return Arrays.copyOfRange(cachedNi, cachedStart[i], cachedStart[i + 1]);
+    }
+
+    /**
+     * Returns the weights of the edges of the given vertex,
+     * in the same order as neighbors(key).
+     *
+     * @param key - vertex's ID
+     * @return double[] || null (if the vertex doesn't exist)
+     */
+    public double[] weights(int key) throws IOException {
+        int v = Arrays.binarySearch(keys, key);
+        if (v < 0) return null;
+        decodeBlock(v / blockSize);
+        int i = v % blockSize;
+        return Arrays.copyOfRange(cachedW, cachedStart[i], cachedStart[i + 1]);
+    }
+
+    /**
+     * Decodes the whole file into a new WGraph_DS, with the saved mode count
+     * (so the write-ahead log replays on it as on the original).
+     *
+     * @return weighted_graph
+     */
+    public weighted_graph toGraph() throws IOException {
+        WGraph_DS g = new WGraph_DS();
+        for (int key : keys) g.addNode(key);
+        for (int b = 0; b < blockOffset.length; b++) {
+            decodeBlock(b);
+            for (int i = 0; i + 1 < cachedStart.length && b * blockSize + i < vSize; i++) {
+                int key = keys[b * blockSize + i];
+                for (int j = cachedStart[i]; j < cachedStart[i + 1]; j++) {
+                    if (cachedNi[j] > key) g.connect(key, cachedNi[j], cachedW[j]);
+                }
+            }
+        }
+        if (mc >= 0) g.setMC(mc);
+        return g;
+    }
+
+    /**
+     * Help function: decodes a single block into the block cache.
+     *
+     * @param b - block number
+     */
+    private void decodeBlock(int b) throws IOException {
+        if (b == cachedBlock) return;
+        ByteBuffer buf = ByteBuffer.wrap(inflate(read(blockOffset[b], blockLength[b]), blockRawLength[b]));
+        int count = Math.min(blockSize, vSize - b * blockSize);
+        int[] start = new int[count + 1];
+        int[] ni = new int[16];
+        double[] w = new double[16];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            int deg = (int) readVarLong(buf);
+            if (ni.length < total + deg) {
+                int cap = Math.max(ni.length * 2, total + deg);
+                ni = Arrays.copyOf(ni, cap);
+                w = Arrays.copyOf(w, cap);
+            }
+            long prev = keys[b * blockSize + i];
+            for (int j = 0; j < deg; j++) {
+                prev += unZigZag(readVarLong(buf));
+                ni[total + j] = (int) prev;
+            }
+            for (int j = 0; j < deg; j++) {
+                if (encoding == DICT) w[total + j] = dict[(int) readVarLong(buf)];
+                else if (encoding == FLOAT) w[total + j] = Float.intBitsToFloat(buf.getInt());
+                else w[total + j] = Double.longBitsToDouble(buf.getLong());
+            }
+            total += deg;
+            start[i + 1] = total;
+        }
+        cachedBlock = b;
+        cachedStart = start;
+        cachedNi = ni;
+        cachedW = w;
+    }
+
+    /**
+     * Closes the underlying file.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Help function: reads len bytes from the given position of the file.
+     */
+    private ByteBuffer read(long pos, long len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) len);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) throw new EOFException();
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buf = new byte[8192];
+        while (!deflater.finished()) {
+            int len = deflater.deflate(buf);
+            out.write(buf, 0, len);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(ByteBuffer comp, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(comp.array(), comp.arrayOffset() + comp.position(), comp.remaining());
+        byte[] raw = new byte[rawLength];
+        try {
+            int off = 0;
+            while (off < rawLength && !inflater.finished()) {
+                int len = inflater.inflate(raw, off, rawLength - off);
+                if (len == 0 && inflater.needsInput()) throw new EOFException("Truncated block");
+                off += len;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(ByteBuffer buf) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return v;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long v) {
+        writeInt(out, (int) (v >>> 32));
+        writeInt(out, (int) v);
+    }
+}
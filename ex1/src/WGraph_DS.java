@@ -16,6 +16,8 @@ public class WGraph_DS implements weighted_graph, Serializable {
     private int mc = 0;
     private HashMap<Integer, node_info> vertices;
     private HashMap<Integer, HashMap<Integer, Double>> edges;
+    private transient WGraph_Journal journal;
+    private transient graph_listener[] listeners;
 
     // Default constructor:
     public WGraph_DS() {
@@ -180,6 +182,8 @@ public class WGraph_DS implements weighted_graph, Serializable {
             vertices.put(key, new NodeInfo(key));
             v_size++;
             mc++;
+            if (journal != null) journal.append(WGraph_Journal.ADD_NODE, key, key, 0, mc);
+            if (listeners != null) for (graph_listener l : listeners) l.nodeAdded(key);
         }
     }
 
@@ -199,10 +203,14 @@ public class WGraph_DS implements weighted_graph, Serializable {
             connectDirection(node2, node1, w);
             e_size++;
             mc++;
+            if (journal != null) journal.append(WGraph_Journal.CONNECT, node1, node2, w, mc);
+            if (listeners != null) for (graph_listener l : listeners) l.edgeChanged(node1, node2, -1, w);
         } else if (w != getEdge(node1, node2)) {
-            edges.get(node1).put(node2, w);
+            double old = edges.get(node1).put(node2, w);
             edges.get(node2).put(node1, w);
             mc++;
+            if (journal != null) journal.append(WGraph_Journal.CONNECT, node1, node2, w, mc);
+            if (listeners != null) for (graph_listener l : listeners) l.edgeChanged(node1, node2, old, w);
         }
     }
 
@@ -249,6 +257,17 @@ public class WGraph_DS implements weighted_graph, Serializable {
         return list;
     }
 
+    /**
+     * Help function: the neighbors of the vertex and the weights of its edges, as kept by the graph
+     * (not a copy - it must not be changed), for a walk over the edges without building collections.
+     *
+     * @param node_id - the vertex's key
+     * @return HashMap - neighbor's key --> weight || null (if the vertex has no edges)
+     */
+    HashMap<Integer, Double> neighbors(int node_id) {
+        return edges.get(node_id);
+    }
+
     /**
      * Delete the node (with the given ID) from the graph -
      * and removes all edges connected to this node.
@@ -264,7 +283,10 @@ public class WGraph_DS implements weighted_graph, Serializable {
         }
         v_size--;
         mc++;
-        return vertices.remove(key);
+        if (journal != null) journal.append(WGraph_Journal.REMOVE_NODE, key, key, 0, mc);
+        node_info ans = vertices.remove(key);
+        if (listeners != null) for (graph_listener l : listeners) l.nodeRemoved(key);
+        return ans;
     }
 
     /**
@@ -277,10 +299,12 @@ public class WGraph_DS implements weighted_graph, Serializable {
     public void removeEdge(int node1, int node2) {
         if (node1 == node2) return;
         if (!hasEdge(node1, node2)) return;
-        edges.get(node1).remove(node2);
+        double old = edges.get(node1).remove(node2);
         edges.get(node2).remove(node1);
         e_size--;
         mc++;
+        if (journal != null) journal.append(WGraph_Journal.REMOVE_EDGE, node1, node2, 0, mc);
+        if (listeners != null) for (graph_listener l : listeners) l.edgeRemoved(node1, node2, old);
     }
 
     /**
@@ -291,6 +315,125 @@ public class WGraph_DS implements weighted_graph, Serializable {
         return v_size;
     }
 
+    /**
+     * Applies a batch of operations (codes of WGraph_Journal: ADD_NODE, REMOVE_NODE, CONNECT, REMOVE_EDGE),
+     * with the same result as calling the matching methods in order, but the mode count grows only by one.
+     * The edge operations between two vertex operations are validated in one pass, split into their two
+     * directions, grouped by vertex (keeping their order) and applied vertex by vertex -
+     * on all the cores if parallel, as every vertex's neighbors map is touched by one thread only.
+     * If a journal or a listener is attached, the operations are applied one by one (to report each of them).
+     *
+     * @param ops      - the operation codes
+     * @param node1    - the first vertex (the vertex, for vertex operations)
+     * @param node2    - the second vertex
+     * @param w        - the weights (CONNECT)
+     * @param size     - the number of operations in the arrays
+     * @param parallel - whether to apply the edge operations in parallel
+     * @return the number of operations which changed the graph
+     */
+    public int applyBatch(byte[] ops, int[] node1, int[] node2, double[] w, int size, boolean parallel) {
+        int changed = 0;
+        if (journal != null || listeners != null) {
+            for (int i = 0; i < size; i++) {
+                int before = mc;
+                apply(ops[i], node1[i], node2[i], w[i]);
+                if (mc != before) changed++;
+            }
+            return changed;
+        }
+        int before = mc;
+        int from = 0;
+        for (int i = 0; i <= size; i++) {
+            if (i < size && (ops[i] == WGraph_Journal.CONNECT || ops[i] == WGraph_Journal.REMOVE_EDGE)) continue;
+            // The edge operations from..i-1 commute with each other except on the same edge
+            changed += applyEdges(ops, node1, node2, w, from, i, parallel);
+            if (i < size) {
+                int mcBefore = mc;
+                apply(ops[i], node1[i], node2[i], w[i]);
+                if (mc != mcBefore) changed++;
+            }
+            from = i + 1;
+        }
+        mc = before + (changed > 0 ? 1 : 0);
+        return changed;
+    }
+
+    /**
+     * Help function: applies a single operation by its code.
+     */
+    private void apply(byte op, int node1, int node2, double w) {
+        if (op == WGraph_Journal.ADD_NODE) addNode(node1);
+        else if (op == WGraph_Journal.REMOVE_NODE) removeNode(node1);
+        else if (op == WGraph_Journal.CONNECT) connect(node1, node2, w);
+        else if (op == WGraph_Journal.REMOVE_EDGE) removeEdge(node1, node2);
+    }
+
+    /**
+     * Help function: applies the edge operations from..to-1 grouped by vertex.
+     *
+     * @return the number of operations which changed the graph
+     */
+    private int applyEdges(byte[] ops, int[] node1, int[] node2, double[] w, int from, int to, boolean parallel) {
+        if (from >= to) return 0;
+        // Validation: both directions of every valid operation, sorted by (vertex, operation's index)
+        long[] half = new long[2 * (to - from)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int a = node1[i], b = node2[i];
+            if (a == b || !vertices.containsKey(a) || !vertices.containsKey(b)) continue;
+            if (ops[i] == WGraph_Journal.CONNECT && w[i] < 0) continue;
+            half[count++] = ((long) a << 32) | (2 * (i - from));
+            half[count++] = ((long) b << 32) | (2 * (i - from) + 1);
+        }
+        if (count == 0) return 0;
+        Arrays.sort(half, 0, count);
+        int groups = 0;
+        int[] start = new int[count + 1];
+        for (int j = 0; j < count; j++) {
+            if (j == 0 || (half[j] >> 32) != (half[j - 1] >> 32)) start[groups++] = j;
+            // The neighbors maps are created up front (as connectDirection would), so the threads only read edges
+            int v = (int) (half[j] >> 32);
+            if (ops[from + (int) half[j] / 2] == WGraph_Journal.CONNECT && edges.get(v) == null) {
+                edges.put(v, new HashMap<Integer, Double>());
+            }
+        }
+        start[groups] = count;
+        // [changed operations, edge count delta], counted on the direction from the smaller vertex
+        final long[] totals = new long[2];
+        final long[] halves = half;
+        WGraph_Parallel.Chunk body = (g0, g1) -> {
+            long changedOps = 0, delta = 0;
+            for (int g = g0; g < g1; g++) {
+                HashMap<Integer, Double> map = edges.get((int) (halves[start[g]] >> 32));
+                if (map == null) continue;
+                for (int j = start[g]; j < start[g + 1]; j++) {
+                    int seq = (int) halves[j], i = from + seq / 2;
+                    int self = (int) (halves[j] >> 32), other = seq % 2 == 0 ? node2[i] : node1[i];
+                    Double old;
+                    boolean change;
+                    if (ops[i] == WGraph_Journal.CONNECT) {
+                        old = map.put(other, w[i]);
+                        change = old == null || old != w[i];
+                        if (old == null && self < other) delta++;
+                    } else {
+                        old = map.remove(other);
+                        change = old != null;
+                        if (old != null && self < other) delta--;
+                    }
+                    if (change && self < other) changedOps++;
+                }
+            }
+            synchronized (totals) {
+                totals[0] += changedOps;
+                totals[1] += delta;
+            }
+        };
+        if (parallel) WGraph_Parallel.forChunks(groups, WGraph_Parallel.threads(), body);
+        else body.run(0, groups);
+        e_size += (int) totals[1];
+        return (int) totals[0];
+    }
+
     /**
      * @return edges - the number of edges in the graph
      */
@@ -307,6 +450,68 @@ public class WGraph_DS implements weighted_graph, Serializable {
         return mc;
     }
 
+    /**
+     * Help function: sets the mode count of a rebuilt copy of a graph (see WGraph_Image),
+     * so the write-ahead log replays on it as on the original.
+     *
+     * @param mc - the original graph's mode count
+     */
+    void setMC(int mc) {
+        this.mc = mc;
+    }
+
+    /**
+     * Returns the mutation journal of this graph.
+     *
+     * @return WGraph_Journal || null (if journaling is off)
+     */
+    public WGraph_Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the mutation journal of this graph, every change made to the graph
+     * from now on is appended to it (null turns journaling off).
+     * The journal isn't serialized with the graph.
+     *
+     * @param journal
+     */
+    public void setJournal(WGraph_Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Registers a listener which is called after every change of the graph.
+     * Listeners aren't serialized with the graph.
+     *
+     * @param l
+     */
+    public void addListener(graph_listener l) {
+        if (listeners == null) listeners = new graph_listener[]{l};
+        else {
+            listeners = Arrays.copyOf(listeners, listeners.length + 1);
+            listeners[listeners.length - 1] = l;
+        }
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param l
+     */
+    public void removeListener(graph_listener l) {
+        if (listeners == null) return;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == l) {
+                graph_listener[] rest = new graph_listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, rest, 0, i);
+                System.arraycopy(listeners, i + 1, rest, i, rest.length - i);
+                listeners = rest.length == 0 ? null : rest;
+                return;
+            }
+        }
+    }
+
     /**
      * Checks if two graphs are equal.
      * basically checks if all the vertices and edges exist
@@ -322,7 +527,7 @@ public class WGraph_DS implements weighted_graph, Serializable {
 
         weighted_graph g = new WGraph_DS();
         if (o instanceof weighted_graph) {
-            g = (WGraph_DS) o;
+            g = (weighted_graph) o;
         }
         if (o instanceof weighted_graph_algorithms) {
             g = ((weighted_graph_algorithms) o).getGraph();
@@ -0,0 +1,172 @@
+package ex1.src;
+
+import ex1.src.WGraph_Util.IntList;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents the parallel delta-stepping single source shortest paths algorithm
+ * (Meyer & Sanders). The tentative distances are kept in buckets of width delta:
+ * the lowest non-empty bucket is settled by relaxing its light edges (w <= delta) in parallel
+ * rounds until it stays empty, then the heavy edges (w > delta) of all the vertices settled
+ * in it are relaxed in parallel as well. Relaxations are lock free (CAS on the distance).
+ *
+ * With delta = 0 it behaves like Dijkstra, with delta = infinity like Bellman-Ford;
+ * autoDelta() picks a value from the weights distribution.
+ */
+
+public class WGraph_DeltaStepping {
+
+    private static final long INF = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+
+    /**
+     * Chooses delta as the maximal weight divided by the average degree
+     * (the classic choice for random weights).
+     *
+     * @param g - the graph
+     * @return double (> 0)
+     */
+    public static double autoDelta(WGraph_CSR g) {
+        int half = g.off[g.n];
+        if (half == 0) return 1;
+        double max = 0;
+        for (int e = 0; e < half; e++) max = Math.max(max, g.w[e]);
+        double avgDegree = (double) half / g.n;
+        double delta = max / Math.max(1, avgDegree);
+        return delta > 0 ? delta : 1;
+    }
+
+    /**
+     * Computes the distances from src to all the vertices with delta = autoDelta(g).
+     *
+     * @param g       - the graph
+     * @param src     - the source's index (see WGraph_CSR.indexOf)
+     * @param threads - the number of threads
+     * @return double[] - the distance of every vertex by index (-1 if unreachable)
+     */
+    public static double[] distances(WGraph_CSR g, int src, int threads) {
+        return distances(g, src, autoDelta(g), threads);
+    }
+
+    /**
+     * Computes the distances from src to all the vertices.
+     *
+     * @param g       - the graph
+     * @param src     - the source's index (see WGraph_CSR.indexOf)
+     * @param delta   - the buckets' width (> 0)
+     * @param threads - the number of threads
+     * @return double[] - the distance of every vertex by index (-1 if unreachable)
+     */
+    public static double[] distances(WGraph_CSR g, int src, double delta, int threads) {
+        if (delta <= 0) throw new IllegalArgumentException("delta must be positive");
+        final int n = g.n;
+        final int[] off = g.off, ni = g.ni;
+        final double[] w = g.w;
+        final AtomicLongArray dist = new AtomicLongArray(n);
+        for (int v = 0; v < n; v++) dist.set(v, INF);
+        // round[v] - the last light round v was taken in, inBucket[v] - the last bucket v was settled in
+        final long[] round = new long[n], inBucket = new long[n];
+        Arrays.fill(round, -1);
+        Arrays.fill(inBucket, -1);
+        TreeMap<Long, IntList> buckets = new TreeMap<>();
+        dist.set(src, Double.doubleToLongBits(0));
+        bucket(buckets, 0).add(src);
+
+        int[] frontier = new int[16];
+        IntList removed = new IntList();
+        IntList[] found = new IntList[threads * 4 + 1];
+        for (int i = 0; i < found.length; i++) found[i] = new IntList();
+        long rounds = 0;
+
+        while (!buckets.isEmpty()) {
+            Map.Entry<Long, IntList> first = buckets.pollFirstEntry();
+            final long index = first.getKey();
+            IntList current = first.getValue();
+            removed.size = 0;
+            while (current.size > 0) {
+                // Takes the vertices which still belong to this bucket (each once per round),
+                // a vertex may come back in a later round if its distance dropped again
+                int size = 0;
+                if (frontier.length < current.size) frontier = new int[Math.max(current.size, frontier.length * 2)];
+                for (int i = 0; i < current.size; i++) {
+                    int v = current.data[i];
+                    if (bucketOf(dist.get(v), delta) != index || round[v] == rounds) continue;
+                    round[v] = rounds;
+                    frontier[size++] = v;
+                    if (inBucket[v] != index) {
+                        inBucket[v] = index;
+                        removed.add(v);
+                    }
+                }
+                rounds++;
+                relax(frontier, size, off, ni, w, dist, delta, true, threads, found);
+                current = new IntList();
+                for (IntList f : found) {
+                    for (int i = 0; i < f.size; i++) {
+                        int v = f.data[i];
+                        long b = bucketOf(dist.get(v), delta);
+                        if (b == index) current.add(v);
+                        else bucket(buckets, b).add(v);
+                    }
+                    f.size = 0;
+                }
+            }
+            relax(removed.data, removed.size, off, ni, w, dist, delta, false, threads, found);
+            for (IntList f : found) {
+                for (int i = 0; i < f.size; i++) {
+                    int v = f.data[i];
+                    bucket(buckets, bucketOf(dist.get(v), delta)).add(v);
+                }
+                f.size = 0;
+            }
+        }
+        double[] ans = new double[n];
+        for (int v = 0; v < n; v++) {
+            long d = dist.get(v);
+            ans[v] = d == INF ? -1 : Double.longBitsToDouble(d);
+        }
+        return ans;
+    }
+
+    /**
+     * Help function: relaxes the light (or heavy) edges of the given vertices in parallel,
+     * every chunk collects the vertices whose distance dropped into its own list.
+     */
+    private static void relax(int[] vertices, int size, int[] off, int[] ni, double[] w, AtomicLongArray dist,
+                              double delta, boolean light, int threads, IntList[] found) {
+        int chunks = Math.min(found.length, Math.max(1, size / 256));
+        int per = (size + chunks - 1) / Math.max(chunks, 1);
+        WGraph_Parallel.forEach(chunks, threads, 1, c -> {
+            IntList out = found[c];
+            for (int i = c * per; i < Math.min(size, (c + 1) * per); i++) {
+                int u = vertices[i];
+                double du = Double.longBitsToDouble(dist.get(u));
+                for (int e = off[u]; e < off[u + 1]; e++) {
+                    if ((w[e] <= delta) != light) continue;
+                    int v = ni[e];
+                    long nd = Double.doubleToLongBits(du + w[e]);
+                    while (true) {
+                        long cur = dist.get(v);
+                        // non negative doubles are ordered like their bits
+                        if (nd >= cur) break;
+                        if (dist.compareAndSet(v, cur, nd)) {
+                            out.add(v);
+                            break;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static long bucketOf(long bits, double delta) {
+        return (long) (Double.longBitsToDouble(bits) / delta);
+    }
+
+    private static IntList bucket(TreeMap<Long, IntList> buckets, long index) {
+        return buckets.computeIfAbsent(index, k -> new IntList());
+    }
+}
@@ -0,0 +1,226 @@
+package ex1.src;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class represents a shortest paths tree from a single source which is kept up to date
+ * while the graph changes (in the spirit of Ramalingam & Reps): it listens to the graph's
+ * mutations and repairs only the part of the tree which was affected:
+ * 0. Weight decrease / new edge - if the edge shortens the path of one of its endpoints,
+ * a Dijkstra starts from that endpoint and stops where the distances don't improve.
+ * 1. Weight increase / removed edge - only matters for a tree edge: the subtree below it is
+ * cut off, every vertex of the subtree takes its best distance through the rest of the tree,
+ * and a Dijkstra limited to the subtree fixes the distances inside it.
+ * 2. Non tree edges which became heavier are ignored.
+ *
+ * Only the reachable vertices are kept (distance & parent on the tree).
+ */
+
+public class WGraph_DynamicSSSP implements graph_listener {
+
+    private final WGraph_DS g;
+    private final int src;
+    private final HashMap<Integer, Double> dist = new HashMap<>();
+    private final HashMap<Integer, Integer> parent = new HashMap<>();
+    private final WGraph_Heap heap = new WGraph_Heap();
+    private int touched = 0;
+
+    /**
+     * Constructor: computes the tree from src and starts listening to the graph.
+     *
+     * @param g   - the graph
+     * @param src - the source's key
+     */
+    public WGraph_DynamicSSSP(WGraph_DS g, int src) {
+        this.g = g;
+        this.src = src;
+        recompute();
+        g.addListener(this);
+    }
+
+    /**
+     * Computes the whole tree from scratch (a full Dijkstra).
+     */
+    public void recompute() {
+        dist.clear();
+        parent.clear();
+        touched = 0;
+        if (g.getNode(src) == null) return;
+        dist.put(src, 0.0);
+        heap.push(0, src);
+        propagate();
+    }
+
+    /**
+     * Stops listening to the graph (the tree isn't updated anymore).
+     */
+    public void close() {
+        g.removeListener(this);
+    }
+
+    @Override
+    public void nodeAdded(int key) {
+        if (key == src) recompute();
+    }
+
+    @Override
+    public void nodeRemoved(int key) {
+        // The node's edges were removed first, so it was already cut off the tree
+        if (key == src) {
+            dist.clear();
+            parent.clear();
+        }
+    }
+
+    @Override
+    public void edgeChanged(int node1, int node2, double oldW, double w) {
+        touched = 0;
+        if (oldW < 0 || w < oldW) {
+            relax(node1, node2, w);
+            relax(node2, node1, w);
+            propagate();
+        } else cut(node1, node2);
+    }
+
+    @Override
+    public void edgeRemoved(int node1, int node2, double oldW) {
+        touched = 0;
+        cut(node1, node2);
+    }
+
+    /**
+     * Help function: if (u,v) is a tree edge, repairs the subtree below it.
+     */
+    private void cut(int u, int v) {
+        if (isParent(u, v)) repair(v);
+        else if (isParent(v, u)) repair(u);
+    }
+
+    /**
+     * Help function: repairs the subtree of root after the edge to its parent became heavier or was removed.
+     */
+    private void repair(int root) {
+        // 0. Collects the subtree (the children of a vertex are its neighbors which point at it)
+        ArrayList<Integer> affected = new ArrayList<>();
+        HashSet<Integer> in = new HashSet<>();
+        affected.add(root);
+        in.add(root);
+        for (int i = 0; i < affected.size(); i++) {
+            int y = affected.get(i);
+            for (node_info ni : g.getV(y)) {
+                int x = ni.getKey();
+                if (isParent(y, x) && in.add(x)) affected.add(x);
+            }
+        }
+        for (int x : affected) {
+            dist.remove(x);
+            parent.remove(x);
+        }
+        // 1. Every vertex of the subtree takes its best distance through the rest of the tree
+        for (int x : affected) {
+            double best = Double.POSITIVE_INFINITY;
+            int from = 0;
+            for (node_info ni : g.getV(x)) {
+                int z = ni.getKey();
+                Double dz = dist.get(z);
+                if (dz != null && dz + g.getEdge(x, z) < best) {
+                    best = dz + g.getEdge(x, z);
+                    from = z;
+                }
+            }
+            if (best < Double.POSITIVE_INFINITY) {
+                dist.put(x, best);
+                parent.put(x, from);
+                heap.push(best, x);
+            }
+        }
+        // 2. Fixes the distances inside the subtree (the rest of the tree can't improve)
+        touched += affected.size();
+        propagate();
+    }
+
+    /**
+     * Help function: relaxes the edge u --> v, queues v if its distance improved.
+     */
+    private void relax(int u, int v, double w) {
+        Double du = dist.get(u);
+        if (du == null) return;
+        Double dv = dist.get(v);
+        if (dv == null || du + w < dv) {
+            dist.put(v, du + w);
+            parent.put(v, u);
+            heap.push(du + w, v);
+        }
+    }
+
+    /**
+     * Help function: Dijkstra from the queued vertices.
+     */
+    private void propagate() {
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            Double cur = dist.get(u);
+            if (cur == null || du > cur) continue;
+            touched++;
+            for (node_info ni : g.getV(u)) {
+                int v = ni.getKey();
+                relax(u, v, g.getEdge(u, v));
+            }
+        }
+    }
+
+    private boolean isParent(int p, int v) {
+        Integer q = parent.get(v);
+        return q != null && q == p;
+    }
+
+    /**
+     * Returns the distance from the source.
+     *
+     * @param key - the vertex
+     * @return double || -1 (if unreachable)
+     */
+    public double getDist(int key) {
+        Double d = dist.get(key);
+        return d == null ? -1 : d;
+    }
+
+    /**
+     * Returns the shortest path from the source as an ordered list of vertices.
+     *
+     * @param dest - end (target) node
+     * @return List<node_info> || null (if unreachable)
+     */
+    public List<node_info> getPath(int dest) {
+        if (!dist.containsKey(dest)) return null;
+        LinkedList<node_info> path = new LinkedList<>();
+        for (Integer v = dest; v != null; v = parent.get(v)) path.addFirst(g.getNode(v));
+        return path;
+    }
+
+    /**
+     * @return the source's key
+     */
+    public int getSrc() {
+        return src;
+    }
+
+    /**
+     * @return the number of reachable vertices
+     */
+    public int size() {
+        return dist.size();
+    }
+
+    /**
+     * @return the number of vertices the last update went through (to see how local it was)
+     */
+    public int getTouched() {
+        return touched;
+    }
+}
@@ -0,0 +1,162 @@
+package ex1.src;
+
+/**
+ * This class represents a stream of typed mutation events of a WGraph_DS, delivered in batches:
+ * 0. ADD_NODE(key)
+ * 1. REMOVE_NODE(key) - preceded by a REMOVE_EDGE event for each of its edges
+ * 2. NEW_EDGE(node1, node2, w)
+ * 3. REWEIGHT(node1, node2, oldW, w)
+ * 4. REMOVE_EDGE(node1, node2, oldW)
+ * Every event also holds the graph's mc right after the change.
+ *
+ * The events are buffered in primitive arrays (no object per event) and handed to the consumer
+ * once the buffer is full, or when flush() is called.
+ * A graph without streams (or listeners) only pays a null check per change.
+ */
+
+public class WGraph_EventStream implements graph_listener {
+
+    public static final byte ADD_NODE = 0, REMOVE_NODE = 1, NEW_EDGE = 2, REWEIGHT = 3, REMOVE_EDGE = 4;
+
+    private final WGraph_DS g;
+    private final graph_batch_listener consumer;
+    private final byte[] ops;
+    private final int[] src, dest, mcs;
+    private final double[] oldWeights, weights;
+    private int size = 0;
+    private long delivered = 0;
+
+    /**
+     * Constructor: starts listening to the graph.
+     *
+     * @param g        - the graph
+     * @param capacity - the batch size
+     * @param consumer - receives the batches
+     */
+    public WGraph_EventStream(WGraph_DS g, int capacity, graph_batch_listener consumer) {
+        capacity = Math.max(capacity, 1);
+        this.g = g;
+        this.consumer = consumer;
+        ops = new byte[capacity];
+        src = new int[capacity];
+        dest = new int[capacity];
+        mcs = new int[capacity];
+        oldWeights = new double[capacity];
+        weights = new double[capacity];
+        g.addListener(this);
+    }
+
+    @Override
+    public void nodeAdded(int key) {
+        append(ADD_NODE, key, key, 0, 0);
+    }
+
+    @Override
+    public void nodeRemoved(int key) {
+        append(REMOVE_NODE, key, key, 0, 0);
+    }
+
+    @Override
+    public void edgeChanged(int node1, int node2, double oldW, double w) {
+        if (oldW < 0) append(NEW_EDGE, node1, node2, 0, w);
+        else append(REWEIGHT, node1, node2, oldW, w);
+    }
+
+    @Override
+    public void edgeRemoved(int node1, int node2, double oldW) {
+        append(REMOVE_EDGE, node1, node2, oldW, 0);
+    }
+
+    /**
+     * Help function: buffers an event, delivers the batch once the buffer is full.
+     */
+    private void append(byte op, int node1, int node2, double oldW, double w) {
+        ops[size] = op;
+        src[size] = node1;
+        dest[size] = node2;
+        oldWeights[size] = oldW;
+        weights[size] = w;
+        mcs[size] = g.getMC();
+        if (++size == ops.length) flush();
+    }
+
+    /**
+     * Delivers the buffered events to the consumer (if there are any).
+     */
+    public void flush() {
+        if (size == 0) return;
+        consumer.onBatch(this);
+        delivered += size;
+        size = 0;
+    }
+
+    /**
+     * Delivers the remaining events and stops listening to the graph.
+     */
+    public void close() {
+        g.removeListener(this);
+        flush();
+    }
+
+    /**
+     * @return the number of events in the current batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of events delivered so far
+     */
+    public long delivered() {
+        return delivered;
+    }
+
+    /**
+     * @param i - the event's index in the batch
+     * @return one of ADD_NODE, REMOVE_NODE, NEW_EDGE, REWEIGHT, REMOVE_EDGE
+     */
+    public byte op(int i) {
+        return ops[i];
+    }
+
+    /**
+     * @param i - the event's index in the batch
+     * @return the vertex's key (the first endpoint for edge events)
+     */
+    public int node1(int i) {
+        return src[i];
+    }
+
+    /**
+     * @param i - the event's index in the batch
+     * @return the second endpoint (the vertex's key for vertex events)
+     */
+    public int node2(int i) {
+        return dest[i];
+    }
+
+    /**
+     * @param i - the event's index in the batch
+     * @return the previous weight (REWEIGHT, REMOVE_EDGE) || 0
+     */
+    public double oldWeight(int i) {
+        return oldWeights[i];
+    }
+
+    /**
+     * @param i - the event's index in the batch
+     * @return the new weight (NEW_EDGE, REWEIGHT) || 0
+     */
+    public double weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * @param i - the event's index in the batch
+     * @return the graph's mc right after the change
+     */
+    public int mc(int i) {
+        return mcs[i];
+    }
+}
@@ -0,0 +1,74 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of (priority, vertex) pairs in primitive arrays, used by the
+ * Dijkstra-like searches instead of a PriorityQueue of boxed objects.
+ * There is no decrease-key: a vertex is pushed again with its new priority
+ * and the stale pairs are skipped by the caller when popped (lazy deletion).
+ */
+
+final class WGraph_Heap {
+
+    private double[] p = new double[16];
+    private int[] v = new int[16];
+    private int size = 0;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void push(double priority, int vertex) {
+        if (size == p.length) {
+            p = Arrays.copyOf(p, size * 2);
+            v = Arrays.copyOf(v, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (p[parent] <= priority) break;
+            p[i] = p[parent];
+            v[i] = v[parent];
+            i = parent;
+        }
+        p[i] = priority;
+        v[i] = vertex;
+    }
+
+    /**
+     * @return the lowest priority in the heap
+     */
+    double topPriority() {
+        return p[0];
+    }
+
+    /**
+     * Removes the pair with the lowest priority.
+     *
+     * @return its vertex
+     */
+    int pop() {
+        int top = v[0];
+        size--;
+        double last = p[size];
+        int lastV = v[size];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= size) break;
+            if (c + 1 < size && p[c + 1] < p[c]) c++;
+            if (p[c] >= last) break;
+            p[i] = p[c];
+            v[i] = v[c];
+            i = c;
+        }
+        p[i] = last;
+        v[i] = lastV;
+        return top;
+    }
+}
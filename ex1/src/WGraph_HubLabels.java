@@ -0,0 +1,284 @@
+package ex1.src;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class represents an exact distance oracle by hub labeling: every vertex v keeps a label -
+ * a list of (hub, distance from v to hub) pairs - such that every pair of vertices u, v has a
+ * shortest path through a hub of both labels, so dist(u, v) = min over common hubs of the sums.
+ * The labels are built by pruned landmark labeling:
+ * 0. the vertices are ranked by decreasing degree (the hubs of most shortest paths come first)
+ * 1. a Dijkstra runs from every vertex by rank, adding it as a hub to the labels of the vertices it reaches
+ * 2. a vertex whose distance the labels built so far already answer is pruned (not labeled nor expanded),
+ * as are the earlier roots
+ *
+ * The labels are stored in flat primitive arrays sorted by hub rank, so a query is a merge of two
+ * sorted arrays, and can be saved to a file and loaded back (see save & load).
+ */
+
+public class WGraph_HubLabels {
+
+    public static final int MAGIC = 0x57474831; // "WGH1"
+    private static final byte VERSION = 1;
+
+    // The sorted vertex keys, and the label of vertex v: hub[off[v]]..hub[off[v + 1] - 1] (ranks, sorted)
+    // with the matching distances dist[off[v]]..
+    private final int[] keys, off, hub;
+    private final double[] dist;
+
+    // Constructor:
+    private WGraph_HubLabels(int[] keys, int[] off, int[] hub, double[] dist) {
+        this.keys = keys;
+        this.off = off;
+        this.hub = hub;
+        this.dist = dist;
+    }
+
+    /**
+     * Builds the labels of the given graph.
+     *
+     * @param g - the graph
+     * @return WGraph_HubLabels
+     */
+    public static WGraph_HubLabels build(weighted_graph g) {
+        return build(WGraph_CSR.of(g));
+    }
+
+    /**
+     * Builds the labels of the given snapshot by pruned landmark labeling.
+     *
+     * @param g - the graph
+     * @return WGraph_HubLabels
+     */
+    public static WGraph_HubLabels build(WGraph_CSR g) {
+        int n = g.n;
+        long[] byDegree = new long[n];
+        for (int v = 0; v < n; v++) byDegree[v] = ((long) (Integer.MAX_VALUE - g.degree(v)) << 32) | v;
+        Arrays.sort(byDegree);
+        int[] order = new int[n], rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            order[r] = (int) byDegree[r];
+            rank[order[r]] = r;
+        }
+
+        // The labels while building (ranks are added in increasing order, so every label stays sorted)
+        int[][] hubs = new int[n][];
+        double[][] dists = new double[n][];
+        int[] size = new int[n];
+        double[] d = new double[n], rootDist = new double[n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        Arrays.fill(rootDist, Double.POSITIVE_INFINITY);
+        int[] touched = new int[16];
+        WGraph_Heap heap = new WGraph_Heap();
+        long total = 0;
+        for (int r = 0; r < n; r++) {
+            int root = order[r], count = 0;
+            for (int i = 0; i < size[root]; i++) rootDist[hubs[root][i]] = dists[root][i];
+            d[root] = 0;
+            touched[count++] = root;
+            heap.clear();
+            heap.push(0, root);
+            while (!heap.isEmpty()) {
+                double du = heap.topPriority();
+                int u = heap.pop();
+                if (du > d[u] || covered(hubs[u], dists[u], size[u], rootDist, du)) continue;
+                if (hubs[u] == null) {
+                    hubs[u] = new int[4];
+                    dists[u] = new double[4];
+                } else if (size[u] == hubs[u].length) {
+                    hubs[u] = Arrays.copyOf(hubs[u], size[u] * 2);
+                    dists[u] = Arrays.copyOf(dists[u], size[u] * 2);
+                }
+                hubs[u][size[u]] = r;
+                dists[u][size[u]++] = du;
+                total++;
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    int v = g.ni[e];
+                    // The earlier roots have their exact distance from this one in the labels already
+                    if (rank[v] < r) continue;
+                    if (du + g.w[e] < d[v]) {
+                        if (d[v] == Double.POSITIVE_INFINITY) {
+                            if (count == touched.length) touched = Arrays.copyOf(touched, count * 2);
+                            touched[count++] = v;
+                        }
+                        d[v] = du + g.w[e];
+                        heap.push(d[v], v);
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) d[touched[i]] = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size[root]; i++) rootDist[hubs[root][i]] = Double.POSITIVE_INFINITY;
+        }
+        if (total > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many labels: " + total);
+
+        int[] off = new int[n + 1], hub = new int[(int) total];
+        double[] dist = new double[(int) total];
+        for (int v = 0; v < n; v++) {
+            off[v + 1] = off[v] + size[v];
+            if (size[v] == 0) continue;
+            System.arraycopy(hubs[v], 0, hub, off[v], size[v]);
+            System.arraycopy(dists[v], 0, dist, off[v], size[v]);
+            hubs[v] = null;
+            dists[v] = null;
+        }
+        return new WGraph_HubLabels(g.keys.clone(), off, hub, dist);
+    }
+
+    /**
+     * Help function: checks if the labels built so far already give a path of length <= du
+     * between the current root (whose label is spread in rootDist) and the vertex of the given label.
+     */
+    private static boolean covered(int[] hubs, double[] dists, int size, double[] rootDist, double du) {
+        for (int i = 0; i < size; i++) {
+            if (rootDist[hubs[i]] + dists[i] <= du) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the length of the shortest path between two vertices.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return double || -1 (if no such path or vertex)
+     */
+    public double shortestPathDist(int src, int dest) {
+        int s = Arrays.binarySearch(keys, src), t = Arrays.binarySearch(keys, dest);
+        if (s < 0 || t < 0) return -1;
+        return distance(s, t);
+    }
+
+    /**
+     * Returns the length of the shortest path between two vertices by their dense indexes
+     * (the positions of their keys in sorted order).
+     *
+     * @param s - start index
+     * @param t - end (target) index
+     * @return double || -1 (if no such path)
+     */
+    public double distance(int s, int t) {
+        if (s == t) return 0;
+        double best = Double.POSITIVE_INFINITY;
+        int i = off[s], j = off[t], endI = off[s + 1], endJ = off[t + 1];
+        while (i < endI && j < endJ) {
+            int a = hub[i], b = hub[j];
+            if (a == b) {
+                double x = dist[i++] + dist[j++];
+                if (x < best) best = x;
+            } else if (a < b) i++;
+            else j++;
+        }
+        return best == Double.POSITIVE_INFINITY ? -1 : best;
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int nodeSize() {
+        return keys.length;
+    }
+
+    /**
+     * @return the total number of (hub, distance) pairs in all the labels
+     */
+    public long labelSize() {
+        return hub.length;
+    }
+
+    /**
+     * @return the size of the index in bytes (keys, offsets, hubs and distances)
+     */
+    public long bytes() {
+        return 4L * keys.length + 4L * off.length + 12L * hub.length;
+    }
+
+    /**
+     * Saves the labels to the given file: header (magic, version, |V|, number of pairs),
+     * then the keys, offsets, hubs and distances as raw arrays.
+     *
+     * @param file - the file name (may include a relative path).
+     * @throws IOException
+     */
+    public void save(String file) throws IOException {
+        try (FileChannel ch = FileChannel.open(new File(file).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(13);
+            header.putInt(MAGIC).put(VERSION).putInt(keys.length).putInt(hub.length).flip();
+            writeFully(ch, header);
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int[] a : new int[][]{keys, off, hub}) {
+                for (int i = 0; i < a.length; ) {
+                    int len = Math.min(a.length - i, buf.capacity() / 4);
+                    buf.clear();
+                    buf.asIntBuffer().put(a, i, len);
+                    buf.limit(len * 4);
+                    writeFully(ch, buf);
+                    i += len;
+                }
+            }
+            for (int i = 0; i < dist.length; ) {
+                int len = Math.min(dist.length - i, buf.capacity() / 8);
+                buf.clear();
+                buf.asDoubleBuffer().put(dist, i, len);
+                buf.limit(len * 8);
+                writeFully(ch, buf);
+                i += len;
+            }
+        }
+    }
+
+    /**
+     * Loads labels saved by save(file).
+     *
+     * @param file - file name
+     * @return WGraph_HubLabels
+     * @throws IOException - if the file can't be read or isn't a hub labels file
+     */
+    public static WGraph_HubLabels load(String file) throws IOException {
+        try (FileChannel ch = FileChannel.open(new File(file).toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(13);
+            readFully(ch, header);
+            header.flip();
+            if (header.getInt() != MAGIC || header.get() != VERSION) throw new IOException("Not a hub labels file: " + file);
+            int n = header.getInt(), total = header.getInt();
+            int[] keys = new int[n], off = new int[n + 1], hub = new int[total];
+            double[] dist = new double[total];
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int[] a : new int[][]{keys, off, hub}) {
+                for (int i = 0; i < a.length; ) {
+                    int len = Math.min(a.length - i, buf.capacity() / 4);
+                    buf.clear().limit(len * 4);
+                    readFully(ch, buf);
+                    buf.flip();
+                    buf.asIntBuffer().get(a, i, len);
+                    i += len;
+                }
+            }
+            for (int i = 0; i < dist.length; ) {
+                int len = Math.min(dist.length - i, buf.capacity() / 8);
+                buf.clear().limit(len * 8);
+                readFully(ch, buf);
+                buf.flip();
+                buf.asDoubleBuffer().get(dist, i, len);
+                i += len;
+            }
+            return new WGraph_HubLabels(keys, off, hub, dist);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            if (ch.read(b) < 0) throw new IOException("Unexpected end of file");
+        }
+    }
+}
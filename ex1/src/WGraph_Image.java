@@ -0,0 +1,187 @@
+package ex1.src;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class represents a point-in-time image of a graph for a background save (see WGraph_Algo.saveAsync):
+ * 0. capture - copies the vertices (key, info, tag), the edges (once, from the lower key) and the mode count
+ * into primitive arrays, in the caller's thread, so the graph may be changed as soon as it returns.
+ * A WGraph_DS is walked through its own neighbor maps (one iterator per vertex, no collection is built);
+ * any other graph through getV(key) & getEdge, which build a collection per vertex
+ * 1. write - on the background saver thread, rebuilds a WGraph_DS from the image and serializes it
+ * (the format of save(), so load() reads it) through a buffered stream over a FileChannel into a temporary
+ * file, forces it to the disk and renames it over the target atomically - a reader sees the old file
+ * or the whole new one, never a partial one.
+ * The saves run one at a time, in the order they were started; drain() waits for the pending ones,
+ * so a synchronous save isn't overwritten later by an older image (see WGraph_Algo.save).
+ */
+
+public class WGraph_Image {
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int BUFFER = 1 << 16;
+    private static final ExecutorService SAVER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "WGraph_Image-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int[] keys;
+    private final String[] info;
+    private final double[] tag;
+    private final int[] from, to;
+    private final double[] w;
+    private final int mc;
+
+    // Constructor:
+    private WGraph_Image(int[] keys, String[] info, double[] tag, int[] from, int[] to, double[] w, int mc) {
+        this.keys = keys;
+        this.info = info;
+        this.tag = tag;
+        this.from = from;
+        this.to = to;
+        this.w = w;
+        this.mc = mc;
+    }
+
+    /**
+     * Captures the current state of the graph. The graph must not be changed by another thread meanwhile.
+     *
+     * @param g - the graph
+     * @return WGraph_Image
+     */
+    public static WGraph_Image capture(weighted_graph g) {
+        int n = g.nodeSize(), m = g.edgeSize();
+        int[] keys = new int[n], from = new int[m], to = new int[m];
+        String[] info = new String[n];
+        double[] tag = new double[n], w = new double[m];
+        WGraph_DS ds = g instanceof WGraph_DS ? (WGraph_DS) g : null;
+        int i = 0, e = 0;
+        for (node_info v : g.getV()) {
+            int key = v.getKey();
+            keys[i] = key;
+            info[i] = v.getInfo();
+            tag[i++] = v.getTag();
+            if (ds != null) {
+                HashMap<Integer, Double> ni = ds.neighbors(key);
+                if (ni == null) continue;
+                for (Map.Entry<Integer, Double> u : ni.entrySet()) {
+                    int other = u.getKey();
+                    if (key < other) {
+                        from[e] = key;
+                        to[e] = other;
+                        w[e++] = u.getValue();
+                    }
+                }
+            } else {
+                for (node_info u : g.getV(key)) {
+                    if (key < u.getKey()) {
+                        from[e] = key;
+                        to[e] = u.getKey();
+                        w[e++] = g.getEdge(key, u.getKey());
+                    }
+                }
+            }
+        }
+        return new WGraph_Image(keys, info, tag, from, to, w, g.getMC());
+    }
+
+    /**
+     * Builds a new WGraph_DS holding the image: the same vertices, infos, tags, edges and mode count.
+     *
+     * @return WGraph_DS
+     */
+    public WGraph_DS toGraph() {
+        WGraph_DS g = new WGraph_DS();
+        for (int i = 0; i < keys.length; i++) {
+            g.addNode(keys[i]);
+            node_info v = g.getNode(keys[i]);
+            v.setInfo(info[i]);
+            v.setTag(tag[i]);
+        }
+        for (int e = 0; e < from.length; e++) g.connect(from[e], to[e], w[e]);
+        g.setMC(mc);
+        return g;
+    }
+
+    /**
+     * Writes the image to the file: to file + ".tmp" first, then renamed over the file.
+     *
+     * @param file - the file name (may include a relative path)
+     * @throws IOException - if it couldn't be written (the old file, if any, is left as is)
+     */
+    public void write(String file) throws IOException {
+        Path target = Paths.get(file), tmp = Paths.get(file + TMP_SUFFIX);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), BUFFER));
+            out.writeObject(toGraph());
+            out.flush();
+            ch.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the image to the file on the background saver thread.
+     *
+     * @param file - the file name (may include a relative path)
+     * @return a future of true - iff the file was successfully saved
+     */
+    public CompletableFuture<Boolean> writeAsync(String file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                write(file);
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }, SAVER);
+    }
+
+    /**
+     * Waits until every background save started so far is done (the saver runs them in order,
+     * so an empty task put after them completes last).
+     */
+    public static void drain() {
+        CompletableFuture.runAsync(() -> {
+        }, SAVER).join();
+    }
+
+    /**
+     * @return the mode count of the graph at the capture
+     */
+    public int getMC() {
+        return mc;
+    }
+
+    /**
+     * @return the number of vertices in the image
+     */
+    public int nodeSize() {
+        return keys.length;
+    }
+
+    /**
+     * @return the number of edges in the image
+     */
+    public int edgeSize() {
+        return from.length;
+    }
+}
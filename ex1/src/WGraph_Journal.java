@@ -0,0 +1,191 @@
+package ex1.src;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents an append-only journal of the mutations made to a WGraph_DS.
+ * Every record holds the operation, its endpoints, its weight and the graph's mc
+ * right after the change, so the journal can be written to a write-ahead log (WAL)
+ * file and replayed on top of an older snapshot of the same graph:
+ * 0. ADD_NODE(key)
+ * 1. REMOVE_NODE(key)
+ * 2. CONNECT(node1, node2, w) - a new edge or a re-weight of an existing edge
+ * 3. REMOVE_EDGE(node1, node2)
+ *
+ * Records are kept in primitive arrays until flush(file) appends them to the log
+ * with a single write and a single fsync.
+ */
+
+public class WGraph_Journal {
+
+    public static final byte ADD_NODE = 0, REMOVE_NODE = 1, CONNECT = 2, REMOVE_EDGE = 3;
+    // op(1) + node1(4) + node2(4) + w(8) + mc(4)
+    private static final int RECORD_BYTES = 21;
+
+    private byte[] ops;
+    private int[] src, dest, mcs;
+    private double[] weights;
+    private int size = 0;
+    private long flushed = 0;
+
+    // Default constructor:
+    public WGraph_Journal() {
+        this(64);
+    }
+
+    // Constructor:
+    public WGraph_Journal(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ops = new byte[capacity];
+        src = new int[capacity];
+        dest = new int[capacity];
+        mcs = new int[capacity];
+        weights = new double[capacity];
+    }
+
+    /**
+     * Appends a single mutation record to the journal.
+     *
+     * @param op - one of ADD_NODE, REMOVE_NODE, CONNECT, REMOVE_EDGE
+     * @param node1
+     * @param node2
+     * @param w
+     * @param mc - the mode count of the graph after the change
+     */
+    public void append(byte op, int node1, int node2, double w, int mc) {
+        if (size == ops.length) grow();
+        ops[size] = op;
+        src[size] = node1;
+        dest[size] = node2;
+        weights[size] = w;
+        mcs[size] = mc;
+        size++;
+    }
+
+    /**
+     * Help function: doubles the capacity of the record arrays.
+     */
+    private void grow() {
+        int cap = ops.length * 2;
+        byte[] o = new byte[cap];
+        int[] s = new int[cap], d = new int[cap], m = new int[cap];
+        double[] w = new double[cap];
+        System.arraycopy(ops, 0, o, 0, size);
+        System.arraycopy(src, 0, s, 0, size);
+        System.arraycopy(dest, 0, d, 0, size);
+        System.arraycopy(mcs, 0, m, 0, size);
+        System.arraycopy(weights, 0, w, 0, size);
+        ops = o;
+        src = s;
+        dest = d;
+        mcs = m;
+        weights = w;
+    }
+
+    /**
+     * @return the number of records which weren't flushed yet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of records flushed to the log since the last clear()
+     */
+    public long flushedSize() {
+        return flushed;
+    }
+
+    /**
+     * Drops all the pending records and resets the flushed counter
+     * (used after the log was compacted into a new snapshot).
+     */
+    public void clear() {
+        size = 0;
+        flushed = 0;
+    }
+
+    /**
+     * Appends all the pending records to the given log file,
+     * writes them in one batch and forces them to the disk once.
+     *
+     * @param file - the log file name
+     * @return true - iff all the records were written
+     */
+    public boolean flush(String file) {
+        if (size == 0) return true;
+        ByteBuffer buf = ByteBuffer.allocate(size * RECORD_BYTES);
+        for (int i = 0; i < size; i++) {
+            buf.put(ops[i]).putInt(src[i]).putInt(dest[i]).putDouble(weights[i]).putInt(mcs[i]);
+        }
+        buf.flip();
+        try (FileChannel ch = FileChannel.open(new File(file).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        flushed += size;
+        size = 0;
+        return true;
+    }
+
+    /**
+     * Replays a log file on top of the given graph.
+     * Only records which are newer than the graph (mc > g.getMC()) are applied,
+     * so replaying a log on its own base snapshot more than once is harmless.
+     * A truncated last record (a crash in the middle of a write) is ignored.
+     *
+     * @param g    - the base graph
+     * @param file - the log file name
+     * @return the number of applied records || -1 (if the log couldn't be read)
+     */
+    public static int replay(weighted_graph g, String file) {
+        File f = new File(file);
+        if (!f.exists()) return 0;
+        int applied = 0;
+        int base = g.getMC();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            long records = f.length() / RECORD_BYTES;
+            for (long i = 0; i < records; i++) {
+                byte op = in.readByte();
+                int node1 = in.readInt();
+                int node2 = in.readInt();
+                double w = in.readDouble();
+                int mc = in.readInt();
+                if (mc <= base) continue;
+                apply(g, op, node1, node2, w);
+                applied++;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return applied;
+    }
+
+    /**
+     * Help function: applies a single record to the graph.
+     */
+    private static void apply(weighted_graph g, byte op, int node1, int node2, double w) {
+        switch (op) {
+            case ADD_NODE:
+                g.addNode(node1);
+                break;
+            case REMOVE_NODE:
+                g.removeNode(node1);
+                break;
+            case CONNECT:
+                g.connect(node1, node2, w);
+                break;
+            case REMOVE_EDGE:
+                g.removeEdge(node1, node2);
+                break;
+        }
+    }
+}
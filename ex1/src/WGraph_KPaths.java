@@ -0,0 +1,203 @@
+package ex1.src;
+
+import java.util.*;
+
+/**
+ * This class represents Yen's K shortest loopless paths algorithm towards a fixed target,
+ * with lazy spur computation and reuse of the target's shortest paths tree:
+ * 0. One Dijkstra from the target builds the tree (distance & next vertex towards the target),
+ * it is shared by all the sources and all the spur searches.
+ * 1. Every accepted path only pushes its spur tasks into the candidates heap, with the lower
+ * bound root cost + tree distance, a spur path is computed only when its task reaches the top.
+ * 2. A spur search first tries the tree path from the spur vertex (optimal if it avoids the
+ * removed vertices and edges), otherwise runs A* guided by the tree distances.
+ *
+ * Paths are arrays of vertex indexes of the WGraph_CSR snapshot.
+ */
+
+public class WGraph_KPaths {
+
+    private final WGraph_CSR g;
+    private final int t;
+    private final double[] distT;
+    private final int[] nextT;
+
+    // Scratch arrays of the spur searches, valid where stamp == epoch:
+    private final double[] d;
+    private final int[] prev, stamp, blocked;
+    private int epoch = 0, token = 0;
+    private final WGraph_Heap heap = new WGraph_Heap();
+
+    /**
+     * Constructor: builds the shortest paths tree towards the target.
+     *
+     * @param g - the graph
+     * @param t - the target's index
+     */
+    public WGraph_KPaths(WGraph_CSR g, int t) {
+        this.g = g;
+        this.t = t;
+        int n = g.n;
+        distT = new double[n];
+        nextT = new int[n];
+        Arrays.fill(distT, Double.POSITIVE_INFINITY);
+        Arrays.fill(nextT, -1);
+        distT[t] = 0;
+        heap.push(0, t);
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            if (du > distT[u]) continue;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (du + g.w[e] < distT[v]) {
+                    distT[v] = du + g.w[e];
+                    nextT[v] = u;
+                    heap.push(distT[v], v);
+                }
+            }
+        }
+        d = new double[n];
+        prev = new int[n];
+        stamp = new int[n];
+        blocked = new int[n];
+    }
+
+    /**
+     * A candidate in the heap: either a path or a spur task which wasn't computed yet.
+     */
+    private static final class Candidate {
+        final double cost;
+        final int[] path;
+        final int spur;
+
+        Candidate(double cost, int[] path, int spur) {
+            this.cost = cost;
+            this.path = path;
+            this.spur = spur;
+        }
+    }
+
+    /**
+     * Returns up to k shortest loopless paths from s to the target, by increasing cost.
+     *
+     * @param s - the source's index
+     * @param k - the number of paths
+     * @return List of paths (vertex indexes from s to the target)
+     */
+    public List<int[]> find(int s, int k) {
+        List<int[]> accepted = new ArrayList<>();
+        if (k <= 0 || distT[s] == Double.POSITIVE_INFINITY) return accepted;
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(c -> c.cost));
+        HashSet<String> seen = new HashSet<>();
+        int[] first = treePath(s, 0, new int[0]);
+        seen.add(Arrays.toString(first));
+        candidates.add(new Candidate(distT[s], first, -1));
+
+        while (accepted.size() < k && !candidates.isEmpty()) {
+            Candidate c = candidates.poll();
+            if (c.spur >= 0) {
+                int[] p = spur(c.path, c.spur, accepted);
+                if (p != null && seen.add(Arrays.toString(p))) candidates.add(new Candidate(cost(p), p, -1));
+                continue;
+            }
+            accepted.add(c.path);
+            double root = 0;
+            for (int i = 0; i + 1 < c.path.length; i++) {
+                candidates.add(new Candidate(root + distT[c.path[i]], c.path, i));
+                root += g.weight(c.path[i], c.path[i + 1]);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the total weight of a path.
+     *
+     * @param path - vertex indexes
+     * @return double
+     */
+    public double cost(int[] path) {
+        double sum = 0;
+        for (int i = 0; i + 1 < path.length; i++) sum += g.weight(path[i], path[i + 1]);
+        return sum;
+    }
+
+    /**
+     * Help function: the best path which shares path[0..i] and then leaves path[i]
+     * through an edge no accepted path with the same root took, avoiding the root's vertices.
+     *
+     * @return the whole path || null (if none)
+     */
+    private int[] spur(int[] path, int i, List<int[]> accepted) {
+        int spur = path[i];
+        token++;
+        for (int j = 0; j < i; j++) blocked[path[j]] = token;
+        // The edges leaving the spur vertex which were already used after this root:
+        int[] used = new int[accepted.size()];
+        int count = 0;
+        for (int[] a : accepted) {
+            if (a.length > i + 1 && samePrefix(a, path, i)) used[count++] = a[i + 1];
+        }
+        used = Arrays.copyOf(used, count);
+        Arrays.sort(used);
+
+        // The tree path is the best spur path if it is still open:
+        boolean open = nextT[spur] >= 0 || spur == t;
+        if (open && spur != t && Arrays.binarySearch(used, nextT[spur]) >= 0) open = false;
+        for (int v = nextT[spur]; open && v >= 0; v = nextT[v]) {
+            if (blocked[v] == token) open = false;
+        }
+        if (open) return treePath(spur, i, path);
+
+        // A* from the spur vertex, guided by the tree distances:
+        epoch++;
+        heap.clear();
+        stamp[spur] = epoch;
+        d[spur] = 0;
+        prev[spur] = -1;
+        heap.push(distT[spur], spur);
+        while (!heap.isEmpty()) {
+            double f = heap.topPriority();
+            int u = heap.pop();
+            if (f > d[u] + distT[u]) continue;
+            if (u == t) break;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (blocked[v] == token || distT[v] == Double.POSITIVE_INFINITY) continue;
+                if (u == spur && Arrays.binarySearch(used, v) >= 0) continue;
+                double nd = d[u] + g.w[e];
+                if (stamp[v] != epoch || nd < d[v]) {
+                    stamp[v] = epoch;
+                    d[v] = nd;
+                    prev[v] = u;
+                    heap.push(nd + distT[v], v);
+                }
+            }
+        }
+        if (stamp[t] != epoch) return null;
+        int len = 0;
+        for (int v = t; v >= 0; v = prev[v]) len++;
+        int[] ans = Arrays.copyOf(path, i + len);
+        for (int v = t, j = i + len - 1; v >= 0; v = prev[v], j--) ans[j] = v;
+        return ans;
+    }
+
+    /**
+     * Help function: path[0..i-1] followed by the tree path from v to the target.
+     */
+    private int[] treePath(int v, int i, int[] path) {
+        int len = 1;
+        for (int u = v; u != t; u = nextT[u]) len++;
+        int[] ans = Arrays.copyOf(path, i + len);
+        for (int u = v, j = i; j < ans.length; u = nextT[u], j++) ans[j] = u;
+        return ans;
+    }
+
+    private static boolean samePrefix(int[] a, int[] b, int i) {
+        for (int j = 0; j <= i; j++) {
+            if (a[j] != b[j]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,345 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a community detection of a weighted graph by the Louvain method,
+ * maximizing the modularity Q = sum over communities C of in(C) / 2m - (tot(C) / 2m)^2,
+ * where in(C) is twice the weight of C's inner edges, tot(C) the weighted degree of its vertices
+ * and 2m the total weighted degree. Every level:
+ * 0. local moving - every vertex moves to the neighboring community of the highest modularity gain.
+ * The vertices are split into BATCHES groups, the moves of a group are computed in parallel against
+ * the current communities and then applied together; the conflicts of simultaneous moves are handled by:
+ * a vertex alone in its community only joins another single vertex community of a lower id (no swaps),
+ * and the moving stops once a round doesn't improve the modularity (a worse round is undone)
+ * 1. aggregation - every community becomes a vertex of the next level's graph, its inner edges a self loop
+ * The levels repeat until no vertex moves. The moves are decided the same way for any number of
+ * threads, so the result doesn't depend on it.
+ */
+
+public class WGraph_Louvain {
+
+    private static final int BATCHES = 4, MAX_ROUNDS = 32, CHUNKS = 64;
+    private static final double MIN_GAIN = 1e-7;
+
+    private final WGraph_CSR g;
+    private final int[] community;
+    private final int communities, levels;
+    private final double modularity;
+
+    // Constructor:
+    private WGraph_Louvain(WGraph_CSR g, int[] community, int communities, int levels, double modularity) {
+        this.g = g;
+        this.community = community;
+        this.communities = communities;
+        this.levels = levels;
+        this.modularity = modularity;
+    }
+
+    /**
+     * A level's graph: CSR without the reverse of self loops, which are kept apart (loop[v] is the weight
+     * of v's inner edges, counted twice in its degree).
+     */
+    private static final class Level {
+        final int n;
+        final int[] off, ni;
+        final double[] w, loop, degree;
+        final double m2;
+
+        Level(int n, int[] off, int[] ni, double[] w, double[] loop) {
+            this.n = n;
+            this.off = off;
+            this.ni = ni;
+            this.w = w;
+            this.loop = loop;
+            this.degree = new double[n];
+            double sum = 0;
+            for (int v = 0; v < n; v++) {
+                double d = 2 * loop[v];
+                for (int e = off[v]; e < off[v + 1]; e++) d += w[e];
+                degree[v] = d;
+                sum += d;
+            }
+            this.m2 = sum;
+        }
+    }
+
+    /**
+     * Detects the communities of the graph.
+     *
+     * @param g       - the graph
+     * @param threads - the number of threads
+     * @return WGraph_Louvain
+     */
+    public static WGraph_Louvain detect(WGraph_CSR g, int threads) {
+        Level level = new Level(g.n, g.off, g.ni, g.w, new double[g.n]);
+        // The community of every original vertex, by the current level's vertices
+        int[] map = new int[g.n];
+        for (int v = 0; v < g.n; v++) map[v] = v;
+        int levels = 0;
+        while (level.m2 > 0) {
+            int[] comm = moveLocally(level, threads);
+            int count = renumber(comm);
+            if (count == level.n) break;
+            levels++;
+            for (int v = 0; v < g.n; v++) map[v] = comm[map[v]];
+            level = aggregate(level, comm, count, threads);
+        }
+        // Every vertex of the last level is a non empty community
+        return new WGraph_Louvain(g, map, level.n, levels, modularity(g, map));
+    }
+
+    /**
+     * Help function: the local moving phase, returns the community of every vertex of the level.
+     */
+    private static int[] moveLocally(Level l, int threads) {
+        int n = l.n;
+        int[] comm = new int[n], size = new int[n], target = new int[n];
+        double[] tot = l.degree.clone();
+        for (int v = 0; v < n; v++) {
+            comm[v] = v;
+            size[v] = 1;
+        }
+        // The vertices of every batch (by a hash of the index, so neighbors rarely share a batch)
+        int[][] batch = new int[BATCHES][];
+        int[] batchSize = new int[BATCHES];
+        for (int v = 0; v < n; v++) batchSize[batchOf(v)]++;
+        for (int b = 0; b < BATCHES; b++) batch[b] = new int[batchSize[b]];
+        Arrays.fill(batchSize, 0);
+        for (int v = 0; v < n; v++) batch[batchOf(v)][batchSize[batchOf(v)]++] = v;
+
+        // Every task keeps its own scratch of the weights to the neighbor communities
+        int tasks = Math.max(1, threads);
+        Scratch[] scratch = new Scratch[tasks];
+        for (int t = 0; t < tasks; t++) scratch[t] = new Scratch(n);
+        double q = modularity(l, comm, threads);
+        int[] previous = comm.clone();
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            boolean moved = false;
+            for (int b = 0; b < BATCHES; b++) {
+                int[] vs = batch[b];
+                int part = (vs.length + tasks - 1) / tasks;
+                WGraph_Parallel.forEach(tasks, threads, 1, t -> {
+                    for (int i = t * part; i < Math.min(vs.length, (t + 1) * part); i++) {
+                        target[vs[i]] = best(l, vs[i], comm, size, tot, scratch[t]);
+                    }
+                });
+                for (int v : vs) {
+                    int c = comm[v], t = target[v];
+                    if (t == c) continue;
+                    tot[c] -= l.degree[v];
+                    tot[t] += l.degree[v];
+                    size[c]--;
+                    size[t]++;
+                    comm[v] = t;
+                    moved = true;
+                }
+            }
+            if (!moved) break;
+            double next = modularity(l, comm, threads);
+            if (next < q) {
+                // The simultaneous moves made it worse - back to the last round
+                System.arraycopy(previous, 0, comm, 0, n);
+                break;
+            }
+            System.arraycopy(comm, 0, previous, 0, n);
+            if (next - q < MIN_GAIN) break;
+            q = next;
+        }
+        return comm;
+    }
+
+    private static int batchOf(int v) {
+        return ((v * 0x9E3779B9) >>> 16) % BATCHES;
+    }
+
+    /**
+     * The weights from a vertex to its neighbor communities: a dense array with the list of the touched ones.
+     */
+    private static final class Scratch {
+        final double[] weightTo;
+        final boolean[] has;
+        int[] touched = new int[16];
+        int size = 0;
+
+        Scratch(int n) {
+            weightTo = new double[n];
+            has = new boolean[n];
+        }
+
+        void add(int c, double w) {
+            if (!has[c]) {
+                has[c] = true;
+                if (size == touched.length) touched = Arrays.copyOf(touched, size * 2);
+                touched[size++] = c;
+            }
+            weightTo[c] += w;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                has[touched[i]] = false;
+                weightTo[touched[i]] = 0;
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * Help function: the community of the highest gain for v: k(v, C) - tot(C) * k(v) / 2m,
+     * with v taken out of its own community (ties: stay, then the lower id).
+     */
+    private static int best(Level l, int v, int[] comm, int[] size, double[] tot, Scratch s) {
+        for (int e = l.off[v]; e < l.off[v + 1]; e++) s.add(comm[l.ni[e]], l.w[e]);
+        int own = comm[v];
+        double kv = l.degree[v];
+        double bestGain = s.weightTo[own] - (tot[own] - kv) * kv / l.m2;
+        int bestComm = own;
+        for (int j = 0; j < s.size; j++) {
+            int c = s.touched[j];
+            // A single vertex doesn't swap with another single vertex
+            if (c == own || (size[own] == 1 && size[c] == 1 && c > own)) continue;
+            double gain = s.weightTo[c] - tot[c] * kv / l.m2;
+            if (gain > bestGain + 1e-12 || (gain > bestGain - 1e-12 && bestComm != own && c < bestComm)) {
+                bestGain = gain;
+                bestComm = c;
+            }
+        }
+        s.clear();
+        return bestComm;
+    }
+
+    /**
+     * Help function: renumbers the communities 0..count-1 (by first appearance), returns count.
+     */
+    private static int renumber(int[] comm) {
+        int[] id = new int[comm.length];
+        Arrays.fill(id, -1);
+        int count = 0;
+        for (int v = 0; v < comm.length; v++) {
+            if (id[comm[v]] < 0) id[comm[v]] = count++;
+            comm[v] = id[comm[v]];
+        }
+        return count;
+    }
+
+    /**
+     * Help function: the graph of the communities - their vertices are grouped (counting sort), then every
+     * community sums its edges by neighbor community, in parallel.
+     */
+    private static Level aggregate(Level l, int[] comm, int count, int threads) {
+        int[] start = new int[count + 1], members = new int[l.n];
+        for (int v = 0; v < l.n; v++) start[comm[v] + 1]++;
+        for (int c = 0; c < count; c++) start[c + 1] += start[c];
+        int[] pos = Arrays.copyOf(start, count);
+        for (int v = 0; v < l.n; v++) members[pos[comm[v]]++] = v;
+
+        int[][] nbr = new int[count][];
+        double[][] wgt = new double[count][];
+        double[] loop = new double[count];
+        int tasks = Math.max(1, threads), part = (count + tasks - 1) / tasks;
+        WGraph_Parallel.forEach(tasks, threads, 1, t -> {
+            Scratch s = new Scratch(count);
+            for (int c = t * part; c < Math.min(count, (t + 1) * part); c++) {
+                double inner = 0;
+                for (int i = start[c]; i < start[c + 1]; i++) {
+                    int v = members[i];
+                    inner += l.loop[v];
+                    for (int e = l.off[v]; e < l.off[v + 1]; e++) {
+                        int d = comm[l.ni[e]];
+                        // An inner edge is seen from both ends
+                        if (d == c) inner += l.w[e] / 2;
+                        else s.add(d, l.w[e]);
+                    }
+                }
+                Arrays.sort(s.touched, 0, s.size);
+                nbr[c] = Arrays.copyOf(s.touched, s.size);
+                wgt[c] = new double[s.size];
+                for (int j = 0; j < s.size; j++) wgt[c][j] = s.weightTo[s.touched[j]];
+                s.clear();
+                loop[c] = inner;
+            }
+        });
+        int[] off = new int[count + 1];
+        for (int c = 0; c < count; c++) off[c + 1] = off[c] + nbr[c].length;
+        int[] ni = new int[off[count]];
+        double[] w = new double[off[count]];
+        for (int c = 0; c < count; c++) {
+            System.arraycopy(nbr[c], 0, ni, off[c], nbr[c].length);
+            System.arraycopy(wgt[c], 0, w, off[c], wgt[c].length);
+        }
+        return new Level(count, off, ni, w, loop);
+    }
+
+    /**
+     * Help function: the modularity of the level's communities, summed in CHUNKS parallel chunks
+     * (added up in chunk order - the same sum for any number of threads).
+     */
+    private static double modularity(Level l, int[] comm, int threads) {
+        if (l.m2 == 0) return 0;
+        double[] tot = new double[l.n];
+        for (int v = 0; v < l.n; v++) tot[comm[v]] += l.degree[v];
+        double[] inner = new double[CHUNKS];
+        int size = (l.n + CHUNKS - 1) / CHUNKS;
+        WGraph_Parallel.forEach(CHUNKS, threads, 1, c -> {
+            double sum = 0;
+            for (int v = c * size; v < Math.min(l.n, (c + 1) * size); v++) {
+                sum += 2 * l.loop[v];
+                for (int e = l.off[v]; e < l.off[v + 1]; e++) if (comm[l.ni[e]] == comm[v]) sum += l.w[e];
+            }
+            inner[c] = sum;
+        });
+        double q = 0;
+        for (double x : inner) q += x / l.m2;
+        for (double t : tot) q -= (t / l.m2) * (t / l.m2);
+        return q;
+    }
+
+    /**
+     * Computes the modularity of the given communities of the graph.
+     *
+     * @param g         - the graph
+     * @param community - the community of every vertex by index (ids in [0, n))
+     * @return double - in [-1/2, 1], 0 for a graph without (weighted) edges
+     */
+    public static double modularity(WGraph_CSR g, int[] community) {
+        return modularity(new Level(g.n, g.off, g.ni, g.w, new double[g.n]), community, 1);
+    }
+
+    /**
+     * @return the community of every vertex by index (ids 0..communities() - 1)
+     */
+    public int[] getCommunities() {
+        return community;
+    }
+
+    /**
+     * @param key - vertex's ID
+     * @return the vertex's community || -1 (if no such vertex)
+     */
+    public int community(int key) {
+        int v = g.indexOf(key);
+        return v < 0 ? -1 : community[v];
+    }
+
+    /**
+     * @return the number of communities
+     */
+    public int communities() {
+        return communities;
+    }
+
+    /**
+     * @return the modularity of the communities
+     */
+    public double modularity() {
+        return modularity;
+    }
+
+    /**
+     * @return the number of aggregation levels
+     */
+    public int levels() {
+        return levels;
+    }
+}
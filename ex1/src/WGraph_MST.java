@@ -0,0 +1,195 @@
+package ex1.src;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class represents a minimum spanning forest (a minimum spanning tree of every
+ * connected component) of an undirectional weighted graph.
+ * Two algorithms are offered:
+ * 0. boruvka(graph, threads) - parallel Boruvka, every round each component picks its lightest
+ * outgoing edge (the vertices are scanned in parallel) and the components are merged
+ * 1. kruskal(graph) - sequential Kruskal, kept as a reference for verification
+ *
+ * Ties are broken by the edge's endpoints, so both algorithms return the very same forest.
+ */
+
+public class WGraph_MST {
+
+    private final WGraph_CSR g;
+    private final int[] src, dest;
+    private final double weight;
+
+    // Constructor:
+    private WGraph_MST(WGraph_CSR g, int[] src, int[] dest) {
+        this.g = g;
+        this.src = src;
+        this.dest = dest;
+        double sum = 0;
+        for (int i = 0; i < src.length; i++) sum += g.weight(src[i], dest[i]);
+        this.weight = sum;
+    }
+
+    /**
+     * Computes the minimum spanning forest with parallel Boruvka.
+     *
+     * @param g       - the graph
+     * @param threads - the number of threads
+     * @return WGraph_MST
+     */
+    public static WGraph_MST boruvka(WGraph_CSR g, int threads) {
+        final int n = g.n;
+        final int[] off = g.off, ni = g.ni;
+        final int[] from = new int[off[n]];
+        WGraph_Parallel.forEach(n, threads, v -> Arrays.fill(from, off[v], off[v + 1], v));
+
+        final int[] parent = new int[n], rank = new int[n], comp = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+            comp[v] = v;
+        }
+        final AtomicIntegerArray best = new AtomicIntegerArray(n);
+        int[] src = new int[Math.max(n - 1, 0)], dest = new int[Math.max(n - 1, 0)];
+        int size = 0;
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int v = 0; v < n; v++) best.set(v, -1);
+            // Every vertex offers its lightest edge leaving its component:
+            WGraph_Parallel.forEach(n, threads, v -> {
+                int c = comp[v], mine = -1;
+                for (int e = off[v]; e < off[v + 1]; e++) {
+                    if (comp[ni[e]] != c && (mine < 0 || lighter(g, from, e, mine))) mine = e;
+                }
+                if (mine < 0) return;
+                while (true) {
+                    int cur = best.get(c);
+                    if (cur >= 0 && !lighter(g, from, mine, cur)) break;
+                    if (best.compareAndSet(c, cur, mine)) break;
+                }
+            });
+            for (int c = 0; c < n; c++) {
+                int e = best.get(c);
+                if (e < 0) continue;
+                int a = WGraph_Util.find(parent, from[e]), b = WGraph_Util.find(parent, ni[e]);
+                if (a == b) continue;
+                if (rank[a] < rank[b]) parent[a] = b;
+                else if (rank[a] > rank[b]) parent[b] = a;
+                else {
+                    parent[b] = a;
+                    rank[a]++;
+                }
+                src[size] = from[e];
+                dest[size++] = ni[e];
+                merged = true;
+            }
+            WGraph_Parallel.forEach(n, threads, v -> {
+                int r = v;
+                while (parent[r] != r) r = parent[r];
+                comp[v] = r;
+            });
+        }
+        return new WGraph_MST(g, Arrays.copyOf(src, size), Arrays.copyOf(dest, size));
+    }
+
+    /**
+     * Computes the minimum spanning forest with (sequential) Kruskal.
+     *
+     * @param g - the graph
+     * @return WGraph_MST
+     */
+    public static WGraph_MST kruskal(WGraph_CSR g) {
+        int n = g.n, m = g.edgeSize();
+        int[] from = new int[m], to = new int[m];
+        double[] w = new double[m];
+        int k = 0;
+        // In CSR order the edges are already sorted by their endpoints,
+        // so a stable sort by weight gives the same tie breaking as Boruvka
+        for (int v = 0; v < n; v++) {
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) {
+                if (v < g.ni[e]) {
+                    from[k] = v;
+                    to[k] = g.ni[e];
+                    w[k++] = g.w[e];
+                }
+            }
+        }
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++) order[i] = i;
+        mergeSort(order, new int[m], w, 0, m);
+
+        int[] parent = new int[n], rank = new int[n];
+        for (int v = 0; v < n; v++) parent[v] = v;
+        int[] src = new int[Math.max(n - 1, 0)], dest = new int[Math.max(n - 1, 0)];
+        int size = 0;
+        for (int i = 0; i < m && size < n - 1; i++) {
+            int e = order[i];
+            int a = WGraph_Util.find(parent, from[e]), b = WGraph_Util.find(parent, to[e]);
+            if (a == b) continue;
+            if (rank[a] < rank[b]) parent[a] = b;
+            else if (rank[a] > rank[b]) parent[b] = a;
+            else {
+                parent[b] = a;
+                rank[a]++;
+            }
+            src[size] = from[e];
+            dest[size++] = to[e];
+        }
+        return new WGraph_MST(g, Arrays.copyOf(src, size), Arrays.copyOf(dest, size));
+    }
+
+    /**
+     * Help function: checks whether half edge e1 is lighter than half edge e2,
+     * ties are broken by the (smaller, larger) endpoints of the edges.
+     */
+    private static boolean lighter(WGraph_CSR g, int[] from, int e1, int e2) {
+        if (g.w[e1] != g.w[e2]) return g.w[e1] < g.w[e2];
+        int a1 = Math.min(from[e1], g.ni[e1]), a2 = Math.min(from[e2], g.ni[e2]);
+        if (a1 != a2) return a1 < a2;
+        return Math.max(from[e1], g.ni[e1]) < Math.max(from[e2], g.ni[e2]);
+    }
+
+    /**
+     * Help function: stable merge sort of the indexes [from, to) by their weights.
+     */
+    private static void mergeSort(int[] a, int[] tmp, double[] w, int from, int to) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, w, from, mid);
+        mergeSort(a, tmp, w, mid, to);
+        if (w[a[mid - 1]] <= w[a[mid]]) return;
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) a[k++] = w[tmp[j]] < w[tmp[i]] ? tmp[j++] : tmp[i++];
+        while (i < mid) a[k++] = tmp[i++];
+        while (j < to) a[k++] = tmp[j++];
+    }
+
+    /**
+     * @return the total weight of the forest
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of edges in the forest
+     */
+    public int edgeSize() {
+        return src.length;
+    }
+
+    /**
+     * Builds the forest as a new graph holding all the vertices of the original graph.
+     *
+     * @return weighted_graph
+     */
+    public weighted_graph getTree() {
+        weighted_graph t = new WGraph_DS();
+        for (int key : g.keys) t.addNode(key);
+        for (int i = 0; i < src.length; i++) {
+            t.connect(g.keys[src[i]], g.keys[dest[i]], g.weight(src[i], dest[i]));
+        }
+        return t;
+    }
+}
@@ -0,0 +1,563 @@
+package ex1.src;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * This class represents an undirectional weighted graph which is stored out of the heap,
+ * in memory-mapped files, so it may be larger than the heap itself.
+ * The graph is kept in a compressed sparse row (CSR) layout:
+ * 0. prefix.keys - the sorted vertex keys (also kept on the heap as the only index)
+ * 1. prefix.off  - the offset of every vertex's neighbor list
+ * 2. prefix.ni   - the neighbor indexes, sorted within each list
+ * 3. prefix.w    - the edge weights
+ * 4. prefix.tag / prefix.info - the temporal tag & info of every vertex (used by the algorithms)
+ * 5. prefix.meta - |V| and |E|
+ *
+ * The graph is read-only: it is built once (see build) and may be reopened later (see open).
+ * It is still a weighted_graph, so it can be given to WGraph_Algo, but only for reading:
+ * addNode, connect, removeNode and removeEdge throw UnsupportedOperationException,
+ * and getMC() is always 0 - nothing keyed by the mode count (e.g. a cached snapshot) sees a change.
+ * Vertices are handed out as lightweight node_info objects which read and write
+ * their tag and info straight from the mapped files.
+ */
+
+public class WGraph_Mapped implements weighted_graph, Closeable {
+
+    private static final String[] SUFFIXES = {".keys", ".off", ".ni", ".w", ".tag", ".info", ".meta"};
+
+    private final int[] keys;
+    private final long e_size;
+    private final Region off, ni, w, tag, info;
+    private final List<String> infos = new ArrayList<>();
+    private final HashMap<String, Integer> infoIndex = new HashMap<>();
+    private final List<RandomAccessFile> files = new ArrayList<>();
+
+    /**
+     * An edge stream which may be traversed more than once (build() traverses it twice).
+     */
+    public interface EdgeStream {
+        void forEach(EdgeVisitor v);
+    }
+
+    public interface EdgeVisitor {
+        void edge(int node1, int node2, double w);
+    }
+
+    /**
+     * Constructor: opens the files of an already built graph.
+     *
+     * @param prefix - the files' path prefix
+     */
+    private WGraph_Mapped(String prefix) throws IOException {
+        try (DataInputStream meta = new DataInputStream(new FileInputStream(prefix + ".meta"))) {
+            int n = meta.readInt();
+            e_size = meta.readLong();
+            long half = meta.readLong();
+            keys = new int[n];
+            Region k = map(prefix + ".keys", 4L * n, FileChannel.MapMode.READ_ONLY);
+            for (int i = 0; i < n; i++) keys[i] = k.getInt(i);
+            off = map(prefix + ".off", 8L * (n + 1), FileChannel.MapMode.READ_ONLY);
+            ni = map(prefix + ".ni", 4L * half, FileChannel.MapMode.READ_ONLY);
+            w = map(prefix + ".w", 8L * half, FileChannel.MapMode.READ_ONLY);
+            tag = map(prefix + ".tag", 8L * n, FileChannel.MapMode.READ_WRITE);
+            info = map(prefix + ".info", 4L * n, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        internInfo("");
+    }
+
+    /**
+     * Opens a graph which was built before with the same prefix.
+     * All the vertices' info is reset to "" (tags keep their last values).
+     *
+     * @param prefix - the files' path prefix
+     * @return WGraph_Mapped
+     */
+    public static WGraph_Mapped open(String prefix) throws IOException {
+        WGraph_Mapped g = new WGraph_Mapped(prefix);
+        for (int i = 0; i < g.keys.length; i++) g.info.putInt(i, 0);
+        return g;
+    }
+
+    /**
+     * Builds a mapped graph from the given vertex keys and edge stream, then opens it.
+     * The stream is traversed twice (degree count, then placement) and only the
+     * vertex keys are held on the heap. Edges with a missing endpoint, a negative weight
+     * or a loop are ignored, and for a repeated edge the last weight wins (as in connect()).
+     *
+     * @param prefix - the files' path prefix
+     * @param nodes  - the vertex keys
+     * @param edges  - the edges
+     * @return WGraph_Mapped
+     */
+    public static WGraph_Mapped build(String prefix, int[] nodes, EdgeStream edges) throws IOException {
+        int[] keys = nodes.clone();
+        Arrays.sort(keys);
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) keys[n++] = keys[i];
+        }
+        final int[] sorted = Arrays.copyOf(keys, n);
+        final long[] half = {0};
+        delete(prefix);
+        List<RandomAccessFile> open = new ArrayList<>();
+        try {
+            Region k = map(prefix + ".keys", 4L * n, FileChannel.MapMode.READ_WRITE, open);
+            for (int i = 0; i < n; i++) k.putInt(i, sorted[i]);
+
+            // 1st pass - counts the degrees into off[v + 1]:
+            final Region off = map(prefix + ".off", 8L * (n + 1), FileChannel.MapMode.READ_WRITE, open);
+            edges.forEach((node1, node2, weight) -> {
+                int a = Arrays.binarySearch(sorted, node1), b = Arrays.binarySearch(sorted, node2);
+                if (a < 0 || b < 0 || a == b || weight < 0) return;
+                off.putLong(a + 1, off.getLong(a + 1) + 1);
+                off.putLong(b + 1, off.getLong(b + 1) + 1);
+                half[0] += 2;
+            });
+            for (int v = 0; v < n; v++) off.putLong(v + 1, off.getLong(v + 1) + off.getLong(v));
+
+            // 2nd pass - places every half edge, off[v] is used as v's cursor:
+            final Region ni = map(prefix + ".ni", 4L * half[0], FileChannel.MapMode.READ_WRITE, open);
+            final Region w = map(prefix + ".w", 8L * half[0], FileChannel.MapMode.READ_WRITE, open);
+            edges.forEach((node1, node2, weight) -> {
+                int a = Arrays.binarySearch(sorted, node1), b = Arrays.binarySearch(sorted, node2);
+                if (a < 0 || b < 0 || a == b || weight < 0) return;
+                long pa = off.getLong(a), pb = off.getLong(b);
+                ni.putInt(pa, b);
+                w.putDouble(pa, weight);
+                ni.putInt(pb, a);
+                w.putDouble(pb, weight);
+                off.putLong(a, pa + 1);
+                off.putLong(b, pb + 1);
+            });
+            for (int v = n; v > 0; v--) off.putLong(v, off.getLong(v - 1));
+            off.putLong(0, 0);
+
+            // Sorts every neighbor list and drops repeated edges (in place):
+            long write = 0;
+            long[] order = new long[16];
+            int[] nb = new int[16];
+            double[] wb = new double[16];
+            for (int v = 0; v < n; v++) {
+                long from = off.getLong(v), to = off.getLong(v + 1);
+                int deg = (int) (to - from);
+                if (order.length < deg) {
+                    order = new long[deg];
+                    nb = new int[deg];
+                    wb = new double[deg];
+                }
+                for (int j = 0; j < deg; j++) {
+                    nb[j] = ni.getInt(from + j);
+                    wb[j] = w.getDouble(from + j);
+                    order[j] = ((long) nb[j] << 32) | j;
+                }
+                Arrays.sort(order, 0, deg);
+                off.putLong(v, write);
+                for (int j = 0; j < deg; j++) {
+                    if (j + 1 < deg && (order[j + 1] >>> 32) == (order[j] >>> 32)) continue;
+                    int pos = (int) order[j];
+                    ni.putInt(write, nb[pos]);
+                    w.putDouble(write, wb[pos]);
+                    write++;
+                }
+            }
+            off.putLong(n, write);
+            map(prefix + ".tag", 8L * n, FileChannel.MapMode.READ_WRITE, open);
+            map(prefix + ".info", 4L * n, FileChannel.MapMode.READ_WRITE, open);
+            try (DataOutputStream meta = new DataOutputStream(new FileOutputStream(prefix + ".meta"))) {
+                meta.writeInt(n);
+                meta.writeLong(write / 2);
+                meta.writeLong(write);
+            }
+        } finally {
+            for (RandomAccessFile f : open) f.close();
+        }
+        return open(prefix);
+    }
+
+    /**
+     * Builds a mapped copy of an in-memory graph.
+     *
+     * @param prefix - the files' path prefix
+     * @param g      - the graph
+     * @return WGraph_Mapped
+     */
+    public static WGraph_Mapped copyOf(String prefix, weighted_graph g) throws IOException {
+        int[] nodes = new int[g.nodeSize()];
+        int i = 0;
+        for (node_info n : g.getV()) nodes[i++] = n.getKey();
+        return build(prefix, nodes, v -> {
+            for (node_info n : g.getV()) {
+                for (node_info ni : g.getV(n.getKey())) {
+                    if (n.getKey() < ni.getKey()) v.edge(n.getKey(), ni.getKey(), g.getEdge(n.getKey(), ni.getKey()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the files of a mapped graph (it should be closed first).
+     *
+     * @param prefix - the files' path prefix
+     */
+    public static void delete(String prefix) {
+        for (String s : SUFFIXES) new File(prefix + s).delete();
+    }
+
+    /**
+     * Help function: returns the index of a vertex by its key (-1 if none).
+     */
+    private int indexOf(int key) {
+        int i = Arrays.binarySearch(keys, key);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Help function: returns the position of b in a's neighbor list (-1 if none).
+     */
+    private long find(int a, int b) {
+        long lo = off.getLong(a), hi = off.getLong(a + 1) - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            int x = ni.getInt(mid);
+            if (x < b) lo = mid + 1;
+            else if (x > b) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Help function: returns the dictionary index of an info string.
+     */
+    private int internInfo(String s) {
+        Integer i = infoIndex.get(s);
+        if (i == null) {
+            i = infos.size();
+            infos.add(s);
+            infoIndex.put(s, i);
+        }
+        return i;
+    }
+
+    /**
+     * This inner class represents a vertex of the mapped graph,
+     * it holds only the vertex's index and reads everything else from the files.
+     */
+
+    private class MappedNode implements node_info, Comparable<node_info> {
+
+        private final int idx;
+
+        // Constructor:
+        public MappedNode(int idx) {
+            this.idx = idx;
+        }
+
+        @Override
+        public int getKey() {
+            return keys[idx];
+        }
+
+        @Override
+        public String getInfo() {
+            return infos.get(info.getInt(idx));
+        }
+
+        @Override
+        public void setInfo(String s) {
+            info.putInt(idx, internInfo(s));
+        }
+
+        @Override
+        public double getTag() {
+            return tag.getDouble(idx);
+        }
+
+        @Override
+        public void setTag(double t) {
+            tag.putDouble(idx, t);
+        }
+
+        @Override
+        public int compareTo(node_info o) {
+            return Double.compare(getTag(), o.getTag());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MappedNode && ((MappedNode) o).idx == idx && ((MappedNode) o).graph() == graph();
+        }
+
+        @Override
+        public int hashCode() {
+            return idx;
+        }
+
+        private WGraph_Mapped graph() {
+            return WGraph_Mapped.this;
+        }
+
+        @Override
+        public String toString() {
+            return "NodeInfo{" + "key = " + getKey() + ", info = '" + getInfo() + '\'' + ", tag = " + getTag() + '}';
+        }
+    }
+
+    /**
+     * Returns the vertex by its unique key (ID).
+     *
+     * @param key - vertex's ID
+     * @return node_info || null (if none)
+     */
+    @Override
+    public node_info getNode(int key) {
+        int i = indexOf(key);
+        return i < 0 ? null : new MappedNode(i);
+    }
+
+    /**
+     * Checks if there's an edge connecting two vertices, O(log(degree)).
+     *
+     * @param node1 - first vertex
+     * @param node2 - second vertex
+     * @return boolean (true/false)
+     */
+    @Override
+    public boolean hasEdge(int node1, int node2) {
+        int a = indexOf(node1), b = indexOf(node2);
+        if (a < 0 || b < 0 || a == b) return false;
+        return find(a, b) >= 0;
+    }
+
+    /**
+     * Return the weight of the edge between two vertices.
+     * If no such edge --> return -1
+     *
+     * @param node1
+     * @param node2
+     * @return double
+     */
+    @Override
+    public double getEdge(int node1, int node2) {
+        int a = indexOf(node1), b = indexOf(node2);
+        if (a < 0 || b < 0 || a == b) return -1;
+        long pos = find(a, b);
+        return pos < 0 ? -1 : w.getDouble(pos);
+    }
+
+    /**
+     * The mapped graph is read-only.
+     */
+    @Override
+    public void addNode(int key) {
+        throw new UnsupportedOperationException("WGraph_Mapped is read-only");
+    }
+
+    /**
+     * The mapped graph is read-only.
+     */
+    @Override
+    public void connect(int node1, int node2, double w) {
+        throw new UnsupportedOperationException("WGraph_Mapped is read-only");
+    }
+
+    /**
+     * Returns a view of all the vertices of the graph.
+     *
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV() {
+        return new AbstractCollection<node_info>() {
+            @Override
+            public Iterator<node_info> iterator() {
+                return new Iterator<node_info>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < keys.length;
+                    }
+
+                    @Override
+                    public node_info next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return new MappedNode(i++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    /**
+     * Returns a view of all the neighbors of the vertex.
+     *
+     * @return Collection<node_info>
+     */
+    @Override
+    public Collection<node_info> getV(int node_id) {
+        int v = indexOf(node_id);
+        final long from = v < 0 ? 0 : off.getLong(v), to = v < 0 ? 0 : off.getLong(v + 1);
+        return new AbstractCollection<node_info>() {
+            @Override
+            public Iterator<node_info> iterator() {
+                return new Iterator<node_info>() {
+                    private long i = from;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < to;
+                    }
+
+                    @Override
+                    public node_info next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return new MappedNode(ni.getInt(i++));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return (int) (to - from);
+            }
+        };
+    }
+
+    /**
+     * The mapped graph is read-only.
+     */
+    @Override
+    public node_info removeNode(int key) {
+        throw new UnsupportedOperationException("WGraph_Mapped is read-only");
+    }
+
+    /**
+     * The mapped graph is read-only.
+     */
+    @Override
+    public void removeEdge(int node1, int node2) {
+        throw new UnsupportedOperationException("WGraph_Mapped is read-only");
+    }
+
+    @Override
+    public int nodeSize() {
+        return keys.length;
+    }
+
+    /**
+     * @return the number of edges (capped at Integer.MAX_VALUE, see edgeCount())
+     */
+    @Override
+    public int edgeSize() {
+        return (int) Math.min(e_size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the exact number of edges in the graph
+     */
+    public long edgeCount() {
+        return e_size;
+    }
+
+    /**
+     * @return 0 - the graph never changes
+     */
+    @Override
+    public int getMC() {
+        return 0;
+    }
+
+    /**
+     * Closes the mapped files (the mappings themselves are released by the GC).
+     */
+    @Override
+    public void close() throws IOException {
+        for (RandomAccessFile f : files) f.close();
+        files.clear();
+    }
+
+    /**
+     * Represents the graph as a string.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "WGraph_Mapped{|V| = " + keys.length + ", |E| = " + e_size + "}";
+    }
+
+    private Region map(String file, long bytes, FileChannel.MapMode mode) throws IOException {
+        return map(file, bytes, mode, files);
+    }
+
+    /**
+     * Help function: maps the given file (resizing it when writable).
+     */
+    private static Region map(String file, long bytes, FileChannel.MapMode mode, List<RandomAccessFile> open) throws IOException {
+        RandomAccessFile f = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+        open.add(f);
+        if (mode != FileChannel.MapMode.READ_ONLY) f.setLength(bytes);
+        return new Region(f.getChannel(), bytes, mode);
+    }
+
+    /**
+     * This inner class represents a mapped file which may be larger than 2GB,
+     * it is mapped in segments of 1GB.
+     */
+
+    private static final class Region {
+
+        private static final int SHIFT = 30;
+        private static final long MASK = (1L << SHIFT) - 1;
+        private final MappedByteBuffer[] parts;
+
+        // Constructor:
+        public Region(FileChannel ch, long bytes, FileChannel.MapMode mode) throws IOException {
+            parts = new MappedByteBuffer[(int) ((bytes + MASK) >>> SHIFT)];
+            for (int i = 0; i < parts.length; i++) {
+                long start = (long) i << SHIFT;
+                parts[i] = ch.map(mode, start, Math.min(1L << SHIFT, bytes - start));
+            }
+        }
+
+        public int getInt(long i) {
+            long p = i << 2;
+            return parts[(int) (p >>> SHIFT)].getInt((int) (p & MASK));
+        }
+
+        public void putInt(long i, int v) {
+            long p = i << 2;
+            parts[(int) (p >>> SHIFT)].putInt((int) (p & MASK), v);
+        }
+
+        public long getLong(long i) {
+            long p = i << 3;
+            return parts[(int) (p >>> SHIFT)].getLong((int) (p & MASK));
+        }
+
+        public void putLong(long i, long v) {
+            long p = i << 3;
+            parts[(int) (p >>> SHIFT)].putLong((int) (p & MASK), v);
+        }
+
+        public double getDouble(long i) {
+            return Double.longBitsToDouble(getLong(i));
+        }
+
+        public void putDouble(long i, double v) {
+            putLong(i, Double.doubleToRawLongBits(v));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ex1.src;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * This class represents the result of a bounded shortest paths search:
+ * the keys of the found vertices and their distances from the source, sorted by distance.
+ * Two searches are offered, both a Dijkstra which stops as soon as the answer is known
+ * (so only the area around the source is explored):
+ * 0. kNearest(graph, src, k, targets) - the k closest vertices among the targets
+ * 1. withinRadius(graph, src, r) - all the vertices within distance r
+ */
+
+public class WGraph_Nearest {
+
+    private final int[] keys;
+    private final double[] dist;
+
+    // Constructor:
+    private WGraph_Nearest(int[] keys, double[] dist, int size) {
+        this.keys = Arrays.copyOf(keys, size);
+        this.dist = Arrays.copyOf(dist, size);
+    }
+
+    /**
+     * Returns the k vertices among the targets which are the closest to src
+     * (fewer if less than k targets are reachable). src itself counts if it is a target.
+     *
+     * @param g       - the graph
+     * @param src     - start node
+     * @param k       - the number of vertices to find
+     * @param targets - the keys of the candidate vertices
+     * @return WGraph_Nearest || null (if src doesn't exist)
+     */
+    public static WGraph_Nearest kNearest(weighted_graph g, int src, int k, int[] targets) {
+        int[] sorted = targets.clone();
+        Arrays.sort(sorted);
+        return search(g, src, k, Double.POSITIVE_INFINITY, sorted);
+    }
+
+    /**
+     * Returns all the vertices whose distance from src is at most r (src included).
+     *
+     * @param g   - the graph
+     * @param src - start node
+     * @param r   - the radius
+     * @return WGraph_Nearest || null (if src doesn't exist)
+     */
+    public static WGraph_Nearest withinRadius(weighted_graph g, int src, double r) {
+        return search(g, src, Integer.MAX_VALUE, r, null);
+    }
+
+    /**
+     * Help function: Dijkstra from src which settles vertices by increasing distance and stops
+     * once k (target) vertices were found or the next distance is beyond the radius.
+     */
+    private static WGraph_Nearest search(weighted_graph g, int src, int k, double radius, int[] targets) {
+        if (g.getNode(src) == null) return null;
+        HashMap<Integer, Double> best = new HashMap<>();
+        HashSet<Integer> settled = new HashSet<>();
+        WGraph_Heap heap = new WGraph_Heap();
+        int[] keys = new int[16];
+        double[] dist = new double[16];
+        int size = 0;
+        best.put(src, 0.0);
+        heap.push(0, src);
+        while (!heap.isEmpty() && size < k) {
+            double d = heap.topPriority();
+            int u = heap.pop();
+            if (d > radius) break;
+            if (!settled.add(u)) continue;
+            if (targets == null || Arrays.binarySearch(targets, u) >= 0) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                    dist = Arrays.copyOf(dist, size * 2);
+                }
+                keys[size] = u;
+                dist[size++] = d;
+            }
+            for (node_info ni : g.getV(u)) {
+                int v = ni.getKey();
+                if (settled.contains(v)) continue;
+                double nd = d + g.getEdge(u, v);
+                Double cur = best.get(v);
+                if (nd <= radius && (cur == null || nd < cur)) {
+                    best.put(v, nd);
+                    heap.push(nd, v);
+                }
+            }
+        }
+        return new WGraph_Nearest(keys, dist, size);
+    }
+
+    /**
+     * @return the number of found vertices
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return the keys of the found vertices, sorted by their distance
+     */
+    public int[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the distances of the found vertices, matching getKeys()
+     */
+    public double[] getDists() {
+        return dist;
+    }
+}
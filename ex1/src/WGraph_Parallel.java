@@ -0,0 +1,101 @@
+package ex1.src;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * This class holds the fork-join helpers shared by the parallel algorithms:
+ * one pool is kept per requested number of threads and loops are split into
+ * chunks, so every chunk may keep its own primitive accumulators.
+ */
+
+public class WGraph_Parallel {
+
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+    private static final int MIN_CHUNK = 1024;
+
+    /**
+     * Chunk body: handles the indexes [from, to).
+     */
+    public interface Chunk {
+        void run(int from, int to);
+    }
+
+    /**
+     * @return the default number of threads (the number of available cores)
+     */
+    public static int threads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the shared pool with the given number of threads.
+     *
+     * @param threads
+     * @return ForkJoinPool
+     */
+    public static ForkJoinPool pool(int threads) {
+        return pools.computeIfAbsent(Math.max(1, threads), ForkJoinPool::new);
+    }
+
+    /**
+     * Runs body(i) for every i in [0, n), on the given number of threads.
+     *
+     * @param n
+     * @param threads
+     * @param body
+     */
+    public static void forEach(int n, int threads, IntConsumer body) {
+        forEach(n, threads, MIN_CHUNK, body);
+    }
+
+    /**
+     * Runs body(i) for every i in [0, n), on the given number of threads,
+     * with at least grain indexes per chunk (1 for a few heavy tasks).
+     *
+     * @param n
+     * @param threads
+     * @param grain
+     * @param body
+     */
+    public static void forEach(int n, int threads, int grain, IntConsumer body) {
+        forChunks(n, threads, grain, (from, to) -> {
+            for (int i = from; i < to; i++) body.accept(i);
+        });
+    }
+
+    /**
+     * Splits [0, n) into chunks and runs them on the given number of threads
+     * (in the calling thread when there is a single thread or a single chunk).
+     *
+     * @param n
+     * @param threads
+     * @param body
+     */
+    public static void forChunks(int n, int threads, Chunk body) {
+        forChunks(n, threads, MIN_CHUNK, body);
+    }
+
+    /**
+     * Splits [0, n) into chunks of at least grain indexes and runs them on the given number of threads.
+     *
+     * @param n
+     * @param threads
+     * @param grain
+     * @param body
+     */
+    public static void forChunks(int n, int threads, int grain, Chunk body) {
+        if (n <= 0) return;
+        grain = Math.max(1, grain);
+        int chunks = (int) Math.min(threads * 4L, (n + (long) grain - 1) / grain);
+        if (threads <= 1 || chunks <= 1) {
+            body.run(0, n);
+            return;
+        }
+        int size = (n + chunks - 1) / chunks;
+        pool(threads).submit(() -> IntStream.range(0, chunks).parallel()
+                .forEach(c -> body.run(c * size, Math.min(n, (c + 1) * size)))).join();
+    }
+}
@@ -0,0 +1,323 @@
+package ex1.src;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class represents a balanced partition of a graph's vertices into k parts with few cut edges,
+ * computed by a multilevel scheme:
+ * 0. Coarsening - heavy edge matching: every vertex is merged with the unmatched neighbor it shares
+ * the most (already merged) edges with, until the graph is small or stops shrinking.
+ * 1. Initial partition - greedy BFS growing of the parts on the coarsest graph (a few random starts,
+ * the smallest cut wins).
+ * 2. Uncoarsening - the partition is projected back level by level and refined on every level by
+ * greedy boundary moves (positive gain, or a better balance) within the balance limit.
+ *
+ * The cut is counted in edges (the weights are distances, not connection strengths).
+ * The parts are returned as an array by the graph's dense indexes (see WGraph_CSR.key).
+ */
+
+public class WGraph_Partition {
+
+    // The allowed imbalance: a part may weigh up to (1 + IMBALANCE) * n / k
+    private static final double IMBALANCE = 0.03;
+    private static final int COARSEST_PER_PART = 15, TRIES = 4, PASSES = 8;
+
+    private final int k;
+    private final int[] part;
+    private final long edgeCut;
+    private final double balance;
+
+    // Constructor:
+    private WGraph_Partition(WGraph_CSR g, int k, int[] part) {
+        this.k = k;
+        this.part = part;
+        long cut = 0;
+        int[] size = new int[k];
+        for (int v = 0; v < g.n; v++) {
+            size[part[v]]++;
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) if (v < g.ni[e] && part[v] != part[g.ni[e]]) cut++;
+        }
+        int max = 0;
+        for (int s : size) max = Math.max(max, s);
+        this.edgeCut = cut;
+        this.balance = g.n == 0 ? 1 : (double) max * k / g.n;
+    }
+
+    /**
+     * A level of the coarsening: a graph with vertex & edge weights
+     * (the number of original vertices / edges merged into them).
+     */
+    private static final class Level {
+        final int n;
+        final int[] off, adj, ew, vw;
+        int[] map; // this level's vertex --> the next (coarser) level's vertex
+
+        Level(int n, int[] off, int[] adj, int[] ew, int[] vw) {
+            this.n = n;
+            this.off = off;
+            this.adj = adj;
+            this.ew = ew;
+            this.vw = vw;
+        }
+    }
+
+    /**
+     * Partitions the graph into k parts.
+     *
+     * @param g    - the graph
+     * @param k    - the number of parts
+     * @param seed - the random seed
+     * @return WGraph_Partition
+     */
+    public static WGraph_Partition compute(WGraph_CSR g, int k, long seed) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive");
+        if (k == 1 || g.n <= k) {
+            int[] part = new int[g.n];
+            for (int v = 0; v < g.n; v++) part[v] = v % k;
+            return new WGraph_Partition(g, k, part);
+        }
+        Random rand = new Random(seed);
+        int[] ones = new int[g.off[g.n]], vw = new int[g.n];
+        Arrays.fill(ones, 1);
+        Arrays.fill(vw, 1);
+        Level[] levels = new Level[8];
+        int depth = 0;
+        levels[depth++] = new Level(g.n, g.off, g.ni, ones, vw);
+        int target = Math.max(COARSEST_PER_PART * k, 64);
+        while (levels[depth - 1].n > target) {
+            Level coarse = coarsen(levels[depth - 1], g.n / (double) target, rand);
+            if (coarse.n > 0.95 * levels[depth - 1].n) break;
+            if (depth == levels.length) levels = Arrays.copyOf(levels, depth * 2);
+            levels[depth++] = coarse;
+        }
+
+        Level coarsest = levels[depth - 1];
+        int[] part = null;
+        long best = Long.MAX_VALUE;
+        for (int t = 0; t < TRIES; t++) {
+            int[] p = grow(coarsest, k, rand.nextInt(coarsest.n));
+            refine(coarsest, k, p);
+            long cut = cut(coarsest, p);
+            if (cut < best) {
+                best = cut;
+                part = p;
+            }
+        }
+        for (int l = depth - 2; l >= 0; l--) {
+            Level fine = levels[l];
+            int[] p = new int[fine.n];
+            for (int v = 0; v < fine.n; v++) p[v] = part[fine.map[v]];
+            refine(fine, k, p);
+            part = p;
+        }
+        return new WGraph_Partition(g, k, part);
+    }
+
+    /**
+     * Help function: heavy edge matching, then contraction of the matched pairs.
+     */
+    private static Level coarsen(Level f, double maxVertexWeight, Random rand) {
+        int n = f.n;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1), tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+        for (int u : order) {
+            if (match[u] >= 0) continue;
+            int best = u, bestW = 0;
+            for (int e = f.off[u]; e < f.off[u + 1]; e++) {
+                int v = f.adj[e];
+                if (match[v] < 0 && v != u && f.ew[e] > bestW && f.vw[u] + f.vw[v] <= maxVertexWeight) {
+                    best = v;
+                    bestW = f.ew[e];
+                }
+            }
+            match[u] = best;
+            match[best] = u;
+        }
+        int[] map = new int[n];
+        int cn = 0;
+        for (int u = 0; u < n; u++) {
+            if (match[u] >= u) {
+                map[u] = cn;
+                map[match[u]] = cn++;
+            }
+        }
+        // Contraction: merges the neighbor lists of every pair, summing the parallel edges
+        int[] off = new int[cn + 1], adj = new int[f.off[n]], ew = new int[f.off[n]], vw = new int[cn], where = new int[cn];
+        Arrays.fill(where, -1);
+        int size = 0;
+        for (int u = 0; u < n; u++) {
+            if (match[u] < u) continue;
+            int c = map[u], start = size;
+            off[c] = start;
+            for (int x = u; ; x = match[u]) {
+                vw[c] += f.vw[x];
+                for (int e = f.off[x]; e < f.off[x + 1]; e++) {
+                    int cv = map[f.adj[e]];
+                    if (cv == c) continue;
+                    if (where[cv] >= start) ew[where[cv]] += f.ew[e];
+                    else {
+                        where[cv] = size;
+                        adj[size] = cv;
+                        ew[size++] = f.ew[e];
+                    }
+                }
+                if (x == match[u]) break;
+            }
+        }
+        off[cn] = size;
+        f.map = map;
+        return new Level(cn, off, Arrays.copyOf(adj, size), Arrays.copyOf(ew, size), vw);
+    }
+
+    /**
+     * Help function: grows the parts one after the other by BFS from a seed vertex
+     * until each reaches its share of the weight, the last part takes the rest.
+     */
+    private static int[] grow(Level g, int k, int seed) {
+        int[] part = new int[g.n], queue = new int[g.n];
+        Arrays.fill(part, -1);
+        long total = 0;
+        for (int v = 0; v < g.n; v++) total += g.vw[v];
+        int next = 0;
+        for (int p = 0; p < k - 1; p++) {
+            long weight = 0, share = total * (p + 1) / k - total * p / k;
+            int head = 0, tail = 0;
+            while (weight < share) {
+                if (head == tail) {
+                    // A new seed (at start, or when the region's component is exhausted)
+                    int s = part[seed] < 0 ? seed : -1;
+                    while (s < 0 && next < g.n) if (part[next++] < 0) s = next - 1;
+                    if (s < 0) break;
+                    part[s] = p;
+                    weight += g.vw[s];
+                    queue[tail++] = s;
+                    continue;
+                }
+                int u = queue[head++];
+                for (int e = g.off[u]; e < g.off[u + 1] && weight < share; e++) {
+                    int v = g.adj[e];
+                    if (part[v] >= 0) continue;
+                    part[v] = p;
+                    weight += g.vw[v];
+                    queue[tail++] = v;
+                }
+            }
+            // The next part starts next to this one
+            for (int i = tail - 1; i >= 0 && part[seed] >= 0; i--) {
+                int u = queue[i];
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    if (part[g.adj[e]] < 0) {
+                        seed = g.adj[e];
+                        break;
+                    }
+                }
+            }
+        }
+        for (int v = 0; v < g.n; v++) if (part[v] < 0) part[v] = k - 1;
+        return part;
+    }
+
+    /**
+     * Help function: greedy boundary refinement - moves a vertex to the neighboring part it has the
+     * most edges into if that lowers the cut (or keeps it and improves the balance) without
+     * overloading the part, and moves vertices out of overloaded parts at the smallest loss.
+     */
+    private static void refine(Level g, int k, int[] part) {
+        long total = 0;
+        long[] weight = new long[k];
+        for (int v = 0; v < g.n; v++) {
+            total += g.vw[v];
+            weight[part[v]] += g.vw[v];
+        }
+        double max = Math.max((1 + IMBALANCE) * total / k, (double) total / k + 1);
+        long[] conn = new long[k];
+        int[] touched = new int[k];
+        for (int pass = 0; pass < PASSES; pass++) {
+            int moves = 0;
+            for (int u = 0; u < g.n; u++) {
+                int from = part[u], count = 0;
+                boolean boundary = false;
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    int q = part[g.adj[e]];
+                    if (q != from) boundary = true;
+                    if (conn[q] == 0) touched[count++] = q;
+                    conn[q] += g.ew[e];
+                }
+                boolean overloaded = weight[from] > max;
+                if (boundary || overloaded) {
+                    int to = -1;
+                    long gain = Long.MIN_VALUE;
+                    for (int i = 0; i < count; i++) {
+                        int q = touched[i];
+                        if (q == from || weight[q] + g.vw[u] > max) continue;
+                        long gq = conn[q] - conn[from];
+                        if (gq > gain || (gq == gain && weight[q] < weight[to])) {
+                            gain = gq;
+                            to = q;
+                        }
+                    }
+                    if (to < 0 && overloaded) {
+                        // No room next to it: the lightest part
+                        to = 0;
+                        for (int q = 1; q < k; q++) if (weight[q] < weight[to]) to = q;
+                        gain = conn[to] - conn[from];
+                        if (to == from) to = -1;
+                    }
+                    if (to >= 0 && (gain > 0 || overloaded
+                            || (gain == 0 && weight[from] - g.vw[u] > weight[to] + g.vw[u]))) {
+                        part[u] = to;
+                        weight[from] -= g.vw[u];
+                        weight[to] += g.vw[u];
+                        moves++;
+                    }
+                }
+                for (int i = 0; i < count; i++) conn[touched[i]] = 0;
+            }
+            if (moves == 0) break;
+        }
+    }
+
+    private static long cut(Level g, int[] part) {
+        long cut = 0;
+        for (int v = 0; v < g.n; v++) {
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) if (v < g.adj[e] && part[v] != part[g.adj[e]]) cut += g.ew[e];
+        }
+        return cut;
+    }
+
+    /**
+     * @return the part of every vertex by index (0..k-1)
+     */
+    public int[] getParts() {
+        return part;
+    }
+
+    /**
+     * @return the number of parts
+     */
+    public int parts() {
+        return k;
+    }
+
+    /**
+     * @return the number of edges between different parts
+     */
+    public long edgeCut() {
+        return edgeCut;
+    }
+
+    /**
+     * @return the size of the largest part divided by the average size (1 = perfect balance)
+     */
+    public double balance() {
+        return balance;
+    }
+}
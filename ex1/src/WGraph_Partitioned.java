@@ -0,0 +1,173 @@
+package ex1.src;
+
+import ex1.src.WGraph_Util.IntList;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a graph split into parts (see WGraph_Partition) which the algorithms
+ * process part-parallel: every part is handled by one task which only writes the state of its
+ * own vertices, and whatever crosses a cut edge is exchanged between the parts at the end of
+ * every round (the boundary exchange):
+ * 0. bfs(src) - level synchronous BFS, every part sends the cut neighbors of its frontier to their parts
+ * 1. components() - every part labels its own components, then the cut edges merge them
+ */
+
+public class WGraph_Partitioned {
+
+    private final WGraph_CSR g;
+    private final int k;
+    private final int[] part;
+    // The vertices of every part, and its cut edges (pairs of indexes, the lower index is in the part)
+    private final int[][] vertices, cut;
+    private long[] roundMessages = new long[0];
+
+    /**
+     * Constructor: groups the vertices and the cut edges by part.
+     *
+     * @param g         - the graph
+     * @param partition - the partition of its vertices
+     */
+    public WGraph_Partitioned(WGraph_CSR g, WGraph_Partition partition) {
+        this.g = g;
+        this.k = partition.parts();
+        this.part = partition.getParts();
+        int[] size = new int[k], cuts = new int[k];
+        for (int v = 0; v < g.n; v++) {
+            size[part[v]]++;
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) if (v < g.ni[e] && part[g.ni[e]] != part[v]) cuts[part[v]]++;
+        }
+        vertices = new int[k][];
+        cut = new int[k][];
+        for (int p = 0; p < k; p++) {
+            vertices[p] = new int[size[p]];
+            cut[p] = new int[2 * cuts[p]];
+        }
+        Arrays.fill(size, 0);
+        Arrays.fill(cuts, 0);
+        for (int v = 0; v < g.n; v++) {
+            int p = part[v];
+            vertices[p][size[p]++] = v;
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) {
+                if (v < g.ni[e] && part[g.ni[e]] != p) {
+                    cut[p][cuts[p]++] = v;
+                    cut[p][cuts[p]++] = g.ni[e];
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the number of edges on the shortest (unweighted) path from src to every vertex.
+     *
+     * @param src     - the source's index
+     * @param threads - the number of threads
+     * @return int[] - by vertex index (-1 if unreachable)
+     */
+    public int[] bfs(int src, int threads) {
+        final int[] dist = new int[g.n];
+        Arrays.fill(dist, -1);
+        final IntList[] frontier = new IntList[k], next = new IntList[k];
+        // outbox[p][q] - the vertices of part q reached from part p in this round
+        final IntList[][] outbox = new IntList[k][k];
+        for (int p = 0; p < k; p++) {
+            frontier[p] = new IntList();
+            next[p] = new IntList();
+            for (int q = 0; q < k; q++) outbox[p][q] = new IntList();
+        }
+        dist[src] = 0;
+        frontier[part[src]].add(src);
+        long[] messages = new long[16];
+        int rounds = 0;
+        boolean more = true;
+        for (int level = 0; more; level++) {
+            final int d = level + 1;
+            WGraph_Parallel.forEach(k, threads, 1, p -> {
+                IntList in = frontier[p], out = next[p];
+                for (int i = 0; i < in.size; i++) {
+                    int u = in.data[i];
+                    for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                        int v = g.ni[e], q = part[v];
+                        if (q != p) outbox[p][q].add(v);
+                        else if (dist[v] < 0) {
+                            dist[v] = d;
+                            out.add(v);
+                        }
+                    }
+                }
+            });
+            // The boundary exchange: every part takes the vertices sent to it
+            long sent = 0;
+            for (int p = 0; p < k; p++) for (int q = 0; q < k; q++) sent += outbox[p][q].size;
+            WGraph_Parallel.forEach(k, threads, 1, q -> {
+                for (int p = 0; p < k; p++) {
+                    IntList box = outbox[p][q];
+                    for (int i = 0; i < box.size; i++) {
+                        int v = box.data[i];
+                        if (dist[v] < 0) {
+                            dist[v] = d;
+                            next[q].add(v);
+                        }
+                    }
+                    box.size = 0;
+                }
+            });
+            if (rounds == messages.length) messages = Arrays.copyOf(messages, rounds * 2);
+            messages[rounds++] = sent;
+            more = false;
+            for (int p = 0; p < k; p++) {
+                IntList tmp = frontier[p];
+                frontier[p] = next[p];
+                next[p] = tmp;
+                next[p].size = 0;
+                if (frontier[p].size > 0) more = true;
+            }
+        }
+        roundMessages = Arrays.copyOf(messages, rounds);
+        return dist;
+    }
+
+    /**
+     * Computes the connected components: every part runs union-find over its inner edges
+     * in parallel, then the cut edges are merged.
+     *
+     * @param threads - the number of threads
+     * @return int[] - the component of every vertex by index (the smallest index in it)
+     */
+    public int[] components(int threads) {
+        final int[] parent = new int[g.n];
+        for (int v = 0; v < g.n; v++) parent[v] = v;
+        WGraph_Parallel.forEach(k, threads, 1, p -> {
+            for (int u : vertices[p]) {
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    int v = g.ni[e];
+                    if (u < v && part[v] == p) WGraph_Util.union(parent, u, v);
+                }
+            }
+        });
+        long sent = 0;
+        for (int p = 0; p < k; p++) {
+            for (int i = 0; i < cut[p].length; i += 2) WGraph_Util.union(parent, cut[p][i], cut[p][i + 1]);
+            sent += cut[p].length / 2;
+        }
+        roundMessages = new long[]{sent};
+        // The roots are the smallest indexes (union keeps the smaller root)
+        int[] comp = new int[g.n];
+        for (int v = 0; v < g.n; v++) comp[v] = WGraph_Util.find(parent, v);
+        return comp;
+    }
+
+    /**
+     * @return the number of vertices exchanged between the parts in every round of the last run
+     */
+    public long[] getRoundMessages() {
+        return roundMessages;
+    }
+
+    /**
+     * @return the vertex indexes of every part
+     */
+    public int[][] getVertices() {
+        return vertices;
+    }
+}
@@ -0,0 +1,118 @@
+package ex1.src;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents a path as primitive arrays: the keys of its vertices, from the source
+ * to the destination, and the distance of every vertex from the source along the path
+ * (so getDists()[i + 1] - getDists()[i] is the weight of the i-th hop).
+ * It is filled from the primitive predecessor array of a Dijkstra over a WGraph_CSR snapshot,
+ * and asList(graph) adapts it lazily to a List<node_info> for the callers which need one.
+ */
+
+public class WGraph_Path {
+
+    private final int[] keys;
+    private final double[] dist;
+
+    // Constructor:
+    private WGraph_Path(int[] keys, double[] dist) {
+        this.keys = keys;
+        this.dist = dist;
+    }
+
+    /**
+     * Finds the shortest path between two vertices (Dijkstra which stops once dest is settled).
+     *
+     * @param g    - the graph
+     * @param src  - start node (key)
+     * @param dest - end (target) node (key)
+     * @return WGraph_Path || null (if no such path or vertex)
+     */
+    public static WGraph_Path shortest(WGraph_CSR g, int src, int dest) {
+        int s = g.indexOf(src), t = g.indexOf(dest);
+        if (s < 0 || t < 0) return null;
+        double[] d = new double[g.n];
+        int[] prev = new int[g.n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        d[s] = 0;
+        prev[s] = -1;
+        WGraph_Heap heap = new WGraph_Heap();
+        heap.push(0, s);
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            if (du > d[u]) continue;
+            if (u == t) break;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (du + g.w[e] < d[v]) {
+                    d[v] = du + g.w[e];
+                    prev[v] = u;
+                    heap.push(d[v], v);
+                }
+            }
+        }
+        if (d[t] == Double.POSITIVE_INFINITY) return null;
+        int len = 1;
+        for (int v = t; v != s; v = prev[v]) len++;
+        int[] keys = new int[len];
+        double[] dist = new double[len];
+        for (int v = t, i = len - 1; i >= 0; v = prev[v], i--) {
+            keys[i] = g.keys[v];
+            dist[i] = d[v];
+        }
+        return new WGraph_Path(keys, dist);
+    }
+
+    /**
+     * @return the number of vertices on the path
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return the keys of the vertices, from the source to the destination
+     */
+    public int[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the distance of every vertex of the path from the source
+     */
+    public double[] getDists() {
+        return dist;
+    }
+
+    /**
+     * @return the total weight of the path
+     */
+    public double length() {
+        return dist[dist.length - 1];
+    }
+
+    /**
+     * Returns a read-only List<node_info> view of the path, the vertices are looked up
+     * in the graph only when they are accessed.
+     *
+     * @param g - the graph the path was computed on
+     * @return List<node_info>
+     */
+    public List<node_info> asList(weighted_graph g) {
+        return new AbstractList<node_info>() {
+            @Override
+            public node_info get(int i) {
+                return g.getNode(keys[i]);
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package ex1.src;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * This class represents a connection to a WGraph_QueryService, and its load generator:
+ * a number of clients, each on its own connection and thread, send random requests
+ * out of a given list back to back, and the latency of every request is recorded.
+ */
+
+public class WGraph_QueryClient implements Closeable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * Constructor: connects to the service on the given localhost port.
+     *
+     * @param port - the service's port
+     * @throws IOException - if it can't connect
+     */
+    public WGraph_QueryClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a request and waits for its response.
+     *
+     * @param request - a request line (see WGraph_QueryService)
+     * @return the response line
+     * @throws IOException - if the connection failed
+     */
+    public String query(String request) throws IOException {
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String line = in.readLine();
+        if (line == null) throw new EOFException("the service closed the connection");
+        return line;
+    }
+
+    /**
+     * @param src  - the source's key
+     * @param dest - the destination's key
+     * @return the shortest path distance || -1 (if none)
+     * @throws IOException - if the connection failed
+     */
+    public double shortestPathDist(int src, int dest) throws IOException {
+        return Double.parseDouble(query("DIST " + src + " " + dest));
+    }
+
+    /**
+     * @param src  - the source's key
+     * @param dest - the destination's key
+     * @return the keys of the shortest path from src to dest || null (if none)
+     * @throws IOException - if the connection failed
+     */
+    public int[] shortestPath(int src, int dest) throws IOException {
+        String line = query("PATH " + src + " " + dest);
+        if (line.equals("null")) return null;
+        String[] parts = line.split(" ");
+        int[] keys = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) keys[i] = Integer.parseInt(parts[i]);
+        return keys;
+    }
+
+    /**
+     * @return true iff the graph is connected
+     * @throws IOException - if the connection failed
+     */
+    public boolean isConnected() throws IOException {
+        return Boolean.parseBoolean(query("CONNECTED"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Generates load: every client sends the given number of random requests out of the list.
+     *
+     * @param port     - the service's port
+     * @param clients  - the number of concurrent clients
+     * @param requests - the number of requests of every client
+     * @param list     - the requests to choose from
+     * @param seed     - the random seed
+     * @return the latency of every request in nanoseconds (clients * requests)
+     * @throws IOException - if a connection failed
+     */
+    public static long[] load(int port, int clients, int requests, String[] list, long seed) throws IOException {
+        long[] latency = new long[clients * requests];
+        IOException[] failure = new IOException[1];
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            threads[c] = new Thread(() -> {
+                Random rand = new Random(seed + client);
+                try (WGraph_QueryClient q = new WGraph_QueryClient(port)) {
+                    for (int i = 0; i < requests; i++) {
+                        String request = list[rand.nextInt(list.length)];
+                        long start = System.nanoTime();
+                        q.query(request);
+                        latency[client * requests + i] = System.nanoTime() - start;
+                    }
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            threads[c].start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        if (failure[0] != null) throw failure[0];
+        return latency;
+    }
+}
@@ -0,0 +1,414 @@
+package ex1.src;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents an embeddable query service over a read-only snapshot of a graph (see WGraph_CSR),
+ * so the queries don't touch the vertices' tags and run concurrently. It listens on a localhost socket
+ * and answers one request per line (see WGraph_QueryClient):
+ * 0. DIST src dest - the shortest path distance (-1 if none)
+ * 1. PATH src dest - the keys of the shortest path separated by spaces (null if none)
+ * 2. CONNECTED - whether the graph is connected
+ * Every connection is served on a virtual thread on Java 21+ (a thread of a cached pool otherwise).
+ * Identical requests in flight are coalesced - computed once, answered to all - and the requests from
+ * the same source are micro-batched: while a search from a source runs, the requests which arrive for it
+ * wait and are answered together by the next single search, which stops once all their targets are settled
+ * and is run by the first of them (every leader runs one search, then answers its own client).
+ */
+
+public class WGraph_QueryService implements Closeable {
+
+    private final WGraph_CSR g;
+    private final boolean coalesce, batch;
+    private final ServerSocket server;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Batch> batches = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Scratch> scratches = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requests = new AtomicLong(), coalesced = new AtomicLong(), searches = new AtomicLong();
+    private volatile Boolean connected;
+
+    /**
+     * Constructor: takes the snapshot and starts listening on a free localhost port,
+     * with coalescing and micro-batching.
+     *
+     * @param g - the graph (later changes aren't seen by the service)
+     * @throws IOException - if the socket can't be opened
+     */
+    public WGraph_QueryService(weighted_graph g) throws IOException {
+        this(WGraph_CSR.of(g), true, true);
+    }
+
+    /**
+     * Constructor: starts listening on a free localhost port.
+     *
+     * @param g        - the graph's snapshot
+     * @param coalesce - whether identical requests in flight are computed once
+     * @param batch    - whether the requests from the same source share searches
+     * @throws IOException - if the socket can't be opened
+     */
+    public WGraph_QueryService(WGraph_CSR g, boolean coalesce, boolean batch) throws IOException {
+        this.g = g;
+        this.coalesce = coalesce;
+        this.batch = batch;
+        ExecutorService ex = virtualExecutor();
+        this.virtual = ex != null;
+        this.executor = ex != null ? ex : Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "WGraph_QueryService");
+            t.setDaemon(true);
+            return t;
+        });
+        this.server = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "WGraph_QueryService-" + server.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Help function: a virtual thread per task executor, looked up reflectively
+     * (it exists from Java 21) || null (if none).
+     */
+    private static ExecutorService virtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket s = server.accept();
+                executor.execute(() -> serve(s));
+            } catch (IOException | RejectedExecutionException e) {
+                // closed
+                return;
+            }
+        }
+    }
+
+    /**
+     * Help function: answers the requests of one connection, in order.
+     */
+    private void serve(Socket s) {
+        try (Socket socket = s) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(execute(line));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // the client went away
+        }
+    }
+
+    /**
+     * Executes a request in the calling thread (the socket connections use it as well).
+     *
+     * @param request - a request line
+     * @return the response line (ERR and a message for a bad request)
+     */
+    public String execute(String request) {
+        requests.incrementAndGet();
+        String[] parts = request.trim().split("\\s+");
+        try {
+            switch (parts[0]) {
+                case "CONNECTED":
+                    return String.valueOf(isConnected());
+                case "DIST":
+                case "PATH":
+                    if (parts.length != 3) return "ERR usage: " + parts[0] + " src dest";
+                    boolean path = parts[0].equals("PATH");
+                    int src = Integer.parseInt(parts[1]), dest = Integer.parseInt(parts[2]);
+                    if (!coalesce) return query(src, dest, path);
+                    String key = (path ? "P " : "D ") + src + " " + dest;
+                    CompletableFuture<String> mine = new CompletableFuture<>();
+                    CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+                    if (running != null) {
+                        coalesced.incrementAndGet();
+                        return running.get();
+                    }
+                    try {
+                        mine.complete(query(src, dest, path));
+                    } catch (RuntimeException e) {
+                        mine.completeExceptionally(e);
+                    } finally {
+                        // Even on an Error the coalesced requests get an answer
+                        if (!mine.isDone()) mine.completeExceptionally(new IllegalStateException("the query failed"));
+                        inFlight.remove(key, mine);
+                    }
+                    return mine.get();
+                default:
+                    return "ERR unknown request: " + parts[0];
+            }
+        } catch (NumberFormatException e) {
+            return "ERR bad key: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERR interrupted";
+        } catch (ExecutionException e) {
+            return "ERR " + e.getCause();
+        }
+    }
+
+    /**
+     * Help function: answers a DIST / PATH request - through the source's batch, or by its own search.
+     */
+    private String query(int src, int dest, boolean path) throws InterruptedException, ExecutionException {
+        int s = g.indexOf(src), t = g.indexOf(dest);
+        if (s < 0 || t < 0) return path ? "null" : "-1";
+        Request r = new Request(t, path);
+        if (!batch) {
+            search(s, new ArrayList<>(Arrays.asList(r)));
+            return r.future.get();
+        }
+        while (true) {
+            Batch b = batches.computeIfAbsent(s, Batch::new);
+            boolean leader;
+            synchronized (b) {
+                if (b.closed) continue;
+                b.waiting.add(r);
+                leader = !b.running;
+                b.running = true;
+            }
+            if (!leader) {
+                // Wait for the answer, or for the leader to hand over the next search
+                CompletableFuture.anyOf(r.future, r.turn).get();
+                if (!r.future.isDone()) leader = true;
+            }
+            if (leader) lead(b);
+            return r.future.get();
+        }
+    }
+
+    /**
+     * Help function: runs one search for all the source's waiting requests (the leader's own included),
+     * then hands the leadership to the first request which arrived meanwhile, or closes the batch -
+     * so the leader answers its own client right after the search.
+     */
+    private void lead(Batch b) {
+        ArrayList<Request> take;
+        synchronized (b) {
+            take = b.waiting;
+            b.waiting = new ArrayList<>();
+        }
+        try {
+            search(b.src, take);
+        } finally {
+            synchronized (b) {
+                if (b.waiting.isEmpty()) {
+                    b.running = false;
+                    b.closed = true;
+                    batches.remove(b.src, b);
+                } else b.waiting.get(0).turn.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Help function: Dijkstra from s which stops once all the requests' targets are settled,
+     * then answers them.
+     */
+    private void search(int s, ArrayList<Request> take) {
+        searches.incrementAndGet();
+        Scratch sc = scratches.poll();
+        if (sc == null) sc = new Scratch(g.n);
+        try {
+            int left = 0;
+            for (Request r : take) {
+                if (!sc.target[r.t]) {
+                    sc.target[r.t] = true;
+                    left++;
+                }
+            }
+            sc.visit(s);
+            sc.dist[s] = 0;
+            sc.prev[s] = -1;
+            sc.heap.push(0, s);
+            while (!sc.heap.isEmpty() && left > 0) {
+                double du = sc.heap.topPriority();
+                int u = sc.heap.pop();
+                if (du > sc.dist[u]) continue;
+                if (sc.target[u]) {
+                    sc.target[u] = false;
+                    left--;
+                }
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    int v = g.ni[e];
+                    if (du + g.w[e] < sc.dist[v]) {
+                        sc.visit(v);
+                        sc.dist[v] = du + g.w[e];
+                        sc.prev[v] = u;
+                        sc.heap.push(sc.dist[v], v);
+                    }
+                }
+            }
+            for (Request r : take) {
+                sc.target[r.t] = false;
+                double d = sc.dist[r.t];
+                if (!r.path) r.future.complete(d == Double.POSITIVE_INFINITY ? "-1" : String.valueOf(d));
+                else if (d == Double.POSITIVE_INFINITY) r.future.complete("null");
+                else {
+                    StringBuilder keys = new StringBuilder();
+                    for (int v = r.t; v != -1; v = sc.prev[v]) keys.insert(0, keys.length() == 0 ? "" : " ").insert(0, g.key(v));
+                    r.future.complete(keys.toString());
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Request r : take) r.future.completeExceptionally(e);
+        } finally {
+            // Even on an Error (e.g. OutOfMemoryError) no request of the batch is left waiting
+            for (Request r : take) {
+                if (!r.future.isDone()) r.future.completeExceptionally(new IllegalStateException("the search failed"));
+            }
+            sc.reset();
+            scratches.add(sc);
+        }
+    }
+
+    /**
+     * Help function: whether the snapshot is connected (computed once, it doesn't change).
+     */
+    private boolean isConnected() {
+        Boolean ans = connected;
+        if (ans == null) {
+            // BFS from the first vertex
+            boolean[] seen = new boolean[g.n];
+            int[] queue = new int[g.n];
+            int head = 0, tail = 0;
+            if (g.n > 0) {
+                seen[0] = true;
+                queue[tail++] = 0;
+            }
+            while (head < tail) {
+                int u = queue[head++];
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    if (!seen[g.ni[e]]) {
+                        seen[g.ni[e]] = true;
+                        queue[tail++] = g.ni[e];
+                    }
+                }
+            }
+            connected = ans = tail == g.n;
+        }
+        return ans;
+    }
+
+    /**
+     * @return the port the service listens on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return true if the connections are served on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return the number of requests received
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of requests answered by an identical request in flight
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the number of searches run
+     */
+    public long getSearches() {
+        return searches.get();
+    }
+
+    /**
+     * Stops listening and serving.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * A DIST / PATH request waiting for a search.
+     */
+    private static final class Request {
+        final int t;
+        final boolean path;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        // Completed when the request becomes its batch's leader
+        final CompletableFuture<Void> turn = new CompletableFuture<>();
+
+        Request(int t, boolean path) {
+            this.t = t;
+            this.path = path;
+        }
+    }
+
+    /**
+     * The requests from one source which wait for its next search.
+     */
+    private static final class Batch {
+        final int src;
+        ArrayList<Request> waiting = new ArrayList<>();
+        boolean running, closed;
+
+        Batch(int src) {
+            this.src = src;
+        }
+    }
+
+    /**
+     * The state of a search, reused: only the touched entries are reset.
+     */
+    private static final class Scratch {
+        final double[] dist;
+        final int[] prev;
+        final boolean[] target;
+        final WGraph_Heap heap = new WGraph_Heap();
+        int[] touched = new int[64];
+        int size = 0;
+
+        Scratch(int n) {
+            dist = new double[n];
+            prev = new int[n];
+            target = new boolean[n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        }
+
+        void visit(int v) {
+            if (dist[v] != Double.POSITIVE_INFINITY) return;
+            if (size == touched.length) touched = Arrays.copyOf(touched, size * 2);
+            touched[size++] = v;
+        }
+
+        void reset() {
+            for (int i = 0; i < size; i++) dist[touched[i]] = Double.POSITIVE_INFINITY;
+            size = 0;
+            heap.clear();
+        }
+    }
+}
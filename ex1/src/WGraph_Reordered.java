@@ -0,0 +1,281 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a graph whose vertices were relabeled for memory locality: the vertices
+ * which are visited together get close labels, so their entries in the neighbor and distance
+ * arrays share cache lines. The orders offered:
+ * 0. NONE - the sorted keys (as WGraph_CSR.of)
+ * 1. BFS - breadth first order of every component
+ * 2. RCM - reverse Cuthill-McKee: BFS from a peripheral vertex, neighbors by increasing degree, reversed
+ * 3. DEGREE - by decreasing degree (hubs first)
+ *
+ * The queries take keys and return the results by the original graph's dense indexes
+ * (the sorted keys), the relabeling is applied to their inputs and outputs internally.
+ */
+
+public class WGraph_Reordered {
+
+    public static final int NONE = 0, BFS = 1, RCM = 2, DEGREE = 3;
+
+    private final WGraph_CSR original, g;
+    // label --> original index, original index --> label
+    private final int[] oldIndex, label;
+    private final WGraph_Heap heap = new WGraph_Heap();
+
+    // Constructor:
+    private WGraph_Reordered(WGraph_CSR original, int[] order) {
+        this.original = original;
+        int n = original.n;
+        this.oldIndex = order;
+        this.label = new int[n];
+        for (int i = 0; i < n; i++) label[order[i]] = i;
+        int[] keys = new int[n], off = new int[n + 1], ni = new int[original.off[n]];
+        double[] w = new double[ni.length];
+        long[] pairs = new long[16];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+            int v = order[i], d = original.degree(v);
+            off[i + 1] = off[i] + d;
+            if (pairs.length < d) pairs = new long[d];
+            for (int j = 0; j < d; j++) pairs[j] = ((long) label[original.ni[original.off[v] + j]] << 32) | j;
+            Arrays.sort(pairs, 0, d);
+            for (int j = 0; j < d; j++) {
+                ni[off[i] + j] = (int) (pairs[j] >>> 32);
+                w[off[i] + j] = original.w[original.off[v] + (int) pairs[j]];
+            }
+        }
+        this.g = new WGraph_CSR(keys, off, ni, w);
+    }
+
+    /**
+     * Relabels the vertices of the graph in the given order.
+     *
+     * @param g     - the graph
+     * @param order - one of NONE, BFS, RCM, DEGREE
+     * @return WGraph_Reordered
+     */
+    public static WGraph_Reordered of(WGraph_CSR g, int order) {
+        switch (order) {
+            case NONE:
+                int[] identity = new int[g.n];
+                for (int v = 0; v < g.n; v++) identity[v] = v;
+                return new WGraph_Reordered(g, identity);
+            case BFS:
+                return new WGraph_Reordered(g, bfsOrder(g, false));
+            case RCM:
+                int[] rcm = bfsOrder(g, true);
+                for (int i = 0, j = g.n - 1; i < j; i++, j--) {
+                    int tmp = rcm[i];
+                    rcm[i] = rcm[j];
+                    rcm[j] = tmp;
+                }
+                return new WGraph_Reordered(g, rcm);
+            case DEGREE:
+                long[] byDegree = new long[g.n];
+                for (int v = 0; v < g.n; v++) byDegree[v] = ((long) (Integer.MAX_VALUE - g.degree(v)) << 32) | v;
+                Arrays.sort(byDegree);
+                int[] ans = new int[g.n];
+                for (int i = 0; i < g.n; i++) ans[i] = (int) byDegree[i];
+                return new WGraph_Reordered(g, ans);
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+    }
+
+    /**
+     * Help function: the BFS order of every component. Cuthill-McKee starts every component
+     * from a pseudo-peripheral vertex and visits the neighbors by increasing degree.
+     */
+    private static int[] bfsOrder(WGraph_CSR g, boolean cuthillMcKee) {
+        int n = g.n;
+        int[] order = new int[n], level = new int[n];
+        boolean[] seen = new boolean[n];
+        long[] byDegree = new long[16];
+        int size = 0;
+        for (int s = 0; s < n; s++) {
+            if (seen[s]) continue;
+            int start = cuthillMcKee ? peripheral(g, s, level) : s;
+            int head = size;
+            order[size++] = start;
+            seen[start] = true;
+            while (head < size) {
+                int u = order[head++], count = 0;
+                if (byDegree.length < g.degree(u)) byDegree = new long[g.degree(u)];
+                for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                    int v = g.ni[e];
+                    if (seen[v]) continue;
+                    seen[v] = true;
+                    if (cuthillMcKee) byDegree[count++] = ((long) g.degree(v) << 32) | v;
+                    else order[size++] = v;
+                }
+                Arrays.sort(byDegree, 0, count);
+                for (int i = 0; i < count; i++) order[size++] = (int) byDegree[i];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Help function: a pseudo-peripheral vertex of s's component - repeats BFS from the
+     * farthest (lowest degree) vertex of the last level while the depth grows.
+     */
+    private static int peripheral(WGraph_CSR g, int s, int[] level) {
+        int depth = -1;
+        for (int sweep = 0; sweep < 4; sweep++) {
+            int[] far = new int[]{s, 0};
+            int d = bfsDepth(g, s, level, far);
+            if (d <= depth) break;
+            depth = d;
+            s = far[0];
+        }
+        return s;
+    }
+
+    private static int bfsDepth(WGraph_CSR g, int s, int[] level, int[] far) {
+        // level holds depth + 1 of the vertices visited in this sweep, the queue is reused as a list
+        int[] queue = new int[16];
+        int head = 0, tail = 0, depth = 0;
+        queue[tail++] = s;
+        level[s] = 1;
+        while (head < tail) {
+            int u = queue[head++];
+            depth = level[u] - 1;
+            if (depth > far[1] || (depth == far[1] && g.degree(u) < g.degree(far[0]))) {
+                far[0] = u;
+                far[1] = depth;
+            }
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (level[v] != 0) continue;
+                level[v] = level[u] + 1;
+                if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                queue[tail++] = v;
+            }
+        }
+        for (int i = 0; i < tail; i++) level[queue[i]] = 0;
+        return depth;
+    }
+
+    /**
+     * Computes the distances from src to all the vertices.
+     *
+     * @param src - the source's key
+     * @return double[] - by the original graph's dense index (-1 if unreachable) || null (if no such vertex)
+     */
+    public double[] distances(int src) {
+        int s = original.indexOf(src);
+        if (s < 0) return null;
+        double[] dist = dijkstra(label[s], -1);
+        double[] ans = new double[g.n];
+        for (int i = 0; i < g.n; i++) ans[oldIndex[i]] = dist[i] == Double.POSITIVE_INFINITY ? -1 : dist[i];
+        return ans;
+    }
+
+    /**
+     * Returns the length of the shortest path between two vertices.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return double || -1 (if no such path or vertex)
+     */
+    public double shortestPathDist(int src, int dest) {
+        int s = original.indexOf(src), t = original.indexOf(dest);
+        if (s < 0 || t < 0) return -1;
+        double d = dijkstra(label[s], label[t])[label[t]];
+        return d == Double.POSITIVE_INFINITY ? -1 : d;
+    }
+
+    /**
+     * Computes the number of edges on the shortest path from src to every vertex.
+     *
+     * @param src - the source's key
+     * @return int[] - by the original graph's dense index (-1 if unreachable) || null (if no such vertex)
+     */
+    public int[] bfs(int src) {
+        int s = original.indexOf(src);
+        if (s < 0) return null;
+        int[] hops = new int[g.n], queue = new int[g.n];
+        Arrays.fill(hops, -1);
+        int head = 0, tail = 0;
+        hops[label[s]] = 0;
+        queue[tail++] = label[s];
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (hops[v] < 0) {
+                    hops[v] = hops[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        int[] ans = new int[g.n];
+        for (int i = 0; i < g.n; i++) ans[oldIndex[i]] = hops[i];
+        return ans;
+    }
+
+    /**
+     * Help function: Dijkstra over the relabeled graph, stops once t is settled (t = -1 for all).
+     */
+    private double[] dijkstra(int s, int t) {
+        double[] dist = new double[g.n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[s] = 0;
+        heap.clear();
+        heap.push(0, s);
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            if (du > dist[u]) continue;
+            if (u == t) break;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (du + g.w[e] < dist[v]) {
+                    dist[v] = du + g.w[e];
+                    heap.push(dist[v], v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Returns the average distance between the labels of neighbors - a measure of the locality
+     * (the lower, the fewer cache lines a vertex's neighbors spread over).
+     *
+     * @return double
+     */
+    public double averageGap() {
+        long sum = 0;
+        for (int v = 0; v < g.n; v++) {
+            for (int e = g.off[v]; e < g.off[v + 1]; e++) sum += Math.abs(g.ni[e] - v);
+        }
+        return g.off[g.n] == 0 ? 0 : (double) sum / g.off[g.n];
+    }
+
+    /**
+     * @return the relabeled graph (vertex i is the original key key(i))
+     */
+    public WGraph_CSR getGraph() {
+        return g;
+    }
+
+    /**
+     * @param key - vertex's ID
+     * @return the vertex's new label || -1 (if none)
+     */
+    public int label(int key) {
+        int v = original.indexOf(key);
+        return v < 0 ? -1 : label[v];
+    }
+
+    /**
+     * @param label - a new label
+     * @return the original key of the vertex
+     */
+    public int key(int label) {
+        return original.key(oldIndex[label]);
+    }
+}
@@ -0,0 +1,193 @@
+package ex1.src;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class represents a worker of a sharded graph (see WGraph_Cluster): it owns one part of the
+ * vertices with their edges and answers the coordinator's commands over a localhost socket.
+ * Queries run in rounds: the worker applies the values it received for its vertices, propagates
+ * them inside its part (Dijkstra, the cut edges excluded), and sends back, batched and deduplicated,
+ * the values it found for vertices of other parts. The values only decrease:
+ * 0. DIST - the weighted distance from the source
+ * 1. HOPS - the number of edges from the source
+ * 2. LABEL - the smallest vertex index in the component
+ *
+ * Run as a process (main) it prints its port on the standard output and serves one coordinator.
+ */
+
+public class WGraph_Shard {
+
+    static final byte QUIT = 0, LOAD = 1, START = 2, ROUND = 3, COLLECT = 4;
+    static final byte DIST = 0, HOPS = 1, LABEL = 2;
+
+    // The owned vertices (global indexes, sorted) and their edges: ref >= 0 is an owned vertex,
+    // ref < 0 is the remote vertex remote[-ref - 1]
+    private int[] owned, off, ref, remote;
+    private double[] w;
+    private double[] value, sent, best;
+    // The remote vertices found in this round (the first count slots of outList)
+    private int[] stamp, outList;
+    private int round = 0, count = 0;
+    private byte mode;
+    private final WGraph_Heap heap = new WGraph_Heap();
+
+    public static void main(String[] args) throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        System.out.println(server.getLocalPort());
+        System.out.flush();
+        serve(server);
+    }
+
+    /**
+     * Serves a single coordinator connection on the given server socket, then closes it.
+     *
+     * @param server - a bound server socket
+     */
+    static void serve(ServerSocket server) throws IOException {
+        try (Socket s = server.accept()) {
+            server.close();
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 1 << 16));
+            new WGraph_Shard().run(in, out);
+        }
+    }
+
+    /**
+     * Help function: the command loop.
+     */
+    private void run(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            byte op = in.readByte();
+            if (op == QUIT) return;
+            if (op == LOAD) load(in);
+            else if (op == START) start(in.readByte());
+            else if (op == ROUND) {
+                round(in);
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(remote[outList[i]]);
+                    out.writeDouble(best[outList[i]]);
+                }
+                out.flush();
+            } else if (op == COLLECT) {
+                int size = 0;
+                for (double v : value) if (v < Double.POSITIVE_INFINITY) size++;
+                out.writeInt(size);
+                for (int i = 0; i < owned.length; i++) {
+                    if (value[i] == Double.POSITIVE_INFINITY) continue;
+                    out.writeInt(owned[i]);
+                    out.writeDouble(value[i]);
+                }
+                out.flush();
+            } else throw new IOException("Unknown command: " + op);
+        }
+    }
+
+    /**
+     * Help function: reads the owned vertices and their edges (by global index).
+     */
+    private void load(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        owned = new int[size];
+        off = new int[size + 1];
+        int[][] nbrs = new int[size][];
+        double[][] weights = new double[size][];
+        for (int i = 0; i < size; i++) {
+            owned[i] = in.readInt();
+            int deg = in.readInt();
+            nbrs[i] = new int[deg];
+            weights[i] = new double[deg];
+            for (int j = 0; j < deg; j++) {
+                nbrs[i][j] = in.readInt();
+                weights[i][j] = in.readDouble();
+            }
+            off[i + 1] = off[i] + deg;
+        }
+        ref = new int[off[size]];
+        w = new double[off[size]];
+        HashMap<Integer, Integer> slots = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < nbrs[i].length; j++) {
+                int v = nbrs[i][j], local = Arrays.binarySearch(owned, v);
+                if (local < 0) {
+                    Integer slot = slots.get(v);
+                    if (slot == null) slots.put(v, slot = slots.size());
+                    local = -slot - 1;
+                }
+                ref[off[i] + j] = local;
+                w[off[i] + j] = weights[i][j];
+            }
+        }
+        remote = new int[slots.size()];
+        for (java.util.Map.Entry<Integer, Integer> e : slots.entrySet()) remote[e.getValue()] = e.getKey();
+        value = new double[size];
+        sent = new double[remote.length];
+        best = new double[remote.length];
+        stamp = new int[remote.length];
+        outList = new int[remote.length];
+    }
+
+    /**
+     * Help function: resets the values for a new query.
+     */
+    private void start(byte mode) {
+        this.mode = mode;
+        heap.clear();
+        Arrays.fill(value, Double.POSITIVE_INFINITY);
+        Arrays.fill(sent, Double.POSITIVE_INFINITY);
+        if (mode == LABEL) {
+            for (int i = 0; i < owned.length; i++) {
+                value[i] = owned[i];
+                heap.push(value[i], i);
+            }
+        }
+    }
+
+    /**
+     * Help function: applies the received values and propagates them inside the part,
+     * collecting the best value found for every remote vertex (only if better than what was sent).
+     */
+    private void round(DataInputStream in) throws IOException {
+        round++;
+        count = 0;
+        int size = in.readInt();
+        for (int j = 0; j < size; j++) {
+            int i = Arrays.binarySearch(owned, in.readInt());
+            double x = in.readDouble();
+            if (i >= 0 && x < value[i]) {
+                value[i] = x;
+                heap.push(x, i);
+            }
+        }
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            if (du > value[u]) continue;
+            for (int e = off[u]; e < off[u + 1]; e++) {
+                double x = mode == DIST ? du + w[e] : mode == HOPS ? du + 1 : du;
+                int r = ref[e];
+                if (r >= 0) {
+                    if (x < value[r]) {
+                        value[r] = x;
+                        heap.push(x, r);
+                    }
+                } else {
+                    int slot = -r - 1;
+                    if (x >= sent[slot]) continue;
+                    if (stamp[slot] != round) {
+                        stamp[slot] = round;
+                        outList[count++] = slot;
+                        best[slot] = x;
+                    } else if (x < best[slot]) best[slot] = x;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) sent[outList[i]] = best[outList[i]];
+    }
+}
@@ -0,0 +1,210 @@
+package ex1.src;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class represents an approximate distance oracle by Thorup & Zwick, for graphs too large
+ * for an exact index: for a parameter k its estimates are at most (2k - 1) times the exact
+ * distances (never lower), using expected O(k * n^(1 + 1/k)) space.
+ * 0. Levels: A_0 = V, A_i holds every vertex of A_(i - 1) with probability n^(-1/k), A_k is empty
+ * 1. Pivots: for every level i, the nearest vertex of A_i to every vertex v (p_i(v)) and its distance
+ * 2. Bunches: the bunch of v holds every w of A_i \ A_(i + 1) closer to v than A_(i + 1) is,
+ * computed from the other side - a pruned Dijkstra from every w (its cluster), in parallel
+ * 3. Query (u, v): w = u, i = 0; while w isn't in the bunch of v: i++, swap u & v, w = p_i(u);
+ * the estimate is d(u, w) + d(w, v)
+ */
+
+public class WGraph_ThorupZwick {
+
+    private final int[] keys;
+    private final int k;
+    // pivot[i][v] & pivotDist[i][v] - the nearest vertex of A_i to v (-1 if none in v's component), i <= k
+    private final int[][] pivot;
+    private final double[][] pivotDist;
+    // The bunch of v: bunch[off[v]]..bunch[off[v + 1] - 1] (sorted) with the matching distances
+    private final int[] off, bunch;
+    private final double[] bunchDist;
+
+    // Constructor:
+    private WGraph_ThorupZwick(int[] keys, int k, int[][] pivot, double[][] pivotDist, int[] off, int[] bunch, double[] bunchDist) {
+        this.keys = keys;
+        this.k = k;
+        this.pivot = pivot;
+        this.pivotDist = pivotDist;
+        this.off = off;
+        this.bunch = bunch;
+        this.bunchDist = bunchDist;
+    }
+
+    /**
+     * Builds the oracle of the given snapshot.
+     *
+     * @param g       - the graph
+     * @param k       - the number of levels (the stretch is 2k - 1, k = 1 is exact)
+     * @param seed    - the random seed of the levels' sampling
+     * @param threads - the number of threads
+     * @return WGraph_ThorupZwick
+     */
+    public static WGraph_ThorupZwick build(WGraph_CSR g, int k, long seed, int threads) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive: " + k);
+        int n = g.n;
+        // level[v] - the highest i such that v is in A_i (A_(k - 1) mustn't be empty)
+        int[] level = new int[n];
+        Random rand = new Random(seed);
+        double p = Math.pow(Math.max(n, 1), -1.0 / k);
+        boolean top = n == 0 || k == 1;
+        while (!top) {
+            for (int v = 0; v < n; v++) {
+                level[v] = 0;
+                while (level[v] < k - 1 && rand.nextDouble() < p) level[v]++;
+                if (level[v] == k - 1) top = true;
+            }
+        }
+
+        int[][] pivot = new int[k + 1][];
+        double[][] pivotDist = new double[k + 1][];
+        WGraph_Parallel.forEach(k + 1, threads, 1, i -> {
+            pivot[i] = new int[n];
+            pivotDist[i] = new double[n];
+            nearest(g, level, i, pivot[i], pivotDist[i]);
+        });
+
+        // The clusters: every center w of level i collects the vertices v with d(w, v) < d(v, A_(i + 1))
+        int[][] members = new int[n][];
+        double[][] memberDist = new double[n][];
+        WGraph_Parallel.forChunks(n, threads, 64, (from, to) -> {
+            double[] d = new double[n];
+            Arrays.fill(d, Double.POSITIVE_INFINITY);
+            int[] touched = new int[16];
+            WGraph_Heap heap = new WGraph_Heap();
+            for (int w = from; w < to; w++) {
+                double[] bound = pivotDist[level[w] + 1];
+                int count = 0, size = 0;
+                int[] list = new int[4];
+                double[] listDist = new double[4];
+                heap.clear();
+                d[w] = 0;
+                touched[count++] = w;
+                if (0 < bound[w]) heap.push(0, w);
+                while (!heap.isEmpty()) {
+                    double du = heap.topPriority();
+                    int u = heap.pop();
+                    if (du > d[u]) continue;
+                    if (size == list.length) {
+                        list = Arrays.copyOf(list, size * 2);
+                        listDist = Arrays.copyOf(listDist, size * 2);
+                    }
+                    list[size] = u;
+                    listDist[size++] = du;
+                    for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                        int v = g.ni[e];
+                        double x = du + g.w[e];
+                        if (x < d[v] && x < bound[v]) {
+                            if (d[v] == Double.POSITIVE_INFINITY) {
+                                if (count == touched.length) touched = Arrays.copyOf(touched, count * 2);
+                                touched[count++] = v;
+                            }
+                            d[v] = x;
+                            heap.push(x, v);
+                        }
+                    }
+                }
+                for (int i = 0; i < count; i++) d[touched[i]] = Double.POSITIVE_INFINITY;
+                members[w] = Arrays.copyOf(list, size);
+                memberDist[w] = Arrays.copyOf(listDist, size);
+            }
+        });
+
+        // The bunches are the transposed clusters (filled by increasing center, so they are sorted)
+        int[] off = new int[n + 1];
+        for (int w = 0; w < n; w++) for (int v : members[w]) off[v + 1]++;
+        for (int v = 0; v < n; v++) off[v + 1] += off[v];
+        int[] pos = Arrays.copyOf(off, n), bunch = new int[off[n]];
+        double[] bunchDist = new double[off[n]];
+        for (int w = 0; w < n; w++) {
+            for (int j = 0; j < members[w].length; j++) {
+                int v = members[w][j];
+                bunch[pos[v]] = w;
+                bunchDist[pos[v]++] = memberDist[w][j];
+            }
+            members[w] = null;
+            memberDist[w] = null;
+        }
+        return new WGraph_ThorupZwick(g.keys.clone(), k, pivot, pivotDist, off, bunch, bunchDist);
+    }
+
+    /**
+     * Help function: the nearest vertex of A_i to every vertex (a multi-source Dijkstra, see WGraph_Voronoi),
+     * A_k is empty (all the distances are infinite).
+     */
+    private static void nearest(WGraph_CSR g, int[] level, int i, int[] pivot, double[] dist) {
+        int[] sources = new int[g.n];
+        int size = 0;
+        for (int v = 0; v < g.n; v++) if (level[v] >= i) sources[size++] = v;
+        WGraph_Voronoi cells = WGraph_Voronoi.compute(g, Arrays.copyOf(sources, size));
+        System.arraycopy(cells.getSources(), 0, pivot, 0, g.n);
+        double[] d = cells.getDists();
+        for (int v = 0; v < g.n; v++) dist[v] = d[v] < 0 ? Double.POSITIVE_INFINITY : d[v];
+    }
+
+    /**
+     * Returns an estimate of the length of the shortest path between two vertices,
+     * between the exact distance and stretch() times it.
+     *
+     * @param src  - start node
+     * @param dest - end (target) node
+     * @return double || -1 (if no such path or vertex)
+     */
+    public double shortestPathDist(int src, int dest) {
+        int s = Arrays.binarySearch(keys, src), t = Arrays.binarySearch(keys, dest);
+        if (s < 0 || t < 0) return -1;
+        return distance(s, t);
+    }
+
+    /**
+     * Returns an estimate of the length of the shortest path between two vertices by their
+     * dense indexes (the positions of their keys in sorted order).
+     *
+     * @param u - start index
+     * @param v - end (target) index
+     * @return double || -1 (if no such path)
+     */
+    public double distance(int u, int v) {
+        int w = u;
+        double du = 0;
+        for (int i = 0; ; ) {
+            int j = Arrays.binarySearch(bunch, off[v], off[v + 1], w);
+            if (j >= 0) return du + bunchDist[j];
+            if (++i == k) return -1;
+            int tmp = u;
+            u = v;
+            v = tmp;
+            w = pivot[i][u];
+            // No vertex of A_i in u's component: u & v aren't connected (otherwise an earlier level answers)
+            if (w < 0) return -1;
+            du = pivotDist[i][u];
+        }
+    }
+
+    /**
+     * @return the guaranteed bound on estimate / exact distance (2k - 1)
+     */
+    public int stretch() {
+        return 2 * k - 1;
+    }
+
+    /**
+     * @return the total size of the bunches
+     */
+    public long bunchSize() {
+        return bunch.length;
+    }
+
+    /**
+     * @return the size of the oracle in bytes (keys, pivots, offsets and bunches)
+     */
+    public long bytes() {
+        return 4L * keys.length + 12L * pivot.length * keys.length + 4L * off.length + 12L * bunch.length;
+    }
+}
@@ -0,0 +1,135 @@
+package ex1.src;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents the triangles of an undirectional graph (the weights are ignored) and the
+ * clustering coefficients derived from them, returned as arrays by the graph's dense indexes:
+ * 0. every edge is oriented from the lower to the higher vertex by (degree, index), so every vertex
+ * keeps at most sqrt(2|E|) out-neighbors even in a scale-free graph
+ * 1. every triangle u < v < w is found exactly once, at u, by intersecting the sorted out-neighbors
+ * of u and v - the vertices are split into chunks which run in parallel
+ * 2. local clustering of v: t(v) / (d(v) * (d(v) - 1) / 2), 0 if d(v) < 2;
+ * global clustering (transitivity): 3 * triangles / connected triples
+ */
+
+public class WGraph_Triangles {
+
+    private final long[] triangles;
+    private final long total, triples;
+    private final double[] local;
+
+    // Constructor:
+    private WGraph_Triangles(long[] triangles, long total, long triples, double[] local) {
+        this.triangles = triangles;
+        this.total = total;
+        this.triples = triples;
+        this.local = local;
+    }
+
+    /**
+     * Counts the triangles of every vertex.
+     *
+     * @param g       - the graph
+     * @param threads - the number of threads
+     * @return WGraph_Triangles
+     */
+    public static WGraph_Triangles count(WGraph_CSR g, int threads) {
+        int n = g.n;
+        // The oriented adjacency: out[outOff[u]]..out[outOff[u + 1] - 1] - u's higher neighbors (sorted by index)
+        int[] outOff = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int d = 0;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) if (lower(g, u, g.ni[e])) d++;
+            outOff[u + 1] = outOff[u] + d;
+        }
+        int[] out = new int[outOff[n]];
+        WGraph_Parallel.forEach(n, threads, u -> {
+            int pos = outOff[u];
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) if (lower(g, u, g.ni[e])) out[pos++] = g.ni[e];
+        });
+
+        // Every chunk counts the triangles of its own vertices locally, the other two corners atomically
+        AtomicLongArray shared = new AtomicLongArray(n);
+        long[] own = new long[n];
+        WGraph_Parallel.forChunks(n, threads, 256, (from, to) -> {
+            for (int u = from; u < to; u++) {
+                long count = 0;
+                for (int i = outOff[u]; i < outOff[u + 1]; i++) {
+                    int v = out[i];
+                    int a = outOff[u], b = outOff[v], endA = outOff[u + 1], endB = outOff[v + 1];
+                    long found = 0;
+                    while (a < endA && b < endB) {
+                        int x = out[a], y = out[b];
+                        if (x == y) {
+                            shared.getAndIncrement(x);
+                            found++;
+                            a++;
+                            b++;
+                        } else if (x < y) a++;
+                        else b++;
+                    }
+                    if (found > 0) shared.getAndAdd(v, found);
+                    count += found;
+                }
+                own[u] = count;
+            }
+        });
+
+        long[] triangles = new long[n];
+        double[] local = new double[n];
+        long total = 0, triples = 0;
+        for (int v = 0; v < n; v++) {
+            triangles[v] = own[v] + shared.get(v);
+            total += own[v];
+            long d = g.degree(v), pairs = d * (d - 1) / 2;
+            triples += pairs;
+            local[v] = pairs == 0 ? 0 : (double) triangles[v] / pairs;
+        }
+        return new WGraph_Triangles(triangles, total, triples, local);
+    }
+
+    /**
+     * Help function: the orientation of the edges - u comes before v by (degree, index).
+     */
+    private static boolean lower(WGraph_CSR g, int u, int v) {
+        int du = g.degree(u), dv = g.degree(v);
+        return du < dv || (du == dv && u < v);
+    }
+
+    /**
+     * @return the number of triangles of every vertex by index
+     */
+    public long[] getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * @return the number of triangles in the graph
+     */
+    public long triangles() {
+        return total;
+    }
+
+    /**
+     * @return the local clustering coefficient of every vertex by index
+     */
+    public double[] getLocalClustering() {
+        return local;
+    }
+
+    /**
+     * @return the average of the local clustering coefficients (0 for an empty graph)
+     */
+    public double averageClustering() {
+        return local.length == 0 ? 0 : Arrays.stream(local).sum() / local.length;
+    }
+
+    /**
+     * @return the global clustering coefficient (transitivity) - 3 * triangles / connected triples (0 if none)
+     */
+    public double globalClustering() {
+        return triples == 0 ? 0 : 3.0 * total / triples;
+    }
+}
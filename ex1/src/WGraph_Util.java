@@ -0,0 +1,57 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the small primitive helpers shared by the algorithms:
+ * 0. union-find over a parent array (find with path halving, union keeping the smaller root)
+ * 1. IntList - a growable list of primitive ints
+ */
+
+final class WGraph_Util {
+
+    private WGraph_Util() {
+    }
+
+    /**
+     * Union-find's find with path halving.
+     *
+     * @param parent - the parent of every element (a root is its own parent)
+     * @param v      - an element
+     * @return v's root
+     */
+    static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Union-find's union: the smaller root becomes the root of both sets.
+     *
+     * @param parent - the parent of every element
+     * @param a      - an element of the first set
+     * @param b      - an element of the second set
+     */
+    static void union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if (a < b) parent[b] = a;
+        else if (b < a) parent[a] = b;
+    }
+
+    /**
+     * A growable list of primitive ints (cleared by size = 0).
+     */
+    static final class IntList {
+        int[] data = new int[8];
+        int size = 0;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package ex1.src;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the graph Voronoi diagram of a set of sources: for every vertex, the source
+ * nearest to it and the distance between them, computed by one multi-source Dijkstra - the heap is
+ * seeded with all the sources at distance 0 and every vertex inherits the source of the vertex
+ * it was reached from (ties go to the source which reached the vertex first).
+ * The results are arrays by the graph's dense indexes (see WGraph_CSR.key).
+ */
+
+public class WGraph_Voronoi {
+
+    private final WGraph_CSR g;
+    // The nearest source (index) and its distance of every vertex, -1 if no source is reachable
+    private final int[] source;
+    private final double[] dist;
+
+    // Constructor:
+    private WGraph_Voronoi(WGraph_CSR g, int[] source, double[] dist) {
+        this.g = g;
+        this.source = source;
+        this.dist = dist;
+    }
+
+    /**
+     * Computes the nearest source of every vertex.
+     *
+     * @param g       - the graph
+     * @param sources - the sources' keys (missing keys are ignored)
+     * @return WGraph_Voronoi
+     */
+    public static WGraph_Voronoi of(WGraph_CSR g, int[] sources) {
+        int[] indexes = new int[sources.length];
+        int size = 0;
+        for (int key : sources) {
+            int v = g.indexOf(key);
+            if (v >= 0) indexes[size++] = v;
+        }
+        return compute(g, Arrays.copyOf(indexes, size));
+    }
+
+    /**
+     * Computes the nearest source of every vertex by the sources' indexes.
+     *
+     * @param g       - the graph
+     * @param sources - the sources' indexes
+     * @return WGraph_Voronoi
+     */
+    public static WGraph_Voronoi compute(WGraph_CSR g, int[] sources) {
+        int[] source = new int[g.n];
+        double[] dist = new double[g.n];
+        Arrays.fill(source, -1);
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        WGraph_Heap heap = new WGraph_Heap();
+        for (int s : sources) {
+            if (source[s] >= 0) continue;
+            source[s] = s;
+            dist[s] = 0;
+            heap.push(0, s);
+        }
+        while (!heap.isEmpty()) {
+            double du = heap.topPriority();
+            int u = heap.pop();
+            if (du > dist[u]) continue;
+            for (int e = g.off[u]; e < g.off[u + 1]; e++) {
+                int v = g.ni[e];
+                if (du + g.w[e] < dist[v]) {
+                    dist[v] = du + g.w[e];
+                    source[v] = source[u];
+                    heap.push(dist[v], v);
+                }
+            }
+        }
+        for (int v = 0; v < g.n; v++) if (source[v] < 0) dist[v] = -1;
+        return new WGraph_Voronoi(g, source, dist);
+    }
+
+    /**
+     * @return the nearest source (index) of every vertex by index (-1 if none is reachable)
+     */
+    public int[] getSources() {
+        return source;
+    }
+
+    /**
+     * @return the distance from the nearest source of every vertex by index (-1 if none is reachable)
+     */
+    public double[] getDists() {
+        return dist;
+    }
+
+    /**
+     * @param key - vertex's ID
+     * @return the key of the vertex's nearest source || -1 (if none or no such vertex)
+     */
+    public int nearestSource(int key) {
+        int v = g.indexOf(key);
+        return v < 0 || source[v] < 0 ? -1 : g.key(source[v]);
+    }
+
+    /**
+     * @param key - vertex's ID
+     * @return the distance between the vertex and its nearest source || -1 (if none or no such vertex)
+     */
+    public double shortestPathDist(int key) {
+        int v = g.indexOf(key);
+        return v < 0 ? -1 : dist[v];
+    }
+}
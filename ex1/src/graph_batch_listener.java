@@ -0,0 +1,13 @@
+package ex1.src;
+
+/**
+ * This interface represents a consumer of batches of graph mutations (see WGraph_EventStream).
+ */
+public interface graph_batch_listener {
+    /**
+     * Called with a batch of events, readable by index (0 .. events.size() - 1)
+     * until this method returns.
+     * @param events
+     */
+    public void onBatch(WGraph_EventStream events);
+}
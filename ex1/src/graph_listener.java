@@ -0,0 +1,37 @@
+package ex1.src;
+
+/**
+ * This interface represents a listener of the mutations of a graph.
+ * The graph calls it right after every change (after the mode count was incremented).
+ * Note: removing a vertex first removes its edges (one edgeRemoved for each of them).
+ */
+public interface graph_listener {
+    /**
+     * A new vertex was added.
+     * @param key
+     */
+    public void nodeAdded(int key);
+
+    /**
+     * A vertex was removed (its edges were already removed).
+     * @param key
+     */
+    public void nodeRemoved(int key);
+
+    /**
+     * An edge was added or re-weighted.
+     * @param node1
+     * @param node2
+     * @param oldW - the previous weight, -1 for a new edge
+     * @param w - the new weight
+     */
+    public void edgeChanged(int node1, int node2, double oldW, double w);
+
+    /**
+     * An edge was removed.
+     * @param node1
+     * @param node2
+     * @param oldW - the weight of the removed edge
+     */
+    public void edgeRemoved(int node1, int node2, double oldW);
+}
@@ -0,0 +1,810 @@
+package ex1.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ex1.src.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Benchmarks of the heavier algorithms on large generated graphs: every test reports
+ * its measurements (see report) and checks the results against a simpler method.
+ * Each test builds its own graphs - there is no shared fixture - and the files it saves are deleted after it.
+ * The class is tagged "benchmark", so the default test run leaves it out (run it with the tag included).
+ *
+ * @author Rotem Halbreich
+ */
+
+@Tag("benchmark")
+class AlgoBenchmarkTest {
+
+    @AfterEach
+    void afterEach() {
+        for (String file : new String[]{"myGraph.txt", "myGraph.wgc"}) {
+            new File(file).delete();
+            new File(file + ".tmp").delete();
+            new File(file + WGraph_Algo.WAL_SUFFIX).delete();
+        }
+    }
+
+    @Test
+    void saveAndLoadCompressed() {
+        compareFormats("chain", chain());
+        compareFormats("scale-free", new WGraph_Algo(scaleFree(200000, 5, 1)));
+    }
+
+    @Test
+    void minimumSpanningForest() {
+        WGraph_CSR g = randomCSR(1000000, 10000000, 1);
+        long start = System.nanoTime();
+        WGraph_MST kruskal = WGraph_MST.kruskal(g);
+        report("Kruskal: %d ms", ms(start));
+        for (int threads = 1; threads <= WGraph_Parallel.threads(); threads *= 2) {
+            start = System.nanoTime();
+            WGraph_MST boruvka = WGraph_MST.boruvka(g, threads);
+            report("Boruvka, %d threads: %d ms", threads, ms(start));
+            assertEquals(kruskal.edgeSize(), boruvka.edgeSize());
+            assertEquals(kruskal.getWeight(), boruvka.getWeight(), 1e-6 * kruskal.getWeight());
+        }
+    }
+
+    @Test
+    void deltaSteppingScaling() {
+        WGraph_CSR g = randomCSR(1000000, 10000000, 2);
+        double[] expected = null;
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            long start = System.nanoTime();
+            double[] dist = WGraph_DeltaStepping.distances(g, 0, threads);
+            report("Delta-stepping, %d threads: %d ms", threads, ms(start));
+            if (expected == null) expected = dist;
+            else assertArrayEquals(expected, dist);
+        }
+    }
+
+    @Test
+    void kNearestVersusShortestPathDist() {
+        int side = 300;
+        weighted_graph grid = gridCSR(side, 3).toGraph();
+        Random rand = new Random(3);
+        int[] facilities = new int[100];
+        for (int i = 0; i < facilities.length; i++) facilities[i] = rand.nextInt(side * side);
+        WGraph_Algo algo = new WGraph_Algo(grid);
+        int src = side * side / 2 + side / 2;
+
+        long start = System.nanoTime();
+        WGraph_Nearest near = algo.kNearest(src, 10, facilities);
+        long nearest = ms(start);
+        start = System.nanoTime();
+        double[] all = new double[facilities.length];
+        for (int i = 0; i < facilities.length; i++) all[i] = algo.shortestPathDist(src, facilities[i]);
+        report("kNearest: %d ms, shortestPathDist per candidate: %d ms", nearest, ms(start));
+        Arrays.sort(all);
+        assertArrayEquals(Arrays.copyOf(all, 10), near.getDists());
+
+        start = System.nanoTime();
+        near = algo.withinRadius(src, 50);
+        report("withinRadius (%d vertices): %d ms", near.size(), ms(start));
+    }
+
+    @Test
+    void kShortestPathsOnGrid() {
+        int side = 317;
+        WGraph_CSR grid = gridCSR(side, 4);
+        long start = System.nanoTime();
+        WGraph_KPaths yen = new WGraph_KPaths(grid, side * side - 1);
+        report("Target tree: %d ms", ms(start));
+        for (int k : new int[]{1, 2, 5, 10, 20, 50}) {
+            start = System.nanoTime();
+            List<int[]> paths = yen.find(0, k);
+            report("K = %d: %d ms", k, ms(start));
+            assertEquals(k, paths.size());
+            for (int i = 1; i < k; i++) assertTrue(yen.cost(paths.get(i - 1)) <= yen.cost(paths.get(i)));
+        }
+    }
+
+    @Test
+    void allPairsCrossover() {
+        int n = 1500;
+        for (int degree : new int[]{4, 16, 64, 256, 1024}) {
+            WGraph_CSR g = randomCSR(n, n * degree / 2, degree);
+            long start = System.nanoTime();
+            WGraph_APSP fw = WGraph_APSP.floydWarshall(g, false, WGraph_Parallel.threads());
+            long fwTime = ms(start);
+            start = System.nanoTime();
+            WGraph_APSP dj = WGraph_APSP.dijkstra(g, false, WGraph_Parallel.threads());
+            report("n = %d, average degree %d: Floyd-Warshall %d ms, Dijkstra %d ms", n, degree, fwTime, ms(start));
+            assertArrayEquals(fw.getMatrix(), dj.getMatrix(), 1e-9);
+        }
+    }
+
+    @Test
+    void dynamicShortestPathsUpdates() {
+        int side = 1000;
+        Random rand = new Random(35);
+        weighted_graph grid = gridCSR(side, 35).toGraph();
+        WGraph_Algo algo = new WGraph_Algo(grid);
+        long start = System.nanoTime();
+        WGraph_DynamicSSSP tree = algo.dynamicShortestPaths(0);
+        long full = System.nanoTime() - start;
+
+        int updates = 1000;
+        long increase = 0, decrease = 0, touched = 0;
+        int increases = 0;
+        for (int i = 0; i < updates; i++) {
+            int a = rand.nextInt(side * side), b = a % side + 1 < side ? a + 1 : a - 1;
+            double old = grid.getEdge(a, b), w = 1 + rand.nextInt(10);
+            start = System.nanoTime();
+            grid.connect(a, b, w);
+            long time = System.nanoTime() - start;
+            if (w > old) {
+                increase += time;
+                increases++;
+            } else decrease += time;
+            touched += tree.getTouched();
+        }
+        report("Full recomputation %d ms | %d re-weights: increase %d us, decrease %d us on average, "
+                        + "%d vertices touched per update, %dx faster", full / 1000000, updates,
+                increase / Math.max(1, increases) / 1000, decrease / Math.max(1, updates - increases) / 1000,
+                touched / updates, full * updates / Math.max(1, increase + decrease));
+        for (int i = 0; i < 3; i++) {
+            int v = rand.nextInt(side * side);
+            assertEquals(algo.shortestPathDist(0, v), tree.getDist(v), 1e-9);
+        }
+        tree.close();
+    }
+
+    @Test
+    void eventStreamOverhead() {
+        long[] counted = new long[1];
+        long plain = Long.MAX_VALUE, streamed = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            buildRandom(new WGraph_DS(), 42);
+            plain = Math.min(plain, System.nanoTime() - start);
+
+            WGraph_DS g = new WGraph_DS();
+            WGraph_EventStream stream = new WGraph_EventStream(g, 4096, batch -> counted[0] += batch.size());
+            start = System.nanoTime();
+            buildRandom(g, 42);
+            stream.close();
+            streamed = Math.min(streamed, System.nanoTime() - start);
+        }
+        report("Bulk construction (1M vertices, 2M edges): no listener %d ms, event stream %d ms (%+.1f%%), %d events",
+                plain / 1000000, streamed / 1000000, 100.0 * (streamed - plain) / plain, counted[0] / 3);
+    }
+
+    @Test
+    void partitionQuality() {
+        int side = 1000;
+        WGraph_CSR grid = gridCSR(side, 37);
+        WGraph_CSR random = randomCSR(1000000, 3000000, 37);
+        for (WGraph_CSR g : new WGraph_CSR[]{grid, random}) {
+            String name = g == grid ? "Grid 1000x1000" : "Random 1M/3M";
+            for (int k : new int[]{2, 4, 8, 16}) {
+                long start = System.nanoTime();
+                WGraph_Partition p = WGraph_Partition.compute(g, k, 1);
+                long time = ms(start);
+                WGraph_Partitioned view = new WGraph_Partitioned(g, p);
+                start = System.nanoTime();
+                int[] hops = view.bfs(0, k);
+                long bfs = ms(start);
+                start = System.nanoTime();
+                view.components(k);
+                long cc = ms(start);
+                long sent = 0;
+                for (long m : view.getRoundMessages()) sent += m;
+                report("%s, k = %d: %d ms, edge cut %d (%.2f%%), balance %.3f | BFS %d ms (%d vertices exchanged), components %d ms",
+                        name, k, time, p.edgeCut(), 100.0 * p.edgeCut() / g.edgeSize(), p.balance(), bfs, sent, cc);
+                if (g == grid) assertEquals(2 * side - 2, hops[g.nodeSize() - 1]);
+            }
+        }
+    }
+
+    @Test
+    void clusterQueries() throws IOException {
+        WGraph_CSR grid = gridCSR(700, 38);
+        long start = System.nanoTime();
+        double[] expected = WGraph_DeltaStepping.distances(grid, 0, 1);
+        report("Single JVM shortest paths: %d ms", ms(start));
+        for (int k : new int[]{2, 4}) {
+            start = System.nanoTime();
+            try (WGraph_Cluster cluster = new WGraph_Cluster(grid, k, true)) {
+                report("%d worker JVMs started & loaded: %d ms", k, ms(start));
+                start = System.nanoTime();
+                double[] dist = cluster.distances(0);
+                reportRounds("shortest paths", k, start, cluster.getRoundMessages());
+                assertArrayEquals(expected, dist, 1e-9);
+                start = System.nanoTime();
+                cluster.bfs(0);
+                reportRounds("BFS", k, start, cluster.getRoundMessages());
+                start = System.nanoTime();
+                cluster.components();
+                reportRounds("components", k, start, cluster.getRoundMessages());
+            }
+        }
+    }
+
+    @Test
+    void reorderingLocality() {
+        WGraph_CSR g = geometricCSR(1000000, 10, 39);
+        String[] names = {"none (sorted keys)", "BFS", "RCM", "degree"};
+        int src = g.key(0);
+        double[] expected = null;
+        for (int order = 0; order < names.length; order++) {
+            long start = System.nanoTime();
+            WGraph_Reordered r = WGraph_Reordered.of(g, order);
+            long build = ms(start);
+            long dijkstra = Long.MAX_VALUE, bfs = Long.MAX_VALUE;
+            double[] dist = null;
+            for (int round = 0; round < 3; round++) {
+                start = System.nanoTime();
+                dist = r.distances(src);
+                dijkstra = Math.min(dijkstra, System.nanoTime() - start);
+                start = System.nanoTime();
+                r.bfs(src);
+                bfs = Math.min(bfs, System.nanoTime() - start);
+            }
+            if (expected == null) expected = dist;
+            assertArrayEquals(expected, dist, 1e-9);
+            report("%s: relabeling %d ms, average label gap %.0f, Dijkstra %d ms, BFS %d ms",
+                    names[order], build, r.averageGap(), dijkstra / 1000000, bfs / 1000000);
+        }
+    }
+
+    @Test
+    void applyBatchVersusPerCall() {
+        WGraph_DS g = new WGraph_DS();
+        buildRandom(g, 40);
+        int size = 100000, n = g.nodeSize();
+        String[] names = {"per call", "applyBatch", "applyBatch parallel"};
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        Random rand = new Random(40);
+        byte[] ops = new byte[size];
+        int[] a = new int[size], b = new int[size];
+        double[] w = new double[size];
+        for (int round = 0; round < 5; round++) {
+            for (int mode = 0; mode < 3; mode++) {
+                for (int i = 0; i < size; i++) {
+                    ops[i] = rand.nextInt(10) < 7 ? WGraph_Journal.CONNECT : WGraph_Journal.REMOVE_EDGE;
+                    a[i] = rand.nextInt(n);
+                    // half of the operations hit existing edges
+                    if (i % 2 == 0 && g.getV(a[i]).size() > 0) b[i] = g.getV(a[i]).iterator().next().getKey();
+                    else b[i] = rand.nextInt(n);
+                    w[i] = 1 + rand.nextInt(100);
+                }
+                int mc = g.getMC();
+                long start = System.nanoTime();
+                if (mode == 0) {
+                    for (int i = 0; i < size; i++) {
+                        if (ops[i] == WGraph_Journal.CONNECT) g.connect(a[i], b[i], w[i]);
+                        else g.removeEdge(a[i], b[i]);
+                    }
+                } else {
+                    g.applyBatch(ops, a, b, w, size, mode == 2);
+                    assertEquals(mc + 1, g.getMC());
+                }
+                best[mode] = Math.min(best[mode], System.nanoTime() - start);
+            }
+        }
+        report("%d operations (best of 5): %s %d ms, %s %d ms, %s %d ms", size, names[0], best[0] / 1000000,
+                names[1], best[1] / 1000000, names[2], best[2] / 1000000);
+    }
+
+    @Test
+    void columnarFootprint() {
+        int n = 10000000;
+        for (int round = 0; round < 2; round++) {
+            long before = usedHeap();
+            long start = System.nanoTime();
+            weighted_graph g = round == 0 ? new WGraph_DS() : new WGraph_Columnar();
+            for (int i = 0; i < n; i++) g.addNode(i * 3);
+            for (node_info v : g.getV()) v.setInfo("white");
+            long time = ms(start);
+            long bytes = usedHeap() - before;
+            report("%s: %d vertices in %d MB (%d bytes per vertex), built in %d ms",
+                    g.getClass().getSimpleName(), n, bytes / (1 << 20), bytes / n, time);
+            assertEquals(n, g.nodeSize());
+        }
+    }
+
+    @Test
+    void shortestPathArrayVersusList() {
+        WGraph_Algo algo = chain();
+        algo.shortestPath(0, 1000000);
+        algo.shortestPathArray(0, 1000000);
+        long start = System.nanoTime(), bytes = allocatedBytes();
+        List<node_info> list = algo.shortestPath(0, 1000000);
+        report("shortestPath (LinkedList): %d ms, %d MB allocated", ms(start), (allocatedBytes() - bytes) / (1 << 20));
+        // The snapshot is reused by the calls after the first (the graph didn't change)
+        algo.getGraph().connect(0, 1, 0.5);
+        start = System.nanoTime();
+        bytes = allocatedBytes();
+        WGraph_Path path = algo.shortestPathArray(0, 1000000);
+        report("shortestPathArray (with snapshot): %d ms, %d MB allocated", ms(start), (allocatedBytes() - bytes) / (1 << 20));
+        start = System.nanoTime();
+        bytes = allocatedBytes();
+        path = algo.shortestPathArray(0, 1000000);
+        report("shortestPathArray (reused snapshot): %d ms, %d MB allocated", ms(start), (allocatedBytes() - bytes) / (1 << 20));
+        assertEquals(list.size(), path.size());
+        assertEquals(list, path.asList(algo.getGraph()));
+    }
+
+    @Test
+    void hubLabelsOracle() throws IOException {
+        for (int n : new int[]{20000, 100000}) {
+            WGraph_CSR csr = WGraph_CSR.of(scaleFree(n, 3, 1));
+            long start = System.nanoTime();
+            WGraph_HubLabels labels = WGraph_HubLabels.build(csr);
+            long build = ms(start);
+            labels.save("myLabels.bin");
+            start = System.nanoTime();
+            labels = WGraph_HubLabels.load("myLabels.bin");
+            long load = ms(start);
+            new File("myLabels.bin").delete();
+
+            Random rand = new Random(43);
+            int queries = 200000;
+            long[] nanos = new long[queries];
+            double sum = 0;
+            for (int i = 0; i < queries; i++) {
+                int a = rand.nextInt(csr.nodeSize()), b = rand.nextInt(csr.nodeSize());
+                start = System.nanoTime();
+                sum += labels.distance(a, b);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            WGraph_Reordered dijkstra = WGraph_Reordered.of(csr, WGraph_Reordered.NONE);
+            start = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                int a = csr.key(rand.nextInt(csr.nodeSize())), b = csr.key(rand.nextInt(csr.nodeSize()));
+                assertEquals(dijkstra.shortestPathDist(a, b), labels.shortestPathDist(a, b), 1e-9);
+            }
+            report("scale-free %d: built in %d ms, loaded in %d ms, %d hubs & %d bytes per vertex | query p50 %.1f us, "
+                            + "p99 %.1f us, p99.9 %.1f us, max %.1f us | Dijkstra (early exit) per query %d us",
+                    n, build, load, labels.labelSize() / n, labels.bytes() / n, nanos[queries / 2] / 1000.0,
+                    nanos[queries * 99 / 100] / 1000.0, nanos[queries * 999 / 1000] / 1000.0, nanos[queries - 1] / 1000.0,
+                    (System.nanoTime() - start) / 20000);
+            assertTrue(sum > 0);
+        }
+    }
+
+    @Test
+    void thorupZwickStretch() {
+        WGraph_CSR csr = geometricCSR(100000, 6, 44);
+        int n = csr.nodeSize();
+        Random rand = new Random(44);
+        // The exact distances of sampled pairs: 10 sources x 200 targets
+        int[] src = new int[10], dst = new int[200];
+        double[][] exact = new double[src.length][];
+        WGraph_Reordered dijkstra = WGraph_Reordered.of(csr, WGraph_Reordered.NONE);
+        for (int i = 0; i < src.length; i++) {
+            src[i] = rand.nextInt(n);
+            exact[i] = dijkstra.distances(csr.key(src[i]));
+        }
+        for (int j = 0; j < dst.length; j++) dst[j] = rand.nextInt(n);
+        for (int k = 2; k <= 4; k++) {
+            long start = System.nanoTime();
+            WGraph_ThorupZwick tz = WGraph_ThorupZwick.build(csr, k, 1, 1);
+            long sequential = ms(start);
+            start = System.nanoTime();
+            tz = WGraph_ThorupZwick.build(csr, k, 1, WGraph_Parallel.threads());
+            long parallel = ms(start);
+            double sum = 0, worst = 1;
+            int pairs = 0;
+            long[] nanos = new long[src.length * dst.length];
+            for (int i = 0; i < src.length; i++) {
+                for (int j = 0; j < dst.length; j++) {
+                    start = System.nanoTime();
+                    double approx = tz.distance(src[i], dst[j]);
+                    nanos[i * dst.length + j] = System.nanoTime() - start;
+                    double d = exact[i][dst[j]];
+                    if (d <= 0) continue;
+                    assertTrue(approx >= d - 1e-9 && approx <= tz.stretch() * d + 1e-9);
+                    sum += approx / d;
+                    worst = Math.max(worst, approx / d);
+                    pairs++;
+                }
+            }
+            Arrays.sort(nanos);
+            report("k = %d (bound %d): built in %d ms (1 thread) / %d ms (%d threads), %d bunch & %d bytes per vertex, "
+                            + "stretch avg %.3f max %.3f, query p50 %.1f us, p99 %.1f us", k, tz.stretch(), sequential, parallel,
+                    WGraph_Parallel.threads(), tz.bunchSize() / n, tz.bytes() / n, sum / pairs, worst,
+                    nanos[nanos.length / 2] / 1000.0, nanos[nanos.length * 99 / 100] / 1000.0);
+        }
+    }
+
+    @Test
+    void nearestSourcesVersusPerSource() {
+        weighted_graph g = new WGraph_DS();
+        buildRandom(g, 45);
+        WGraph_Algo algo = new WGraph_Algo(g);
+        Random rand = new Random(45);
+        int[] depots = new int[1000];
+        for (int i = 0; i < depots.length; i++) depots[i] = rand.nextInt(g.nodeSize());
+        long start = System.nanoTime();
+        WGraph_Voronoi cells = algo.nearestSources(depots);
+        long first = ms(start);
+        start = System.nanoTime();
+        cells = algo.nearestSources(depots);
+        report("nearestSources (1k sources): %d ms with the snapshot, %d ms without", first, ms(start));
+
+        // A search from every depot (a few of them, extrapolated), checked against the assignment
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        WGraph_Reordered dijkstra = WGraph_Reordered.of(csr, WGraph_Reordered.NONE);
+        start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            double[] dist = dijkstra.distances(depots[i]);
+            for (int v = 0; v < csr.nodeSize(); v++) {
+                if (dist[v] >= 0) assertTrue(cells.getDists()[v] >= 0 && cells.getDists()[v] <= dist[v] + 1e-9);
+            }
+        }
+        long perSource = (System.nanoTime() - start) / 3;
+        start = System.nanoTime();
+        algo.shortestPathDist(depots[0], rand.nextInt(g.nodeSize()));
+        long perPair = System.nanoTime() - start;
+        report("Dijkstra per source: %d ms -> ~%d s for 1k sources | shortestPathDist per pair: %d ms -> ~%d s per customer",
+                perSource / 1000000, perSource * depots.length / 1000000000, perPair / 1000000, perPair * depots.length / 1000000000);
+        for (int v = 0; v < 20; v++) {
+            int customer = rand.nextInt(g.nodeSize());
+            if (cells.nearestSource(customer) < 0) continue;
+            assertEquals(cells.shortestPathDist(customer), dijkstra.shortestPathDist(cells.nearestSource(customer), customer), 1e-9);
+        }
+    }
+
+    @Test
+    void biconnectedChainAndRandom() {
+        WGraph_Algo algo = chain();
+        long start = System.nanoTime();
+        WGraph_Biconnected chain = algo.biconnected();
+        report("Chain (1M edges, with snapshot): %d ms", ms(start));
+        assertEquals(1000000, chain.bridgeCount());
+        assertEquals(1000000, chain.components());
+        assertFalse(chain.isArticulationPoint(0));
+        assertTrue(chain.isArticulationPoint(500000));
+        algo = null;
+        chain = null;
+
+        for (int n : new int[]{2000000, 5000000}) {
+            WGraph_CSR g = randomCSR(n, 10000000, 46);
+            start = System.nanoTime();
+            WGraph_Biconnected cuts = WGraph_Biconnected.compute(g);
+            long time = ms(start);
+            int points = 0;
+            for (boolean b : cuts.getArticulationPoints()) if (b) points++;
+            report("%d vertices, %d edges: %d ms, %d bridges, %d articulation points, %d biconnected components",
+                    n, g.edgeSize(), time, cuts.bridgeCount(), points, cuts.components());
+        }
+    }
+
+    @Test
+    void trianglesScaling() {
+        WGraph_CSR g = scaleFreeCSR(2500000, 4, 47);
+        long expected = -1;
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            long start = System.nanoTime();
+            WGraph_Triangles t = WGraph_Triangles.count(g, threads);
+            report("Triangles, %d edges, %d threads: %d ms - %d triangles, global clustering %.5f, average local %.5f",
+                    g.edgeSize(), threads, ms(start), t.triangles(), t.globalClustering(), t.averageClustering());
+            if (expected < 0) expected = t.triangles();
+            else assertEquals(expected, t.triangles());
+        }
+    }
+
+    @Test
+    void louvainScaling() {
+        // Planted partition: 1M vertices in groups of 1000, 10M edges - 80% inside the groups
+        Random rand = new Random(48);
+        int n = 1000000, m = 10000000;
+        int[] nodes = new int[n], from = new int[m], to = new int[m];
+        double[] w = new double[m];
+        for (int i = 0; i < n; i++) nodes[i] = i;
+        for (int e = 0; e < m; e++) {
+            from[e] = rand.nextInt(n);
+            to[e] = rand.nextInt(10) < 8 ? from[e] / 1000 * 1000 + rand.nextInt(1000) : rand.nextInt(n);
+            w[e] = 1 + rand.nextInt(5);
+        }
+        WGraph_CSR g = new WGraph_CSR(nodes, from, to, w, m);
+        from = to = null;
+        w = null;
+        int[] planted = new int[n];
+        for (int v = 0; v < n; v++) planted[v] = v / 1000;
+        report("Planted groups modularity: %.4f", WGraph_Louvain.modularity(g, planted));
+        int[] expected = null;
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            long start = System.nanoTime();
+            WGraph_Louvain louvain = WGraph_Louvain.detect(g, threads);
+            report("Louvain, %d edges, %d threads: %d ms - %d communities, modularity %.4f, %d levels",
+                    g.edgeSize(), threads, ms(start), louvain.communities(), louvain.modularity(), louvain.levels());
+            if (expected == null) expected = louvain.getCommunities();
+            else assertArrayEquals(expected, louvain.getCommunities());
+        }
+    }
+
+    @Test
+    void queryServiceLoad() throws Exception {
+        WGraph_CSR g = geometricCSR(20000, 8, 49);
+        // 32 clients, every request from one of 4 hot sources to a random vertex of 2000
+        Random rand = new Random(49);
+        String[] list = new String[4000];
+        for (int i = 0; i < list.length; i++) list[i] = "DIST " + rand.nextInt(4) + " " + rand.nextInt(2000);
+        int clients = 32, requests = 50;
+        for (boolean shared : new boolean[]{false, true}) {
+            try (WGraph_QueryService service = new WGraph_QueryService(g, shared, shared)) {
+                WGraph_QueryClient.load(service.getPort(), clients, 5, list, 0);
+                long searches = service.getSearches(), coalesced = service.getCoalesced();
+                long start = System.nanoTime();
+                long[] nanos = WGraph_QueryClient.load(service.getPort(), clients, requests, list, 1);
+                long time = System.nanoTime() - start;
+                Arrays.sort(nanos);
+                report("Query service %s coalescing & batching (%s), %d clients: %d requests/s, p50 %.1f ms, p99 %.1f ms, "
+                                + "max %.1f ms - %d searches, %d coalesced", shared ? "with" : "without",
+                        service.isVirtual() ? "virtual threads" : "platform threads", clients, nanos.length * 1000000000L / time,
+                        nanos[nanos.length / 2] / 1000000.0, nanos[nanos.length * 99 / 100] / 1000000.0,
+                        nanos[nanos.length - 1] / 1000000.0, service.getSearches() - searches, service.getCoalesced() - coalesced);
+            }
+        }
+    }
+
+    @Test
+    void saveAsyncPause() throws Exception {
+        WGraph_Algo algo = chain();
+        assertTrue(algo.save("myGraph.txt"));
+        long start = System.nanoTime();
+        assertTrue(algo.save("myGraph.txt"));
+        long blocking = ms(start);
+        assertTrue(algo.saveAsync("myGraph.txt").get());
+        weighted_graph before = algo.copy();
+
+        start = System.nanoTime();
+        CompletableFuture<Boolean> saved = algo.saveAsync("myGraph.txt");
+        long pause = ms(start);
+        // The graph keeps changing while it is written
+        int changes = 0;
+        while (!saved.isDone()) {
+            algo.getGraph().connect(changes % 1000000, (changes * 7 + 13) % 1000000, 1);
+            changes++;
+        }
+        assertTrue(saved.get());
+        report("save: the caller waits %d ms | saveAsync: the caller waits %d ms, written in %d ms, %d changes meanwhile",
+                blocking, pause, ms(start), changes);
+        weighted_graph_algorithms text = new WGraph_Algo();
+        assertTrue(text.load("myGraph.txt"));
+        assertEquals(before, text.getGraph());
+    }
+
+    /**
+     * Help function: prints a measurement line (String.format syntax).
+     */
+    private static void report(String format, Object... args) {
+        System.out.println(String.format(format, args));
+    }
+
+    /**
+     * Help function: the milliseconds passed since start (System.nanoTime()).
+     */
+    private static long ms(long start) {
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * Help function: reports a query of the sharded cluster with its messages per round.
+     */
+    private static void reportRounds(String query, int k, long start, long[] rounds) {
+        report("%d workers, %s: %d ms, %d rounds, messages per round %s", k, query, ms(start), rounds.length, Arrays.toString(rounds));
+    }
+
+    /**
+     * Help function: prints the on-disk size and the load time of both formats.
+     */
+    private static void compareFormats(String name, WGraph_Algo algo) {
+        WGraph_Algo text = new WGraph_Algo();
+        assertTrue(algo.save("myGraph.txt"));
+        long start = System.nanoTime();
+        assertTrue(text.load("myGraph.txt"));
+        long serialized = ms(start);
+        assertEquals(algo, text);
+
+        assertTrue(algo.saveCompressed("myGraph.wgc", false));
+        start = System.nanoTime();
+        assertTrue(text.load("myGraph.wgc"));
+        long compressed = ms(start);
+        assertEquals(algo, text);
+
+        report("%s: serialized %d bytes, %d ms | compressed %d bytes, %d ms", name, new File("myGraph.txt").length(),
+                serialized, new File("myGraph.wgc").length(), compressed);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /**
+     * Help function: the 1M vertices chain of AlgoRunTimeTest (the edge j - j + 1 weighs j).
+     */
+    private static WGraph_Algo chain() {
+        weighted_graph h = new WGraph_DS();
+        for (int i = 0; i <= 1000000; i++) h.addNode(i);
+        for (int j = 0; j < 1000000; j++) h.connect(j, j + 1, j);
+        return new WGraph_Algo(h);
+    }
+
+    /**
+     * Help function: adds 1M vertices and 2M random edges to the graph.
+     */
+    private static void buildRandom(weighted_graph g, long seed) {
+        Random rand = new Random(seed);
+        int n = 1000000;
+        for (int i = 0; i < n; i++) g.addNode(i);
+        for (int i = 0; i < 2 * n; i++) g.connect(rand.nextInt(n), rand.nextInt(n), 1 + rand.nextInt(100));
+    }
+
+    /**
+     * Help function: builds a scale-free (Barabasi-Albert) graph,
+     * every new vertex connects to m existing vertices chosen by degree.
+     */
+    private static weighted_graph scaleFree(int n, int m, long seed) {
+        Random rand = new Random(seed);
+        weighted_graph g = new WGraph_DS();
+        int[] ends = new int[2 * n * m];
+        int size = 0;
+        for (int i = 0; i <= m; i++) g.addNode(i);
+        for (int i = 0; i <= m; i++) {
+            for (int j = i + 1; j <= m; j++) {
+                g.connect(i, j, rand.nextInt(100));
+                ends[size++] = i;
+                ends[size++] = j;
+            }
+        }
+        for (int v = m + 1; v < n; v++) {
+            g.addNode(v);
+            for (int k = 0; k < m; k++) {
+                int u = ends[rand.nextInt(size)];
+                if (u != v && !g.hasEdge(u, v)) {
+                    g.connect(u, v, rand.nextInt(100));
+                    ends[size++] = u;
+                    ends[size++] = v;
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Help function: a scale-free snapshot by preferential attachment - every new vertex connects
+     * to m endpoints of random earlier edges, sometimes to both ends of one edge (a triangle),
+     * repeated edges are merged by the snapshot.
+     */
+    private static WGraph_CSR scaleFreeCSR(int n, int m, long seed) {
+        Random rand = new Random(seed);
+        int[] nodes = new int[n], from = new int[n * m], to = new int[n * m];
+        double[] w = new double[n * m];
+        int size = 0;
+        for (int i = 0; i < n; i++) nodes[i] = i;
+        for (int i = 0; i <= m; i++) {
+            for (int j = i + 1; j <= m; j++) {
+                from[size] = i;
+                to[size++] = j;
+            }
+        }
+        for (int v = m + 1; v < n; v++) {
+            int e = 0;
+            for (int k = 0; k < m; k++) {
+                // Every other link closes a triangle with the last edge half of the time
+                boolean close = k % 2 == 1 && rand.nextBoolean();
+                if (!close) e = rand.nextInt(size);
+                from[size] = v;
+                to[size] = close ? to[e] : from[e];
+                w[size++] = 1;
+            }
+        }
+        return new WGraph_CSR(nodes, from, to, w, size);
+    }
+
+    /**
+     * Help function: builds a random graph with n vertices and m edges (weights in [0, 100)).
+     */
+    private static WGraph_CSR randomCSR(int n, int m, long seed) {
+        Random rand = new Random(seed);
+        int[] nodes = new int[n], from = new int[m], to = new int[m];
+        double[] w = new double[m];
+        for (int i = 0; i < n; i++) nodes[i] = i;
+        for (int e = 0; e < m; e++) {
+            from[e] = rand.nextInt(n);
+            to[e] = rand.nextInt(n);
+            w[e] = rand.nextDouble() * 100;
+        }
+        return new WGraph_CSR(nodes, from, to, w, m);
+    }
+
+    /**
+     * Help function: a side x side grid with random weights (1..10), vertex i is at row i / side.
+     */
+    private static WGraph_CSR gridCSR(int side, long seed) {
+        Random rand = new Random(seed);
+        int m = 2 * side * (side - 1), e = 0;
+        int[] nodes = new int[side * side], from = new int[m], to = new int[m];
+        double[] w = new double[m];
+        for (int i = 0; i < side * side; i++) {
+            nodes[i] = i;
+            if (i % side + 1 < side) {
+                from[e] = i;
+                to[e] = i + 1;
+                w[e++] = 1 + rand.nextInt(10);
+            }
+            if (i + side < side * side) {
+                from[e] = i;
+                to[e] = i + side;
+                w[e++] = 1 + rand.nextInt(10);
+            }
+        }
+        return new WGraph_CSR(nodes, from, to, w, m);
+    }
+
+    /**
+     * Help function: a random geometric graph - n points in the unit square, with the given average degree,
+     * an edge (weighted by the distance) between every two points closer than the radius.
+     * The keys are shuffled, so the key order says nothing about the position.
+     */
+    private static WGraph_CSR geometricCSR(int n, double degree, long seed) {
+        Random rand = new Random(seed);
+        double r = Math.sqrt(degree / (Math.PI * n));
+        int cells = (int) (1 / r);
+        double[] x = new double[n], y = new double[n];
+        int[] nodes = new int[n], cellOf = new int[n], start = new int[cells * cells + 1];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = i;
+            x[i] = rand.nextDouble();
+            y[i] = rand.nextDouble();
+            cellOf[i] = Math.min(cells - 1, (int) (x[i] * cells)) * cells + Math.min(cells - 1, (int) (y[i] * cells));
+            start[cellOf[i] + 1]++;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1), tmp = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = tmp;
+        }
+        for (int c = 0; c < cells * cells; c++) start[c + 1] += start[c];
+        int[] pos = Arrays.copyOf(start, cells * cells), byCell = new int[n];
+        for (int i = 0; i < n; i++) byCell[pos[cellOf[i]]++] = i;
+        int m = 0;
+        int[] from = new int[(int) (n * degree)], to = new int[from.length];
+        double[] w = new double[from.length];
+        for (int i = 0; i < n; i++) {
+            int cx = cellOf[i] / cells, cy = cellOf[i] % cells;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (cx + dx < 0 || cx + dx >= cells || cy + dy < 0 || cy + dy >= cells) continue;
+                    int c = (cx + dx) * cells + cy + dy;
+                    for (int p = start[c]; p < start[c + 1]; p++) {
+                        int j = byCell[p];
+                        double d = Math.hypot(x[i] - x[j], y[i] - y[j]);
+                        if (j <= i || d > r) continue;
+                        if (m == from.length) {
+                            from = Arrays.copyOf(from, m * 2);
+                            to = Arrays.copyOf(to, m * 2);
+                            w = Arrays.copyOf(w, m * 2);
+                        }
+                        from[m] = nodes[i];
+                        to[m] = nodes[j];
+                        w[m++] = d;
+                    }
+                }
+            }
+        }
+        return new WGraph_CSR(nodes, from, to, w, m);
+    }
+}
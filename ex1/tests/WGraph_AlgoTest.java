@@ -5,7 +5,17 @@ import static org.junit.jupiter.api.Assertions.*;
 import ex1.src.*;
 import org.junit.jupiter.api.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Test class which checks the graph's algorithms
@@ -178,4 +188,1000 @@ class WGraph_AlgoTest {
         text.load("myGraph.txt");
         assertEquals(big, text);
     }
-}
\ No newline at end of file
+
+    @Test
+    void saveDeltaAndLoad() {
+        weighted_graph_algorithms text = new WGraph_Algo();
+        WGraph_Algo a = (WGraph_Algo) arrow;
+        new File("myDeltaGraph.txt").delete();
+        new File("myDeltaGraph.txt" + WGraph_Algo.WAL_SUFFIX).delete();
+        try {
+            assertTrue(a.saveDelta("myDeltaGraph.txt"));
+
+            a.getGraph().connect(3, 4, 9.0);
+            a.getGraph().connect(0, 1, 2.5);
+            assertTrue(a.saveDelta("myDeltaGraph.txt"));
+            assertTrue(new File("myDeltaGraph.txt" + WGraph_Algo.WAL_SUFFIX).exists());
+            a.getGraph().removeNode(7);
+            assertTrue(a.saveDelta("myDeltaGraph.txt"));
+
+            assertTrue(text.load("myDeltaGraph.txt"));
+            assertEquals(arrow, text);
+            assertEquals(arrow.getGraph().getMC(), text.getGraph().getMC());
+            assertEquals(2.5, text.getGraph().getEdge(1, 0));
+            assertNull(text.getGraph().getNode(7));
+        } finally {
+            new File("myDeltaGraph.txt").delete();
+            new File("myDeltaGraph.txt" + WGraph_Algo.WAL_SUFFIX).delete();
+        }
+    }
+
+    @Test
+    void saveCompressedAndLoad() throws Exception {
+        try {
+            // Few distinct weights --> DICT, sparse & negative keys over several blocks
+            WGraph_DS g = compressedGraph(600, 3000, false);
+            WGraph_Algo a = new WGraph_Algo(g);
+            WGraph_Algo text = new WGraph_Algo();
+            assertTrue(a.saveCompressed("myCompressedGraph.wgc", false));
+            assertTrue(WGraph_Compressed.isCompressed("myCompressedGraph.wgc"));
+            assertTrue(text.load("myCompressedGraph.wgc"));
+            assertEquals(g, text.getGraph());
+            assertEquals(g.getMC(), text.getGraph().getMC());
+
+            // A single neighbor list is decoded lazily, in sorted order with its weights
+            try (WGraph_Compressed c = new WGraph_Compressed("myCompressedGraph.wgc")) {
+                assertEquals(WGraph_Compressed.DICT, c.getEncoding());
+                assertEquals(g.nodeSize(), c.nodeSize());
+                assertEquals(g.edgeSize(), c.edgeSize());
+                assertEquals(g.getMC(), c.getMC());
+                for (int key : new int[]{-1000000, -7919, 0, 7919 * 298, 1 << 30}) {
+                    int[] ni = c.neighbors(key);
+                    double[] w = c.weights(key);
+                    assertEquals(g.getV(key).size(), ni.length);
+                    assertEquals(ni.length, w.length);
+                    for (int j = 0; j < ni.length; j++) {
+                        if (j > 0) assertTrue(ni[j - 1] < ni[j]);
+                        assertEquals(g.getEdge(key, ni[j]), w[j]);
+                    }
+                }
+                assertNull(c.neighbors(1));
+                assertNull(c.weights(1));
+            }
+
+            // Too many distinct weights --> RAW (exact) || FLOAT (quantized)
+            g = compressedGraph(1000, 70000, true);
+            a.init(g);
+            assertTrue(a.saveCompressed("myCompressedGraph.wgc", false));
+            try (WGraph_Compressed c = new WGraph_Compressed("myCompressedGraph.wgc")) {
+                assertEquals(WGraph_Compressed.RAW, c.getEncoding());
+            }
+            assertTrue(text.load("myCompressedGraph.wgc"));
+            assertEquals(g, text.getGraph());
+            assertTrue(a.saveCompressed("myCompressedGraph.wgc", true));
+            try (WGraph_Compressed c = new WGraph_Compressed("myCompressedGraph.wgc")) {
+                assertEquals(WGraph_Compressed.FLOAT, c.getEncoding());
+            }
+            assertTrue(text.load("myCompressedGraph.wgc"));
+            assertEquals(g.edgeSize(), text.getGraph().edgeSize());
+            for (node_info v : g.getV()) {
+                for (node_info u : g.getV(v.getKey())) {
+                    double w = g.getEdge(v.getKey(), u.getKey());
+                    assertEquals((double) (float) w, text.getGraph().getEdge(v.getKey(), u.getKey()));
+                }
+            }
+
+            // A graph built by a batch has a small mode count: the log written after the save is replayed
+            g = new WGraph_DS();
+            int n = 100;
+            byte[] ops = new byte[2 * n];
+            int[] node1 = new int[2 * n], node2 = new int[2 * n];
+            double[] w = new double[2 * n];
+            for (int i = 0; i < n; i++) {
+                ops[i] = WGraph_Journal.ADD_NODE;
+                node1[i] = i;
+                ops[n + i] = WGraph_Journal.CONNECT;
+                node1[n + i] = i;
+                node2[n + i] = (i + 1) % n;
+                w[n + i] = 1;
+            }
+            g.applyBatch(ops, node1, node2, w, 2 * n, false);
+            assertEquals(1, g.getMC());
+            g.setJournal(new WGraph_Journal());
+            a.init(g);
+            assertTrue(a.saveCompressed("myCompressedGraph.wgc", false));
+            g.connect(0, 50, 4);
+            g.removeEdge(3, 4);
+            assertTrue(a.saveDelta("myCompressedGraph.wgc"));
+            assertTrue(new File("myCompressedGraph.wgc" + WGraph_Algo.WAL_SUFFIX).exists());
+            assertTrue(text.load("myCompressedGraph.wgc"));
+            assertEquals(4.0, text.getGraph().getEdge(0, 50));
+            assertEquals(-1.0, text.getGraph().getEdge(3, 4));
+            assertEquals(g, text.getGraph());
+            assertEquals(g.getMC(), text.getGraph().getMC());
+        } finally {
+            new File("myCompressedGraph.wgc").delete();
+            new File("myCompressedGraph.wgc" + WGraph_Algo.WAL_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Help function: a random graph on sparse keys (multiples of 7919 around 0, with -1000000 and 2^30),
+     * with weights out of a few values || all distinct.
+     */
+    private static WGraph_DS compressedGraph(int n, int m, boolean distinct) {
+        Random rand = new Random(27);
+        WGraph_DS g = new WGraph_DS();
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) keys[i] = 7919 * (i - n / 2);
+        keys[0] = -1000000;
+        keys[n - 1] = 1 << 30;
+        for (int key : keys) g.addNode(key);
+        while (g.edgeSize() < m) {
+            double w = distinct ? rand.nextDouble() * 100 : rand.nextInt(8) / 4.0;
+            g.connect(keys[rand.nextInt(n)], keys[rand.nextInt(n)], w);
+        }
+        return g;
+    }
+
+    @Test
+    void saveAsyncAndLoad() throws Exception {
+        Random rand = new Random(50);
+        WGraph_DS g = new WGraph_DS();
+        for (int i = 0; i < 2000; i++) g.addNode(i);
+        for (int i = 0; i < 6000; i++) g.connect(rand.nextInt(2000), rand.nextInt(2000), rand.nextInt(100) / 4.0);
+        g.getNode(5).setInfo("five");
+        g.getNode(6).setTag(6.5);
+        g.setJournal(new WGraph_Journal());
+        WGraph_Algo a = new WGraph_Algo(g);
+        new File("myAsyncGraph.txt" + WGraph_Algo.WAL_SUFFIX).delete();
+        weighted_graph before = a.copy();
+        int mc = g.getMC();
+
+        CompletableFuture<Boolean> saved = a.saveAsync("myAsyncGraph.txt");
+        // The graph keeps changing while it is written
+        for (int i = 0; i < 500; i++) {
+            g.removeNode(rand.nextInt(2000));
+            g.connect(rand.nextInt(2000), rand.nextInt(2000), 1);
+        }
+        g.addNode(5);
+        g.getNode(5).setInfo("changed");
+        assertTrue(saved.get());
+        assertFalse(new File("myAsyncGraph.txt.tmp").exists());
+
+        // The file holds the graph as it was at the call, with the same mode count, infos and tags
+        WGraph_Algo text = new WGraph_Algo();
+        assertTrue(text.load("myAsyncGraph.txt"));
+        assertEquals(before, text.getGraph());
+        assertEquals(mc, text.getGraph().getMC());
+        assertEquals("five", text.getGraph().getNode(5).getInfo());
+        assertEquals(6.5, text.getGraph().getNode(6).getTag());
+        assertNotEquals(g, text.getGraph());
+
+        // The changes made during the save are in the journal, the log brings the file up to date
+        assertTrue(g.getJournal().size() > 0);
+        assertTrue(g.getJournal().flush("myAsyncGraph.txt" + WGraph_Algo.WAL_SUFFIX));
+        assertTrue(text.load("myAsyncGraph.txt"));
+        assertEquals(g, text.getGraph());
+        assertEquals(g.getMC(), text.getGraph().getMC());
+
+        // Saves run in order, the last one wins
+        a.saveAsync("myAsyncGraph.txt");
+        g.addNode(1);
+        g.addNode(2);
+        g.connect(1, 2, 42);
+        assertTrue(a.saveAsync("myAsyncGraph.txt").get());
+        new File("myAsyncGraph.txt" + WGraph_Algo.WAL_SUFFIX).delete();
+        assertTrue(text.load("myAsyncGraph.txt"));
+        assertEquals(42.0, text.getGraph().getEdge(1, 2));
+
+        assertFalse(a.saveAsync("no/such/dir/myAsyncGraph.txt").get());
+        assertTrue(text.load("myAsyncGraph.txt"));
+        new File("myAsyncGraph.txt").delete();
+    }
+
+    @Test
+    void saveAfterSaveAsync() throws Exception {
+        WGraph_DS g = new WGraph_DS();
+        for (int i = 0; i < 50000; i++) g.addNode(i);
+        for (int i = 0; i < 49999; i++) g.connect(i, i + 1, 1);
+        g.setJournal(new WGraph_Journal());
+        WGraph_Algo a = new WGraph_Algo(g);
+        try {
+            // A synchronous save waits for the older image still being written, which can't replace it
+            CompletableFuture<Boolean> saved = a.saveAsync("myOrderedGraph.txt");
+            g.connect(0, 49999, 7);
+            assertTrue(a.save("myOrderedGraph.txt"));
+            assertTrue(saved.get());
+            WGraph_Algo text = new WGraph_Algo();
+            assertTrue(text.load("myOrderedGraph.txt"));
+            assertEquals(7.0, text.getGraph().getEdge(0, 49999));
+            assertEquals(g, text.getGraph());
+
+            // So does a compressed save
+            saved = a.saveAsync("myOrderedGraph.txt");
+            g.removeEdge(0, 49999);
+            assertTrue(a.saveCompressed("myOrderedGraph.txt", false));
+            assertTrue(saved.get());
+            assertTrue(text.load("myOrderedGraph.txt"));
+            assertEquals(-1.0, text.getGraph().getEdge(0, 49999));
+        } finally {
+            new File("myOrderedGraph.txt").delete();
+            new File("myOrderedGraph.txt" + WGraph_Algo.WAL_SUFFIX).delete();
+        }
+    }
+
+    @Test
+    void minimumSpanningForest() {
+        WGraph_MST mst = ((WGraph_Algo) pentagon).minimumSpanningForest();
+        assertEquals(3.0, mst.getWeight());
+        assertEquals(4, mst.edgeSize());
+        assertTrue(new WGraph_Algo(mst.getTree()).isConnected());
+
+        mst = ((WGraph_Algo) arrow).minimumSpanningForest();
+        assertEquals(25.0, mst.getWeight());
+        assertEquals(6, mst.edgeSize());
+        assertFalse(new WGraph_Algo(mst.getTree()).isConnected());
+
+        assertEquals(0, ((WGraph_Algo) empty).minimumSpanningForest().edgeSize());
+        assertEquals(1000000, ((WGraph_Algo) row).minimumSpanningForest().edgeSize());
+
+        Random rand = new Random(7);
+        for (int t = 0; t < 20; t++) {
+            weighted_graph g = new WGraph_DS();
+            for (int i = 0; i < 300; i++) g.addNode(i);
+            for (int i = 0; i < 600; i++) g.connect(rand.nextInt(300), rand.nextInt(300), rand.nextInt(20));
+            WGraph_CSR csr = WGraph_CSR.of(g);
+            WGraph_MST kruskal = WGraph_MST.kruskal(csr);
+            for (int threads = 1; threads <= 4; threads *= 2) {
+                WGraph_MST boruvka = WGraph_MST.boruvka(csr, threads);
+                assertEquals(kruskal.getTree(), boruvka.getTree());
+                assertEquals(kruskal.getWeight(), boruvka.getWeight(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void shortestPathDists() {
+        HashMap<Integer, Double> dist = ((WGraph_Algo) arrow).shortestPathDists(7);
+        assertEquals(4, dist.size());
+        assertEquals(13.0, (double) dist.get(4));
+        assertNull(dist.get(0));
+        assertNull(((WGraph_Algo) arrow).shortestPathDists(58));
+
+        Random rand = new Random(11);
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 500; i++) g.addNode(i);
+        for (int i = 0; i < 2000; i++) g.connect(rand.nextInt(500), rand.nextInt(500), rand.nextInt(100) / 4.0);
+        WGraph_Algo algo = new WGraph_Algo(g);
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        for (int src = 0; src < 500; src += 50) {
+            for (double delta : new double[]{0.1, 1, WGraph_DeltaStepping.autoDelta(csr), 1000}) {
+                double[] d = WGraph_DeltaStepping.distances(csr, csr.indexOf(src), delta, 4);
+                for (int v = 0; v < 500; v += 7) {
+                    assertEquals(algo.shortestPathDist(src, v), d[csr.indexOf(v)]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void kNearest() {
+        WGraph_Nearest near = ((WGraph_Algo) arrow).kNearest(0, 2, new int[]{3, 2, 1, 7});
+        assertArrayEquals(new int[]{1, 2}, near.getKeys());
+        assertArrayEquals(new double[]{1.0, 3.0}, near.getDists());
+        near = ((WGraph_Algo) arrow).kNearest(0, 5, new int[]{3, 7});
+        assertArrayEquals(new int[]{3}, near.getKeys());
+        assertEquals(7.0, near.getDists()[0]);
+        assertNull(((WGraph_Algo) arrow).kNearest(58, 1, new int[]{0}));
+
+        near = ((WGraph_Algo) row).kNearest(500, 3, new int[]{0, 499, 600, 1000000});
+        assertArrayEquals(new int[]{499, 600, 0}, near.getKeys());
+    }
+
+    @Test
+    void withinRadius() {
+        WGraph_Nearest near = ((WGraph_Algo) arrow).withinRadius(4, 11.0);
+        assertArrayEquals(new int[]{4, 5, 6}, near.getKeys());
+        assertArrayEquals(new double[]{0, 5.0, 11.0}, near.getDists());
+        assertEquals(1, ((WGraph_Algo) single).withinRadius(0, 100).size());
+
+        Random rand = new Random(5);
+        for (int i = 0; i < 10; i++) {
+            int src = rand.nextInt(5);
+            WGraph_Nearest all = ((WGraph_Algo) pentagon).withinRadius(src, 1.5);
+            for (int v = 0; v < 5; v++) {
+                double d = pentagon.shortestPathDist(src, v);
+                boolean in = false;
+                for (int key : all.getKeys()) in |= key == v;
+                assertEquals(d <= 1.5, in);
+            }
+        }
+    }
+
+    @Test
+    void kShortestPaths() {
+        List<List<node_info>> paths = ((WGraph_Algo) arrow).kShortestPaths(0, 3, 5);
+        assertEquals(2, paths.size());
+        assertEquals(arrow.shortestPath(0, 3), paths.get(0));
+        assertEquals(4, paths.get(1).size());
+        assertTrue(((WGraph_Algo) arrow).kShortestPaths(0, 7, 3).isEmpty());
+        assertNull(((WGraph_Algo) arrow).kShortestPaths(0, 58, 3));
+
+        Random rand = new Random(9);
+        for (int t = 0; t < 20; t++) {
+            weighted_graph g = new WGraph_DS();
+            for (int i = 0; i < 9; i++) g.addNode(i);
+            for (int i = 0; i < 18; i++) g.connect(rand.nextInt(9), rand.nextInt(9), 1 + rand.nextInt(5));
+            List<Double> all = new ArrayList<>();
+            allPaths(g, 0, 8, new HashSet<>(), 0, all);
+            Collections.sort(all);
+            paths = new WGraph_Algo(g).kShortestPaths(0, 8, 10);
+            assertEquals(Math.min(10, all.size()), paths.size());
+            HashSet<List<node_info>> distinct = new HashSet<>(paths);
+            assertEquals(paths.size(), distinct.size());
+            for (int i = 0; i < paths.size(); i++) {
+                List<node_info> p = paths.get(i);
+                double cost = 0;
+                for (int j = 0; j + 1 < p.size(); j++) cost += g.getEdge(p.get(j).getKey(), p.get(j + 1).getKey());
+                assertEquals(all.get(i), cost, 1e-9);
+                assertEquals(p.size(), new HashSet<>(p).size());
+            }
+        }
+    }
+
+    /**
+     * Help function: collects the costs of all the simple paths from u to dest (brute force).
+     */
+    private static void allPaths(weighted_graph g, int u, int dest, HashSet<Integer> visited,
+                                 double cost, List<Double> costs) {
+        if (u == dest) {
+            costs.add(cost);
+            return;
+        }
+        visited.add(u);
+        for (node_info ni : g.getV(u)) {
+            if (!visited.contains(ni.getKey())) {
+                allPaths(g, ni.getKey(), dest, visited, cost + g.getEdge(u, ni.getKey()), costs);
+            }
+        }
+        visited.remove(u);
+    }
+
+    @Test
+    void allPairsShortestPaths() {
+        WGraph_APSP apsp = ((WGraph_Algo) arrow).allPairsShortestPaths(false);
+        assertEquals(13.0, apsp.dist(7, 4));
+        assertEquals(-1, apsp.dist(0, 7));
+        assertEquals(-1, apsp.dist(0, 58));
+        assertEquals(64, apsp.getMatrix().length);
+
+        Random rand = new Random(13);
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 150; i++) g.addNode(i * 2);
+        for (int i = 0; i < 400; i++) g.connect(rand.nextInt(150) * 2, rand.nextInt(150) * 2, rand.nextInt(40) / 8.0);
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        WGraph_Algo algo = new WGraph_Algo(g);
+        WGraph_APSP fw = WGraph_APSP.floydWarshall(csr, false, 4);
+        WGraph_APSP dj = WGraph_APSP.dijkstra(csr, false, 4);
+        WGraph_APSP fwFloat = WGraph_APSP.floydWarshall(csr, true, 4);
+        WGraph_APSP djFloat = WGraph_APSP.dijkstra(csr, true, 4);
+        assertArrayEquals(fw.getMatrix(), dj.getMatrix());
+        assertNull(fwFloat.getMatrix());
+        for (int i = 0; i < 150; i += 3) {
+            for (int j = 0; j < 150; j += 5) {
+                double d = algo.shortestPathDist(i * 2, j * 2);
+                assertEquals(d, fw.dist(i * 2, j * 2));
+                assertEquals(d, fwFloat.dist(i * 2, j * 2), 1e-4);
+                assertEquals(d, djFloat.dist(i * 2, j * 2), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    void betweennessCentrality() {
+        HashMap<Integer, Double> bc = ((WGraph_Algo) arrow).betweennessCentrality();
+        assertEquals(2.0, (double) bc.get(2));
+        assertEquals(0.0, (double) bc.get(3));
+        assertEquals(2.0, (double) bc.get(5));
+
+        Random rand = new Random(17);
+        for (int t = 0; t < 10; t++) {
+            weighted_graph g = new WGraph_DS();
+            for (int i = 0; i < 8; i++) g.addNode(i);
+            for (int i = 0; i < 14; i++) g.connect(rand.nextInt(8), rand.nextInt(8), 1 + rand.nextInt(3));
+            WGraph_CSR csr = WGraph_CSR.of(g);
+            double[] exact = WGraph_Centrality.betweenness(csr, 4);
+            assertArrayEquals(exact, WGraph_Centrality.betweenness(csr, 8, 1, 2), 1e-9);
+            for (int v = 0; v < 8; v++) {
+                double expected = 0;
+                for (int s = 0; s < 8; s++) {
+                    for (int d = s + 1; d < 8; d++) {
+                        if (s == v || d == v) continue;
+                        List<List<Integer>> paths = new ArrayList<>();
+                        shortestPaths(g, s, d, new WGraph_Algo(g).shortestPathDist(s, d),
+                                new ArrayList<>(Collections.singletonList(s)), 0, paths);
+                        int through = 0;
+                        for (List<Integer> p : paths) if (p.contains(v)) through++;
+                        if (!paths.isEmpty()) expected += (double) through / paths.size();
+                    }
+                }
+                assertEquals(expected, exact[csr.indexOf(v)], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void closenessCentrality() {
+        HashMap<Integer, Double> cc = ((WGraph_Algo) pentagon).closenessCentrality();
+        for (int v = 0; v < 5; v++) {
+            double sum = 0;
+            for (int u = 0; u < 5; u++) sum += pentagon.shortestPathDist(v, u);
+            assertEquals(4 / sum, cc.get(v), 1e-9);
+        }
+        cc = ((WGraph_Algo) arrow).closenessCentrality();
+        assertEquals(3 / 11.0 * 3 / 7, cc.get(0), 1e-9);
+        assertEquals(0.0, (double) ((WGraph_Algo) single).closenessCentrality().get(0));
+    }
+
+    @Test
+    void dynamicShortestPaths() {
+        WGraph_DynamicSSSP tree = ((WGraph_Algo) arrow).dynamicShortestPaths(0);
+        assertEquals(7.0, tree.getDist(3));
+        assertEquals(-1.0, tree.getDist(4));
+        arrow.getGraph().connect(1, 3, 1);
+        assertEquals(2.0, tree.getDist(3));
+        arrow.getGraph().removeEdge(1, 3);
+        assertEquals(7.0, tree.getDist(3));
+        tree.close();
+        assertNull(((WGraph_Algo) arrow).dynamicShortestPaths(100));
+
+        Random rand = new Random(35);
+        for (int t = 0; t < 5; t++) {
+            weighted_graph g = new WGraph_DS();
+            for (int i = 0; i < 30; i++) g.addNode(i);
+            for (int i = 0; i < 60; i++) g.connect(rand.nextInt(30), rand.nextInt(30), 1 + rand.nextInt(10));
+            WGraph_Algo algo = new WGraph_Algo(g);
+            tree = algo.dynamicShortestPaths(0);
+            for (int step = 0; step < 300; step++) {
+                int a = rand.nextInt(30), b = rand.nextInt(30), op = rand.nextInt(10);
+                if (op < 6) g.connect(a, b, 1 + rand.nextInt(10));
+                else if (op < 9) g.removeEdge(a, b);
+                else if (a != 0) {
+                    g.removeNode(a);
+                    g.addNode(a);
+                }
+                for (int v = 0; v < 30; v++) {
+                    assertEquals(algo.shortestPathDist(0, v), tree.getDist(v), 1e-9);
+                    List<node_info> path = tree.getPath(v);
+                    if (path == null) continue;
+                    double cost = 0;
+                    for (int i = 0; i + 1 < path.size(); i++) cost += g.getEdge(path.get(i).getKey(), path.get(i + 1).getKey());
+                    assertEquals(tree.getDist(v), cost, 1e-9);
+                }
+            }
+            tree.close();
+        }
+    }
+
+    @Test
+    void partition() {
+        HashMap<Integer, Integer> parts = ((WGraph_Algo) arrow).partition(2);
+        assertEquals(8, parts.size());
+        for (int v = 0; v < 8; v++) assertTrue(parts.get(v) == 0 || parts.get(v) == 1);
+
+        int side = 40;
+        weighted_graph grid = new WGraph_DS();
+        for (int i = 0; i < side * side; i++) grid.addNode(i);
+        for (int i = 0; i < side * side; i++) {
+            if (i % side + 1 < side) grid.connect(i, i + 1, 1);
+            if (i + side < side * side) grid.connect(i, i + side, 1);
+        }
+        grid.removeEdge(0, 1);
+        grid.removeEdge(0, side);
+        WGraph_CSR csr = WGraph_CSR.of(grid);
+        for (int k : new int[]{2, 4, 7}) {
+            WGraph_Partition p = WGraph_Partition.compute(csr, k, 1);
+            assertTrue(p.balance() <= 1.05, "balance " + p.balance());
+            // a straight split of the grid cuts ~side edges per border
+            assertTrue(p.edgeCut() <= 2 * side * k, "cut " + p.edgeCut());
+
+            WGraph_Partitioned view = new WGraph_Partitioned(csr, p);
+            int[] hops = view.bfs(csr.indexOf(side + 1), 3);
+            for (int v = 0; v < side * side; v++) {
+                int expected = v == 0 ? -1 : Math.abs(v / side - 1) + Math.abs(v % side - 1);
+                assertEquals(expected, hops[csr.indexOf(v)]);
+            }
+            int[] comp = view.components(3);
+            assertEquals(0, comp[csr.indexOf(0)]);
+            for (int v = 1; v < side * side; v++) assertEquals(1, comp[csr.indexOf(v)]);
+        }
+    }
+
+    @Test
+    void cluster() throws IOException {
+        Random rand = new Random(38);
+        weighted_graph g = new WGraph_DS();
+        // The keys aren't the dense indexes: the queries take keys, the results are by dense index
+        for (int i = 0; i < 300; i++) g.addNode(7 * i - 500);
+        for (int i = 0; i < 450; i++) g.connect(7 * rand.nextInt(300) - 500, 7 * rand.nextInt(300) - 500, 1 + rand.nextInt(20));
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        WGraph_Algo algo = new WGraph_Algo(g);
+        for (boolean processes : new boolean[]{false, true}) {
+            try (WGraph_Cluster cluster = new WGraph_Cluster(csr, 3, processes)) {
+                for (int src : new int[]{-500, 620, 1593}) {
+                    double[] dist = cluster.distances(src);
+                    int[] hops = cluster.bfs(src);
+                    int[] expected = new WGraph_Partitioned(csr, WGraph_Partition.compute(csr, 1, 0)).bfs(csr.indexOf(src), 1);
+                    assertArrayEquals(expected, hops);
+                    for (node_info v : g.getV()) {
+                        assertEquals(algo.shortestPathDist(src, v.getKey()), dist[csr.indexOf(v.getKey())], 1e-9);
+                    }
+                }
+                long[] rounds = cluster.getRoundMessages();
+                assertTrue(rounds.length > 1);
+                assertEquals(0, rounds[rounds.length - 1]);
+                assertEquals(algo.shortestPathDist(-479, 4), cluster.shortestPathDist(-479, 4), 1e-9);
+                assertNull(cluster.distances(0));
+                assertNull(cluster.bfs(0));
+                assertEquals(-1, cluster.shortestPathDist(0, 4));
+                int[] comp = cluster.components();
+                for (node_info v : g.getV()) {
+                    int i = csr.indexOf(v.getKey());
+                    assertTrue(comp[i] <= i);
+                    assertTrue(algo.shortestPathDist(csr.key(comp[i]), v.getKey()) >= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void reordered() {
+        WGraph_Reordered rcm = ((WGraph_Algo) arrow).reordered(WGraph_Reordered.RCM);
+        assertEquals(7.0, rcm.shortestPathDist(0, 3));
+        assertEquals(-1.0, rcm.shortestPathDist(0, 4));
+        assertEquals(-1.0, rcm.shortestPathDist(0, 100));
+
+        Random rand = new Random(39);
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 200; i++) g.addNode(rand.nextInt(100000));
+        Object[] keys = g.getV().stream().map(node_info::getKey).toArray();
+        for (int i = 0; i < 400; i++) {
+            g.connect((int) keys[rand.nextInt(keys.length)], (int) keys[rand.nextInt(keys.length)], rand.nextInt(50));
+        }
+        WGraph_Algo algo = new WGraph_Algo(g);
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        int src = (int) keys[0];
+        double[] expected = WGraph_DeltaStepping.distances(csr, csr.indexOf(src), 1);
+        int[] hops = new WGraph_Partitioned(csr, WGraph_Partition.compute(csr, 1, 0)).bfs(csr.indexOf(src), 1);
+        for (int order : new int[]{WGraph_Reordered.NONE, WGraph_Reordered.BFS, WGraph_Reordered.RCM, WGraph_Reordered.DEGREE}) {
+            WGraph_Reordered r = algo.reordered(order);
+            boolean[] seen = new boolean[csr.nodeSize()];
+            for (Object key : keys) {
+                int label = r.label((int) key);
+                assertFalse(seen[label]);
+                seen[label] = true;
+                assertEquals((int) key, r.key(label));
+            }
+            assertArrayEquals(expected, r.distances(src), 1e-9);
+            assertArrayEquals(hops, r.bfs(src));
+            for (int i = 0; i < 20; i++) {
+                int a = (int) keys[rand.nextInt(keys.length)], b = (int) keys[rand.nextInt(keys.length)];
+                assertEquals(algo.shortestPathDist(a, b), r.shortestPathDist(a, b), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void shortestPathArray() {
+        WGraph_Algo algo = (WGraph_Algo) arrow;
+        WGraph_Path path = algo.shortestPathArray(0, 3);
+        assertArrayEquals(new int[]{0, 2, 3}, path.getKeys());
+        assertEquals(path.size(), path.getDists().length);
+        assertEquals(0.0, path.getDists()[0]);
+        assertEquals(algo.shortestPathDist(0, 3), path.length());
+        assertEquals(arrow.shortestPath(0, 3), path.asList(arrow.getGraph()));
+        assertArrayEquals(new int[]{5}, algo.shortestPathArray(5, 5).getKeys());
+        assertNull(algo.shortestPathArray(0, 4));
+        assertNull(algo.shortestPathArray(0, 100));
+
+        // The snapshot is taken again once the graph changes
+        arrow.getGraph().connect(0, 3, 1);
+        assertArrayEquals(new int[]{0, 3}, algo.shortestPathArray(0, 3).getKeys());
+        assertEquals(1.0, algo.shortestPathArray(0, 3).length());
+
+        Random rand = new Random(42);
+        Object[] keys = big.getGraph().getV().stream().map(node_info::getKey).toArray();
+        for (int i = 0; i < 50; i++) {
+            int a = (int) keys[rand.nextInt(keys.length)], b = (int) keys[rand.nextInt(keys.length)];
+            WGraph_Path p = ((WGraph_Algo) big).shortestPathArray(a, b);
+            if (p == null) {
+                assertNull(big.shortestPath(a, b));
+                continue;
+            }
+            assertEquals(big.shortestPathDist(a, b), p.length(), 1e-9);
+            assertEquals(big.shortestPath(a, b).size(), p.size());
+            for (int j = 1; j < p.size(); j++) {
+                double hop = big.getGraph().getEdge(p.getKeys()[j - 1], p.getKeys()[j]);
+                assertEquals(p.getDists()[j - 1] + hop, p.getDists()[j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void hubLabels() throws IOException {
+        WGraph_HubLabels arrowLabels = ((WGraph_Algo) arrow).hubLabels();
+        assertEquals(7.0, arrowLabels.shortestPathDist(0, 3));
+        assertEquals(0.0, arrowLabels.shortestPathDist(3, 3));
+        assertEquals(-1.0, arrowLabels.shortestPathDist(0, 4));
+        assertEquals(-1.0, arrowLabels.shortestPathDist(0, 100));
+
+        WGraph_HubLabels labels = ((WGraph_Algo) big).hubLabels();
+        assertEquals(big.getGraph().nodeSize(), labels.nodeSize());
+        Random rand = new Random(43);
+        Object[] keys = big.getGraph().getV().stream().map(node_info::getKey).toArray();
+        for (int i = 0; i < 200; i++) {
+            int a = (int) keys[rand.nextInt(keys.length)], b = (int) keys[rand.nextInt(keys.length)];
+            assertEquals(big.shortestPathDist(a, b), labels.shortestPathDist(a, b), 1e-9);
+        }
+
+        labels.save("myLabels.bin");
+        WGraph_HubLabels loaded = WGraph_HubLabels.load("myLabels.bin");
+        assertEquals(labels.labelSize(), loaded.labelSize());
+        for (int i = 0; i < 200; i++) {
+            int a = (int) keys[rand.nextInt(keys.length)], b = (int) keys[rand.nextInt(keys.length)];
+            assertEquals(labels.shortestPathDist(a, b), loaded.shortestPathDist(a, b));
+        }
+        big.save("myGraph.txt");
+        assertThrows(IOException.class, () -> WGraph_HubLabels.load("myGraph.txt"));
+        new File("myLabels.bin").delete();
+    }
+
+    @Test
+    void approximateDistances() {
+        WGraph_ThorupZwick exact = ((WGraph_Algo) arrow).approximateDistances(1);
+        assertEquals(1, exact.stretch());
+        assertEquals(7.0, exact.shortestPathDist(0, 3));
+        assertEquals(-1.0, exact.shortestPathDist(0, 4));
+        assertEquals(-1.0, exact.shortestPathDist(0, 100));
+
+        // The observed stretch on sampled pairs never exceeds the bound, nor goes below 1
+        Random rand = new Random(44);
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 500; i++) g.addNode(i);
+        for (int i = 0; i < 1000; i++) g.connect(rand.nextInt(500), rand.nextInt(500), 1 + rand.nextInt(20));
+        weighted_graph_algorithms algo = new WGraph_Algo(g);
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        for (int k = 1; k <= 4; k++) {
+            for (int threads : new int[]{1, 4}) {
+                WGraph_ThorupZwick tz = WGraph_ThorupZwick.build(csr, k, k, threads);
+                assertEquals(2 * k - 1, tz.stretch());
+                double worst = 1;
+                for (int i = 0; i < 300; i++) {
+                    int a = csr.key(rand.nextInt(csr.nodeSize())), b = csr.key(rand.nextInt(csr.nodeSize()));
+                    double d = algo.shortestPathDist(a, b), approx = tz.shortestPathDist(a, b);
+                    if (d <= 0) {
+                        assertEquals(d, approx, 1e-9);
+                        continue;
+                    }
+                    assertTrue(approx >= d - 1e-9 && approx <= tz.stretch() * d + 1e-9, a + "-" + b + ": " + approx + " / " + d);
+                    worst = Math.max(worst, approx / d);
+                }
+                if (k == 1) assertEquals(1.0, worst, 1e-9);
+                else assertTrue(tz.bunchSize() < (long) g.nodeSize() * g.nodeSize());
+            }
+        }
+    }
+
+    @Test
+    void nearestSources() {
+        WGraph_Voronoi cells = ((WGraph_Algo) arrow).nearestSources(new int[]{0, 6, 100});
+        assertEquals(0, cells.nearestSource(3));
+        assertEquals(7.0, cells.shortestPathDist(3));
+        assertEquals(6, cells.nearestSource(6));
+        assertEquals(0.0, cells.shortestPathDist(6));
+        assertEquals(-1, cells.nearestSource(100));
+        assertEquals(-1.0, cells.shortestPathDist(100));
+
+        Random rand = new Random(45);
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 300; i++) g.addNode(i * 3);
+        for (int i = 0; i < 500; i++) g.connect(3 * rand.nextInt(300), 3 * rand.nextInt(300), rand.nextInt(10));
+        weighted_graph_algorithms algo = new WGraph_Algo(g);
+        int[] sources = new int[]{0, 30, 300, 600, 897};
+        cells = ((WGraph_Algo) algo).nearestSources(sources);
+        for (node_info v : g.getV()) {
+            double best = -1;
+            for (int s : sources) {
+                double d = algo.shortestPathDist(s, v.getKey());
+                if (d >= 0 && (best < 0 || d < best)) best = d;
+            }
+            assertEquals(best, cells.shortestPathDist(v.getKey()), 1e-9);
+            if (best < 0) assertEquals(-1, cells.nearestSource(v.getKey()));
+            else assertEquals(best, algo.shortestPathDist(cells.nearestSource(v.getKey()), v.getKey()), 1e-9);
+        }
+    }
+
+    @Test
+    void biconnected() {
+        WGraph_Biconnected arrowCuts = ((WGraph_Algo) arrow).biconnected();
+        assertTrue(arrowCuts.isBridge(2, 3));
+        assertTrue(arrowCuts.isBridge(4, 5));
+        assertFalse(arrowCuts.isBridge(0, 1));
+        assertFalse(arrowCuts.isBridge(0, 3));
+        assertTrue(arrowCuts.isArticulationPoint(2));
+        assertTrue(arrowCuts.isArticulationPoint(5));
+        assertFalse(arrowCuts.isArticulationPoint(0));
+        assertFalse(arrowCuts.isArticulationPoint(100));
+        assertEquals(4, arrowCuts.components());
+
+        // Brute force: remove every edge / vertex and count the connected components
+        Random rand = new Random(46);
+        for (int round = 0; round < 20; round++) {
+            weighted_graph g = new WGraph_DS();
+            int n = 5 + rand.nextInt(25);
+            for (int i = 0; i < n; i++) g.addNode(i);
+            for (int i = 0; i < n + rand.nextInt(n); i++) g.connect(rand.nextInt(n), rand.nextInt(n), 1);
+            WGraph_Biconnected cuts = new WGraph_Algo(g).biconnected();
+            int comps = countComponents(g);
+            int bridges = 0;
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    if (!g.hasEdge(a, b)) {
+                        assertEquals(-1, cuts.component(a, b));
+                        continue;
+                    }
+                    g.removeEdge(a, b);
+                    boolean bridge = countComponents(g) > comps;
+                    g.connect(a, b, 1);
+                    assertEquals(bridge, cuts.isBridge(a, b), a + "-" + b);
+                    if (bridge) bridges++;
+                }
+            }
+            assertEquals(bridges, cuts.bridgeCount());
+            for (int v = 0; v < n; v++) {
+                weighted_graph copy = new WGraph_Algo(g).copy();
+                boolean isolated = copy.getV(v).isEmpty();
+                copy.removeNode(v);
+                // The other vertices split into more components (the removed vertex was one if isolated)
+                boolean cut = countComponents(copy) > comps - (isolated ? 1 : 0);
+                assertEquals(cut, cuts.isArticulationPoint(v), "vertex " + v);
+                // An articulation point is in more than one biconnected component
+                HashSet<Integer> in = new HashSet<>();
+                for (node_info ni : g.getV(v)) in.add(cuts.component(v, ni.getKey()));
+                assertEquals(cut, in.size() > 1, "vertex " + v);
+            }
+        }
+    }
+
+    @Test
+    void triangles() {
+        WGraph_Triangles arrowTriangles = ((WGraph_Algo) arrow).triangles();
+        assertEquals(2, arrowTriangles.triangles());
+        assertArrayEquals(new long[]{1, 1, 1, 0, 0, 1, 1, 1}, arrowTriangles.getTriangles());
+        // Vertex 2 has 3 neighbors (3 pairs) and 1 triangle, vertex 5 as well
+        assertEquals(1.0 / 3, arrowTriangles.getLocalClustering()[2], 1e-9);
+        assertEquals(1.0, arrowTriangles.getLocalClustering()[0], 1e-9);
+        assertEquals(0.0, arrowTriangles.getLocalClustering()[3], 1e-9);
+        // 6 triangle corners out of 1 + 1 + 3 + 0 + 0 + 3 + 1 + 1 triples
+        assertEquals(6.0 / 10, arrowTriangles.globalClustering(), 1e-9);
+
+        // Brute force over all the triples of vertices, for 1 & 4 threads
+        Random rand = new Random(47);
+        weighted_graph g = new WGraph_DS();
+        int n = 120;
+        for (int i = 0; i < n; i++) g.addNode(i);
+        for (int i = 0; i < 1500; i++) {
+            // A few hubs, so the orientation by degree matters
+            int a = rand.nextInt(4) == 0 ? rand.nextInt(5) : rand.nextInt(n);
+            g.connect(a, rand.nextInt(n), 1);
+        }
+        long[] expected = new long[n];
+        long total = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (!g.hasEdge(a, b)) continue;
+                for (int c = b + 1; c < n; c++) {
+                    if (g.hasEdge(a, c) && g.hasEdge(b, c)) {
+                        expected[a]++;
+                        expected[b]++;
+                        expected[c]++;
+                        total++;
+                    }
+                }
+            }
+        }
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        for (int threads : new int[]{1, 4}) {
+            WGraph_Triangles t = WGraph_Triangles.count(csr, threads);
+            assertEquals(total, t.triangles());
+            assertArrayEquals(expected, t.getTriangles());
+            for (int v = 0; v < n; v++) {
+                long d = g.getV(v).size();
+                assertEquals(d < 2 ? 0 : expected[v] / (d * (d - 1) / 2.0), t.getLocalClustering()[v], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void communities() {
+        // Two heavy 5-cliques joined by a light edge
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 10; i++) g.addNode(i);
+        for (int a = 0; a < 10; a++) {
+            for (int b = a + 1; b < 10; b++) if (a / 5 == b / 5) g.connect(a, b, 5);
+        }
+        g.connect(4, 5, 1);
+        WGraph_Louvain two = new WGraph_Algo(g).communities();
+        assertEquals(2, two.communities());
+        for (int v = 0; v < 10; v++) assertEquals(two.community(v / 5 * 5), two.community(v));
+        assertNotEquals(two.community(0), two.community(9));
+        assertEquals(-1, two.community(100));
+        assertEquals(modularity(g, two), two.modularity(), 1e-9);
+
+        // Planted partition: 20 groups of 25 vertices, most of the weight inside the groups
+        Random rand = new Random(48);
+        g = new WGraph_DS();
+        for (int i = 0; i < 500; i++) g.addNode(i);
+        for (int i = 0; i < 4000; i++) {
+            int a = rand.nextInt(500);
+            if (rand.nextInt(10) < 8) g.connect(a, a / 25 * 25 + rand.nextInt(25), 1 + rand.nextInt(3));
+            else g.connect(a, rand.nextInt(500), 1);
+        }
+        WGraph_CSR csr = WGraph_CSR.of(g);
+        WGraph_Louvain one = WGraph_Louvain.detect(csr, 1), four = WGraph_Louvain.detect(csr, 4);
+        assertArrayEquals(one.getCommunities(), four.getCommunities());
+        assertEquals(modularity(g, one), one.modularity(), 1e-9);
+        assertTrue(one.modularity() > 0.6, "modularity " + one.modularity());
+        // Better than the planted groups themselves or close to them
+        int[] planted = new int[500];
+        for (int v = 0; v < 500; v++) planted[v] = v / 25;
+        assertTrue(one.modularity() > WGraph_Louvain.modularity(csr, planted) - 0.02);
+        assertTrue(one.levels() >= 1);
+
+        WGraph_Louvain none = new WGraph_Algo(new WGraph_DS()).communities();
+        assertEquals(0, none.communities());
+        assertEquals(0.0, none.modularity());
+    }
+
+    @Test
+    void queryService() throws Exception {
+        Random rand = new Random(49);
+        weighted_graph g = new WGraph_DS();
+        for (int i = 0; i < 300; i++) g.addNode(i * 3);
+        for (int i = 0; i < 900; i++) g.connect(rand.nextInt(300) * 3, rand.nextInt(300) * 3, 1 + rand.nextInt(100) / 10.0);
+        WGraph_Algo algo = new WGraph_Algo(g);
+        // A few hot sources, so that the concurrent requests share searches and repeat each other
+        String[] list = new String[200];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = (i % 2 == 0 ? "DIST " : "PATH ") + rand.nextInt(5) * 3 + " " + rand.nextInt(300) * 3;
+        }
+        for (boolean shared : new boolean[]{true, false}) {
+            try (WGraph_QueryService service = new WGraph_QueryService(WGraph_CSR.of(g), shared, shared)) {
+                String[][] answers = new String[8][list.length];
+                Thread[] clients = new Thread[8];
+                Exception[] failure = new Exception[1];
+                for (int c = 0; c < clients.length; c++) {
+                    int client = c;
+                    clients[c] = new Thread(() -> {
+                        try (WGraph_QueryClient q = new WGraph_QueryClient(service.getPort())) {
+                            for (int i = 0; i < list.length; i++) answers[client][(i + client * 25) % list.length] = q.query(list[(i + client * 25) % list.length]);
+                        } catch (Exception e) {
+                            failure[0] = e;
+                        }
+                    });
+                    clients[c].start();
+                }
+                for (Thread t : clients) t.join();
+                assertNull(failure[0]);
+                for (int i = 0; i < list.length; i++) {
+                    String[] parts = list[i].split(" ");
+                    int src = Integer.parseInt(parts[1]), dest = Integer.parseInt(parts[2]);
+                    double expected = algo.shortestPathDist(src, dest);
+                    for (String[] answer : answers) {
+                        if (parts[0].equals("DIST")) assertEquals(expected, Double.parseDouble(answer[i]), 1e-9);
+                        else if (expected == -1) assertEquals("null", answer[i]);
+                        else {
+                            // A path of existing edges from src to dest whose cost is the distance
+                            String[] keys = answer[i].split(" ");
+                            assertEquals(src, Integer.parseInt(keys[0]));
+                            assertEquals(dest, Integer.parseInt(keys[keys.length - 1]));
+                            double cost = 0;
+                            for (int k = 1; k < keys.length; k++) {
+                                cost += g.getEdge(Integer.parseInt(keys[k - 1]), Integer.parseInt(keys[k]));
+                            }
+                            assertEquals(expected, cost, 1e-9);
+                        }
+                    }
+                }
+                assertEquals(8 * list.length, service.getRequests());
+                assertTrue(service.getSearches() + service.getCoalesced() <= service.getRequests());
+                // 8 clients on 5 hot sources - the requests share searches
+                if (shared) assertTrue(service.getSearches() < service.getRequests(), service.getSearches() + " searches");
+                if (!shared) assertEquals(0, service.getCoalesced());
+                if (!shared) assertEquals(service.getRequests(), service.getSearches());
+            }
+        }
+
+        try (WGraph_QueryService service = algo.serve(); WGraph_QueryClient q = new WGraph_QueryClient(service.getPort())) {
+            assertEquals(algo.isConnected(), q.isConnected());
+            assertEquals(-1, q.shortestPathDist(0, 1));
+            assertNull(q.shortestPath(1, 0));
+            assertArrayEquals(new int[]{3}, q.shortestPath(3, 3));
+            assertEquals(0.0, q.shortestPathDist(3, 3));
+            assertTrue(q.query("NEAREST 3").startsWith("ERR"));
+            assertTrue(q.query("DIST 3").startsWith("ERR"));
+            assertTrue(q.query("DIST 3 x").startsWith("ERR"));
+            // The service keeps the snapshot it started with
+            double before = q.shortestPathDist(0, 3);
+            g.connect(0, 3, 0.01);
+            assertEquals(before, q.shortestPathDist(0, 3));
+        }
+        weighted_graph two = new WGraph_DS();
+        two.addNode(1);
+        two.addNode(2);
+        try (WGraph_QueryService service = new WGraph_Algo(two).serve(); WGraph_QueryClient q = new WGraph_QueryClient(service.getPort())) {
+            assertFalse(q.isConnected());
+            two.connect(1, 2, 1);
+        }
+        try (WGraph_QueryService service = new WGraph_Algo(two).serve(); WGraph_QueryClient q = new WGraph_QueryClient(service.getPort())) {
+            assertTrue(q.isConnected());
+        }
+    }
+
+    /**
+     * Help function: the modularity of the communities straight from the definition.
+     */
+    private static double modularity(weighted_graph g, WGraph_Louvain c) {
+        double m2 = 0, inner = 0;
+        HashMap<Integer, Double> tot = new HashMap<>();
+        for (node_info v : g.getV()) {
+            for (node_info ni : g.getV(v.getKey())) {
+                double w = g.getEdge(v.getKey(), ni.getKey());
+                m2 += w;
+                tot.merge(c.community(v.getKey()), w, Double::sum);
+                if (c.community(v.getKey()) == c.community(ni.getKey())) inner += w;
+            }
+        }
+        double q = inner / m2;
+        for (double t : tot.values()) q -= (t / m2) * (t / m2);
+        return q;
+    }
+
+    /**
+     * Help function: the number of connected components (BFS).
+     */
+    private static int countComponents(weighted_graph g) {
+        HashSet<Integer> seen = new HashSet<>();
+        int comps = 0;
+        for (node_info v : g.getV()) {
+            if (!seen.add(v.getKey())) continue;
+            comps++;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(v.getKey());
+            while (!queue.isEmpty()) {
+                for (node_info ni : g.getV(queue.poll())) if (seen.add(ni.getKey())) queue.add(ni.getKey());
+            }
+        }
+        return comps;
+    }
+
+    /**
+     * Help function: collects all the simple paths from the path's end to dest
+     * whose cost is exactly the given shortest distance (brute force).
+     */
+    private static void shortestPaths(weighted_graph g, int u, int dest, double dist, List<Integer> path,
+                                      double cost, List<List<Integer>> paths) {
+        if (cost > dist) return;
+        if (u == dest) {
+            paths.add(new ArrayList<>(path));
+            return;
+        }
+        for (node_info ni : g.getV(u)) {
+            if (path.contains(ni.getKey())) continue;
+            path.add(ni.getKey());
+            shortestPaths(g, ni.getKey(), dest, dist, path, cost + g.getEdge(u, ni.getKey()), paths);
+            path.remove(path.size() - 1);
+        }
+    }
+}
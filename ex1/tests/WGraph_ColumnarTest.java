@@ -0,0 +1,121 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class which checks the columnar graph against WGraph_DS
+ */
+
+class WGraph_ColumnarTest {
+    private weighted_graph ds, columnar;
+
+    @BeforeEach
+    void beforeEach() {
+        ds = new WGraph_DS();
+        columnar = new WGraph_Columnar();
+        Random rand = new Random(41);
+        for (weighted_graph g : new weighted_graph[]{ds, columnar}) {
+            for (int i = 0; i < 500; i++) g.addNode(i * 7 - 1000);
+        }
+        for (int i = 0; i < 2000; i++) {
+            int a = rand.nextInt(500) * 7 - 1000, b = rand.nextInt(500) * 7 - 1000, w = rand.nextInt(30);
+            ds.connect(a, b, w);
+            columnar.connect(a, b, w);
+        }
+    }
+
+    @Test
+    void randomOperations() {
+        Random rand = new Random(410);
+        for (int step = 0; step < 20000; step++) {
+            int a = rand.nextInt(600) * 7 - 1000, b = rand.nextInt(600) * 7 - 1000, op = rand.nextInt(20);
+            if (op == 0) {
+                node_info x = ds.removeNode(a), y = columnar.removeNode(a);
+                assertEquals(x == null, y == null);
+                if (x != null) assertEquals(x.getKey(), y.getKey());
+            } else if (op < 3) {
+                ds.addNode(a);
+                columnar.addNode(a);
+            } else if (op < 12) {
+                int w = rand.nextInt(30);
+                ds.connect(a, b, w);
+                columnar.connect(a, b, w);
+            } else {
+                ds.removeEdge(a, b);
+                columnar.removeEdge(a, b);
+            }
+            assertEquals(ds.hasEdge(a, b), columnar.hasEdge(a, b));
+            assertEquals(ds.getEdge(a, b), columnar.getEdge(a, b));
+            assertEquals(ds.getNode(a) == null, columnar.getNode(a) == null);
+        }
+        assertEquals(ds.nodeSize(), columnar.nodeSize());
+        assertEquals(ds.edgeSize(), columnar.edgeSize());
+        assertEquals(ds.getMC() > 0, columnar.getMC() > 0);
+        assertEquals(ds.getV().size(), columnar.getV().size());
+        for (node_info n : ds.getV()) assertEquals(ds.getV(n.getKey()).size(), columnar.getV(n.getKey()).size());
+    }
+
+    @Test
+    void mc() {
+        weighted_graph a = new WGraph_DS(), b = new WGraph_Columnar();
+        for (weighted_graph g : new weighted_graph[]{a, b}) {
+            for (int i = 0; i < 10; i++) g.addNode(i);
+            g.connect(0, 1, 1);
+            g.connect(0, 1, 1);
+            g.connect(0, 1, 2);
+            g.connect(1, 2, 2);
+            g.connect(1, 1, 2);
+            g.removeEdge(0, 5);
+            g.removeNode(1);
+            g.removeNode(1);
+        }
+        assertEquals(a.getMC(), b.getMC());
+        assertEquals(a.edgeSize(), b.edgeSize());
+        assertEquals(a.nodeSize(), b.nodeSize());
+    }
+
+    @Test
+    void flyweights() {
+        node_info x = columnar.getNode(-1000), y = columnar.getNode(-1000);
+        assertEquals(x, y);
+        assertEquals(x.hashCode(), y.hashCode());
+        x.setTag(2.5);
+        x.setInfo("gray");
+        assertEquals(2.5, y.getTag());
+        assertEquals("gray", y.getInfo());
+        // The vertex moves to another slot when another vertex is removed
+        node_info last = null;
+        for (node_info n : columnar.getV()) last = n;
+        last.setInfo("last");
+        columnar.removeNode(-1000);
+        assertEquals("last", last.getInfo());
+        assertEquals("last", columnar.getNode(last.getKey()).getInfo());
+        assertThrows(IllegalStateException.class, () -> x.getTag());
+        assertNull(columnar.getNode(-1000));
+        assertEquals("", columnar.getNode(-993).getInfo());
+    }
+
+    @Test
+    void algorithms() {
+        WGraph_Algo a = new WGraph_Algo(ds), b = new WGraph_Algo(columnar);
+        assertEquals(a.isConnected(), b.isConnected());
+        assertEquals(ds, columnar);
+        assertEquals(columnar, ds);
+        Random rand = new Random(4);
+        for (int i = 0; i < 30; i++) {
+            int s = rand.nextInt(500) * 7 - 1000, t = rand.nextInt(500) * 7 - 1000;
+            assertEquals(a.shortestPathDist(s, t), b.shortestPathDist(s, t), 1e-9);
+            java.util.List<node_info> p = b.shortestPath(s, t);
+            if (p == null) continue;
+            double cost = 0;
+            for (int j = 0; j + 1 < p.size(); j++) cost += columnar.getEdge(p.get(j).getKey(), p.get(j + 1).getKey());
+            assertEquals(a.shortestPathDist(s, t), cost, 1e-9);
+        }
+        assertEquals(ds, b.copy());
+    }
+}
\ No newline at end of file
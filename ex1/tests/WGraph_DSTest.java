@@ -3,6 +3,11 @@ package ex1.tests;
 import ex1.src.*;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -196,4 +201,78 @@ class WGraph_DSTest {
         assertEquals("Ver: [0, 6, 123]\n" +
                 "[{0,123;34.7}, {6,123;200.0}, {123,0;34.7}, {123,6;200.0}]", single.toString());
     }
+
+    @Test
+    void eventStream() {
+        WGraph_DS g = (WGraph_DS) single;
+        List<String> events = new ArrayList<>();
+        WGraph_EventStream stream = new WGraph_EventStream(g, 2, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                events.add(batch.op(i) + ":" + batch.node1(i) + "," + batch.node2(i) + ","
+                        + batch.oldWeight(i) + "," + batch.weight(i) + "@" + batch.mc(i));
+            }
+        });
+        g.addNode(1);
+        g.connect(0, 1, 2.5);
+        g.connect(0, 1, 3.0);
+        g.connect(0, 1, 3.0);
+        assertEquals(2, events.size());
+        assertEquals(1, stream.size());
+        g.removeNode(1);
+        stream.close();
+        g.addNode(2);
+        assertEquals(5, stream.delivered());
+        assertEquals(Arrays.asList("0:1,1,0.0,0.0@2", "2:0,1,0.0,2.5@3", "3:0,1,2.5,3.0@4",
+                "4:0,1,3.0,0.0@5", "1:1,1,0.0,0.0@6"), events);
+    }
+
+    @Test
+    void applyBatch() {
+        Random rand = new Random(40);
+        for (boolean parallel : new boolean[]{false, true}) {
+            WGraph_DS expected = new WGraph_DS(), actual = new WGraph_DS();
+            for (WGraph_DS g : new WGraph_DS[]{expected, actual}) {
+                for (int i = 0; i < 50; i++) g.addNode(i);
+                for (int i = 0; i < 100; i++) g.connect(i % 50, (i * 7 + 3) % 50, i % 10);
+            }
+            int size = 3000;
+            byte[] ops = new byte[size];
+            int[] a = new int[size], b = new int[size];
+            double[] w = new double[size];
+            for (int i = 0; i < size; i++) {
+                int r = rand.nextInt(100);
+                ops[i] = r < 2 ? WGraph_Journal.ADD_NODE : r < 3 ? WGraph_Journal.REMOVE_NODE
+                        : r < 70 ? WGraph_Journal.CONNECT : WGraph_Journal.REMOVE_EDGE;
+                a[i] = rand.nextInt(60);
+                b[i] = rand.nextInt(60);
+                w[i] = rand.nextInt(5) - 1;
+            }
+            int changed = 0;
+            for (int i = 0; i < size; i++) {
+                int mc = expected.getMC();
+                if (ops[i] == WGraph_Journal.ADD_NODE) expected.addNode(a[i]);
+                else if (ops[i] == WGraph_Journal.REMOVE_NODE) expected.removeNode(a[i]);
+                else if (ops[i] == WGraph_Journal.CONNECT) expected.connect(a[i], b[i], w[i]);
+                else expected.removeEdge(a[i], b[i]);
+                if (expected.getMC() != mc) changed++;
+            }
+            int mc = actual.getMC();
+            assertEquals(changed, actual.applyBatch(ops, a, b, w, size, parallel));
+            assertEquals(mc + 1, actual.getMC());
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.edgeSize(), actual.edgeSize());
+            assertEquals(expected.nodeSize(), actual.nodeSize());
+        }
+
+        // With a listener every operation is reported
+        WGraph_DS g = (WGraph_DS) arrow;
+        int[] events = new int[1];
+        WGraph_EventStream stream = new WGraph_EventStream(g, 16, batch -> events[0] += batch.size());
+        assertEquals(2, g.applyBatch(new byte[]{WGraph_Journal.CONNECT, WGraph_Journal.REMOVE_EDGE, WGraph_Journal.CONNECT},
+                new int[]{0, 0, 0}, new int[]{3, 1, 100}, new double[]{1, 0, 1}, 3, false));
+        stream.close();
+        assertEquals(2, events[0]);
+        assertEquals(1.0, g.getEdge(0, 3));
+        assertFalse(g.hasEdge(0, 1));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package ex1.tests;
+
+import ex1.src.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class which checks the memory-mapped graph against WGraph_DS
+ */
+
+class WGraph_MappedTest {
+    private weighted_graph random;
+    private WGraph_Mapped mapped;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        Random rand = new Random(3);
+        random = new WGraph_DS();
+        for (int i = 0; i < 2000; i++) {
+            random.addNode(i * 3 - 100);
+        }
+        for (int i = 0; i < 8000; i++) {
+            random.connect(rand.nextInt(2000) * 3 - 100, rand.nextInt(2000) * 3 - 100, rand.nextInt(50));
+        }
+        mapped = WGraph_Mapped.copyOf("myMappedGraph", random);
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        mapped.close();
+        WGraph_Mapped.delete("myMappedGraph");
+    }
+
+    @Test
+    void copyOf() {
+        assertEquals(random.nodeSize(), mapped.nodeSize());
+        assertEquals(random.edgeSize(), mapped.edgeSize());
+        assertEquals(random, mapped);
+        for (node_info n : random.getV()) {
+            assertEquals(random.getV(n.getKey()).size(), mapped.getV(n.getKey()).size());
+        }
+        assertNull(mapped.getNode(0));
+        assertEquals(-1, mapped.getEdge(-100, -100));
+    }
+
+    @Test
+    void build() throws IOException {
+        WGraph_Mapped g = WGraph_Mapped.build("mySmallMappedGraph", new int[]{5, 1, 3, 3}, v -> {
+            v.edge(1, 3, 2);
+            v.edge(3, 1, 7);
+            v.edge(1, 1, 1);
+            v.edge(5, 9, 1);
+            v.edge(3, 5, -1);
+        });
+        assertEquals(3, g.nodeSize());
+        assertEquals(1, g.edgeSize());
+        assertEquals(7, g.getEdge(1, 3));
+        assertFalse(g.hasEdge(3, 5));
+        assertThrows(UnsupportedOperationException.class, () -> g.addNode(8));
+        g.close();
+        WGraph_Mapped.delete("mySmallMappedGraph");
+    }
+
+    @Test
+    void open() throws IOException {
+        mapped.close();
+        mapped = WGraph_Mapped.open("myMappedGraph");
+        assertEquals(random, mapped);
+    }
+
+    @Test
+    void algorithms() {
+        weighted_graph_algorithms ds = new WGraph_Algo(random);
+        weighted_graph_algorithms mm = new WGraph_Algo(mapped);
+        Random rand = new Random(4);
+        assertEquals(ds.isConnected(), mm.isConnected());
+        for (int i = 0; i < 50; i++) {
+            int src = rand.nextInt(2000) * 3 - 100, dest = rand.nextInt(2000) * 3 - 100;
+            assertEquals(ds.shortestPathDist(src, dest), mm.shortestPathDist(src, dest));
+            List<node_info> p1 = ds.shortestPath(src, dest), p2 = mm.shortestPath(src, dest);
+            assertEquals(p1 == null, p2 == null);
+            if (p1 != null) assertEquals(p1.size(), p2.size());
+        }
+    }
+
+    /**
+     * 1M vertices, every vertex connected to the next 10 (10M edges, ~240MB of adjacency) -
+     * the out-of-core case scaled down from 100M edges to 10M, to keep the run time and the disk use
+     * of the test reasonable. The graph must hold less than 1/8 of its adjacency on the heap
+     * (only the keys are kept there), so the test also passes with -Xmx64m.
+     */
+    @Test
+    void hugeShortestPathDist() throws IOException {
+        final int n = 1000000, band = 10;
+        long before = usedHeap();
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++) nodes[i] = i;
+        WGraph_Mapped huge = WGraph_Mapped.build("myHugeMappedGraph", nodes, v -> {
+            for (int i = 0; i < n; i++) {
+                for (int j = 1; j <= band && i + j < n; j++) v.edge(i, i + j, j * j);
+            }
+        });
+        assertEquals((long) n * band - band * (band + 1) / 2, huge.edgeCount());
+        // Every edge is stored in both directions: a neighbor index (int) and a weight (double)
+        long adjacency = huge.edgeCount() * 2 * (4 + 8), held = usedHeap() - before;
+        assertTrue(held < adjacency / 8, held / (1 << 20) + " MB on the heap");
+        assertEquals(n - 1, new WGraph_Algo(huge).shortestPathDist(0, n - 1));
+        huge.close();
+        WGraph_Mapped.delete("myHugeMappedGraph");
+    }
+
+    /**
+     * Help function: the heap in use after a few garbage collections.
+     */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}